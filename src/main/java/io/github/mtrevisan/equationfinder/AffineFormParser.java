@@ -0,0 +1,197 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+
+/**
+ * Recognizes expressions that are affine in the parameters, {@code a0·p0 + a1·p1 + ... + c}, made of numbers, parameters, the four
+ * operations, and parentheses only.
+ */
+final class AffineFormParser{
+
+	private static final char PARAMETER_PREFIX = 'p';
+
+
+	private final String expression;
+	private final int parameterCount;
+	private int position;
+
+
+	/**
+	 * Parses an expression as an affine form of the parameters.
+	 *
+	 * @param expression	The expression.
+	 * @param parameterCount	The number of parameters.
+	 * @return	The coefficients of the parameters followed by the constant term, or {@code null} if the expression is not affine in the
+	 * 	parameters (or references an input, a function, or an unknown parameter).
+	 */
+	static double[] parse(final String expression, final int parameterCount){
+		final AffineFormParser parser = new AffineFormParser(expression, parameterCount);
+		final double[] form = parser.parseSum();
+		parser.skipSpaces();
+		return (form != null && parser.position == expression.length()? form: null);
+	}
+
+
+	private AffineFormParser(final String expression, final int parameterCount){
+		this.expression = expression;
+		this.parameterCount = parameterCount;
+	}
+
+
+	private double[] parseSum(){
+		double[] form = parseProduct();
+		while(form != null){
+			skipSpaces();
+			if(!consume('+') && !consume('-'))
+				break;
+
+			final double sign = (expression.charAt(position - 1) == '-'? -1.: 1.);
+			final double[] term = parseProduct();
+			if(term == null)
+				return null;
+
+			for(int i = 0, length = form.length; i < length; i ++)
+				form[i] += sign * term[i];
+		}
+		return form;
+	}
+
+	private double[] parseProduct(){
+		double[] form = parseUnary();
+		while(form != null){
+			skipSpaces();
+			if(consume('*')){
+				final double[] factor = parseUnary();
+				if(factor == null)
+					return null;
+
+				//at least one of the factors should be a constant
+				if(isConstant(factor))
+					scale(form, factor[parameterCount]);
+				else if(isConstant(form)){
+					scale(factor, form[parameterCount]);
+					form = factor;
+				}
+				else
+					return null;
+			}
+			else if(consume('/')){
+				final double[] divisor = parseUnary();
+				if(divisor == null || !isConstant(divisor) || divisor[parameterCount] == 0.)
+					return null;
+
+				scale(form, 1. / divisor[parameterCount]);
+			}
+			else
+				break;
+		}
+		return form;
+	}
+
+	private double[] parseUnary(){
+		skipSpaces();
+		if(consume('-')){
+			final double[] form = parseUnary();
+			if(form != null)
+				scale(form, -1.);
+			return form;
+		}
+		if(consume('+'))
+			return parseUnary();
+		return parsePrimary();
+	}
+
+	private double[] parsePrimary(){
+		skipSpaces();
+		if(consume('(')){
+			final double[] form = parseSum();
+			skipSpaces();
+			return (form != null && consume(')')? form: null);
+		}
+
+		final int start = position;
+		if(position < expression.length() && expression.charAt(position) == PARAMETER_PREFIX){
+			position ++;
+			while(position < expression.length() && Character.isDigit(expression.charAt(position)))
+				position ++;
+			if(position == start + 1 || position < expression.length() && Character.isLetter(expression.charAt(position)))
+				return null;
+
+			final int index = Integer.parseInt(expression.substring(start + 1, position));
+			if(index >= parameterCount)
+				return null;
+
+			final double[] form = new double[parameterCount + 1];
+			form[index] = 1.;
+			return form;
+		}
+
+		while(position < expression.length() && isNumberCharacter(expression.charAt(position), position > start))
+			position ++;
+		if(position == start)
+			return null;
+
+		try{
+			final double[] form = new double[parameterCount + 1];
+			form[parameterCount] = Double.parseDouble(expression.substring(start, position));
+			return form;
+		}
+		catch(final NumberFormatException ignored){
+			return null;
+		}
+	}
+
+	private boolean isNumberCharacter(final char chr, final boolean inside){
+		return (Character.isDigit(chr) || chr == '.' || inside && (chr == 'e' || chr == 'E'
+			|| (chr == '+' || chr == '-') && (expression.charAt(position - 1) == 'e' || expression.charAt(position - 1) == 'E')));
+	}
+
+	private boolean consume(final char chr){
+		if(position < expression.length() && expression.charAt(position) == chr){
+			position ++;
+			return true;
+		}
+		return false;
+	}
+
+	private void skipSpaces(){
+		while(position < expression.length() && Character.isWhitespace(expression.charAt(position)))
+			position ++;
+	}
+
+	private boolean isConstant(final double[] form){
+		for(int i = 0; i < parameterCount; i ++)
+			if(form[i] != 0.)
+				return false;
+		return true;
+	}
+
+	private static void scale(final double[] form, final double factor){
+		for(int i = 0, length = form.length; i < length; i ++)
+			form[i] *= factor;
+	}
+
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import io.github.mtrevisan.equationfinder.objectives.FusedObjective;
+import io.github.mtrevisan.equationfinder.objectives.ObjectivePenalty;
+import org.apache.commons.math3.analysis.MultivariateFunction;
+import org.apache.commons.math3.optim.SimpleBounds;
+
+
+/**
+ * Augmented Lagrangian (Powell-Hestenes-Rockafellar) handling of the constraints.
+ * <p>
+ * An outer loop repeatedly minimizes, with the given inner optimizer, the objective plus a Lagrangian term and a quadratic penalty for
+ * each constraint; between inner solves the multipliers are updated from the constraint values, and the penalty weight is increased only
+ * if the violation did not decrease enough. Each inner solve starts from the solution of the previous one.
+ * Differently from a fixed quadratic penalty, the constraints are met exactly without the penalty weight having to grow unbounded.
+ * </p>
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Augmented_Lagrangian_method">Augmented Lagrangian method</a>
+ */
+final class AugmentedLagrangian implements MultivariateFunction{
+
+	/** Value of the {@code with constraint handling} section of the problem selecting this method. */
+	static final String CONSTRAINT_HANDLING_AUGMENTED_LAGRANGIAN = "augmented lagrangian";
+
+	private static final int MAX_OUTER_ITERATIONS = 20;
+	private static final double FEASIBILITY_TOLERANCE = 1.e-8;
+	private static final double INITIAL_PENALTY_WEIGHT = 10.;
+	private static final double PENALTY_WEIGHT_GROWTH = 10.;
+	private static final double MAX_PENALTY_WEIGHT = 1.e12;
+	//the violation should at least decrease by this factor between outer iterations, otherwise the penalty weight is increased
+	private static final double SUFFICIENT_DECREASE = 0.25;
+
+
+	@FunctionalInterface
+	interface InnerOptimizer{
+		double[] optimize(MultivariateFunction function, SimpleBounds bounds, double[] initialGuess, int maxEvaluations);
+	}
+
+	/**
+	 * The outcome of the minimization.
+	 *
+	 * @param point	The solution (all the parameters).
+	 * @param outerIterations	The number of inner solves.
+	 * @param maxViolation	The maximum violation of a constraint at the solution.
+	 * @param penaltyWeight	The final penalty weight.
+	 */
+	record Result(double[] point, int outerIterations, double maxViolation, double penaltyWeight){
+		boolean isFeasible(){
+			return (maxViolation <= FEASIBILITY_TOLERANCE);
+		}
+	}
+
+
+	private final FusedObjective objective;
+	private final Constraint[] constraints;
+	private final SearchMode searchMode;
+
+	private final double[] multipliers;
+	private double penaltyWeight = INITIAL_PENALTY_WEIGHT;
+
+
+	/**
+	 * Minimizes the objective subject to the constraints.
+	 *
+	 * @param objective	The objective.
+	 * @param constraints	The constraints.
+	 * @param searchMode	The search mode.
+	 * @param substitution	The substitution of the eliminated parameters, the inner optimizer working on the free ones.
+	 * @param optimizer	The inner optimizer.
+	 * @param bounds	The bounds of the free parameters.
+	 * @param initialGuess	The initial guess of the free parameters.
+	 * @param maxEvaluations	The maximum number of evaluations of each inner solve.
+	 * @return	The result.
+	 */
+	static Result minimize(final FusedObjective objective, final Constraint[] constraints, final SearchMode searchMode,
+			final ParameterSubstitution substitution, final InnerOptimizer optimizer, final SimpleBounds bounds, final double[] initialGuess,
+			final int maxEvaluations){
+		final AugmentedLagrangian lagrangian = new AugmentedLagrangian(objective, constraints, searchMode);
+		final MultivariateFunction function = substitution.wrap(lagrangian);
+
+		double[] point = initialGuess;
+		double previousViolation = Double.POSITIVE_INFINITY;
+		double maxViolation = Double.POSITIVE_INFINITY;
+		int iteration = 0;
+		while(iteration < MAX_OUTER_ITERATIONS){
+			point = optimizer.optimize(function, bounds, point, maxEvaluations);
+			iteration ++;
+
+			maxViolation = lagrangian.updateMultipliers(substitution.expand(point));
+			if(maxViolation <= FEASIBILITY_TOLERANCE)
+				break;
+
+			if(maxViolation > SUFFICIENT_DECREASE * previousViolation){
+				if(lagrangian.penaltyWeight >= MAX_PENALTY_WEIGHT)
+					break;
+
+				lagrangian.penaltyWeight = Math.min(lagrangian.penaltyWeight * PENALTY_WEIGHT_GROWTH, MAX_PENALTY_WEIGHT);
+			}
+			previousViolation = maxViolation;
+		}
+		return new Result(substitution.expand(point), iteration, maxViolation, lagrangian.penaltyWeight);
+	}
+
+
+	private AugmentedLagrangian(final FusedObjective objective, final Constraint[] constraints, final SearchMode searchMode){
+		this.objective = objective;
+		this.constraints = constraints;
+		this.searchMode = searchMode;
+
+		multipliers = new double[constraints.length];
+	}
+
+
+	@Override
+	public double value(final double[] params){
+		try{
+			double value = objective.value(params, searchMode);
+			for(int i = 0, length = constraints.length; i < length; i ++){
+				final Constraint constraint = constraints[i];
+				final double multiplier = multipliers[i];
+
+				final double constraintValue = constraint.evaluate(params);
+				switch(constraint.relationship()){
+					case EQ -> value += -multiplier * constraintValue + 0.5 * penaltyWeight * constraintValue * constraintValue;
+					case GEQ -> value += inequalityTerm(constraintValue, multiplier);
+					case LEQ -> value += inequalityTerm(-constraintValue, multiplier);
+				}
+			}
+			return (Double.isNaN(value)? ObjectivePenalty.INVALID_VALUE: value);
+		}
+		catch(final Exception ignored){
+			return ObjectivePenalty.INVALID_VALUE;
+		}
+	}
+
+	//term of the constraint `value >= 0`
+	private double inequalityTerm(final double value, final double multiplier){
+		return (value < multiplier / penaltyWeight
+			? -multiplier * value + 0.5 * penaltyWeight * value * value
+			: -0.5 * multiplier * multiplier / penaltyWeight);
+	}
+
+	/**
+	 * Updates the multipliers at the solution of an inner solve.
+	 *
+	 * @param params	The solution of the inner solve.
+	 * @return	The maximum violation of a constraint.
+	 */
+	private double updateMultipliers(final double[] params){
+		double maxViolation = 0.;
+		for(int i = 0, length = constraints.length; i < length; i ++){
+			final Constraint constraint = constraints[i];
+
+			final double constraintValue = constraint.evaluate(params);
+			final double violation;
+			switch(constraint.relationship()){
+				case EQ -> {
+					multipliers[i] -= penaltyWeight * constraintValue;
+					violation = Math.abs(constraintValue);
+				}
+				case GEQ -> {
+					multipliers[i] = Math.max(multipliers[i] - penaltyWeight * constraintValue, 0.);
+					violation = Math.max(-constraintValue, 0.);
+				}
+				default -> {
+					multipliers[i] = Math.max(multipliers[i] + penaltyWeight * constraintValue, 0.);
+					violation = Math.max(constraintValue, 0.);
+				}
+			}
+			maxViolation = Math.max(maxViolation, violation);
+		}
+		return maxViolation;
+	}
+
+}
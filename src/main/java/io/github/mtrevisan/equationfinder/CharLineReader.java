@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+
+/**
+ * Reads lines into a reusable character buffer, without creating a string for each of them.
+ */
+final class CharLineReader implements Closeable{
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+
+	private final Reader reader;
+	private char[] buffer = new char[BUFFER_SIZE];
+	//valid characters in the buffer are in [position, limit)
+	private int position;
+	private int limit;
+	private boolean endOfStream;
+
+	//current line, in [lineStart, lineEnd) of the buffer, leading and trailing whitespaces excluded
+	private int lineStart;
+	private int lineEnd;
+	private int lineNumber;
+
+
+	CharLineReader(final Reader reader){
+		this.reader = reader;
+	}
+
+
+	/**
+	 * Advances to the next line.
+	 *
+	 * @return	Whether there is a line.
+	 * @throws IOException	If an I/O error occurs.
+	 */
+	boolean nextLine() throws IOException{
+		int index = position;
+		while(true){
+			while(index < limit && buffer[index] != '\n')
+				index ++;
+			if(index < limit || endOfStream)
+				break;
+
+			//the line continues beyond the buffer
+			final int scanned = index - position;
+			fill();
+			index = position + scanned;
+		}
+		if(position == limit && endOfStream)
+			return false;
+
+		int start = position;
+		int end = index;
+		position = (index < limit? index + 1: index);
+		while(start < end && buffer[start] <= ' ')
+			start ++;
+		while(end > start && buffer[end - 1] <= ' ')
+			end --;
+		lineStart = start;
+		lineEnd = end;
+		lineNumber ++;
+		return true;
+	}
+
+	//compact the unread characters at the beginning of the buffer (growing it if full) and read more
+	private void fill() throws IOException{
+		final int remaining = limit - position;
+		if(remaining == buffer.length)
+			buffer = Arrays.copyOf(buffer, buffer.length << 1);
+		else if(position > 0)
+			System.arraycopy(buffer, position, buffer, 0, remaining);
+		position = 0;
+		limit = remaining;
+
+		final int read = reader.read(buffer, limit, buffer.length - limit);
+		if(read < 0)
+			endOfStream = true;
+		else
+			limit += read;
+	}
+
+	/**
+	 * @return	The buffer holding the current line (valid until the next call to {@link #nextLine()}).
+	 */
+	char[] buffer(){
+		return buffer;
+	}
+
+	int lineStart(){
+		return lineStart;
+	}
+
+	int lineEnd(){
+		return lineEnd;
+	}
+
+	int lineNumber(){
+		return lineNumber;
+	}
+
+	boolean isLineEmpty(){
+		return (lineStart == lineEnd);
+	}
+
+	char firstChar(){
+		return buffer[lineStart];
+	}
+
+	/**
+	 * @return	The current line, trimmed.
+	 */
+	String line(){
+		return new String(buffer, lineStart, lineEnd - lineStart);
+	}
+
+	@Override
+	public void close() throws IOException{
+		reader.close();
+	}
+
+}
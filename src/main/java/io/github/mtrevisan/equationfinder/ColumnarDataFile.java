@@ -0,0 +1,264 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+
+/**
+ * Binary columnar format of a data table, meant to be memory-mapped.
+ * <p>
+ * Layout (little-endian):
+ * <pre>
+ * magic       4 bytes  "EQFD"
+ * version     int
+ * data type   int      (8 = float64)
+ * columns     int
+ * rows        long
+ * names       for each column: length (int) followed by the UTF-8 bytes of the name
+ * padding     up to a multiple of 64 bytes
+ * columns     for each column: the values, padded up to a multiple of 64 bytes
+ * </pre>
+ * The last column is the target, the others are the inputs, named as in the {@code with input} section of the problem.
+ * </p>
+ */
+final class ColumnarDataFile{
+
+	private static final byte[] MAGIC = {'E', 'Q', 'F', 'D'};
+	private static final int VERSION = 1;
+	private static final int DATA_TYPE_FLOAT64 = Double.BYTES;
+	private static final int ALIGNMENT = 64;
+	//a single mapping cannot exceed 2 GiB
+	private static final int MAX_ROW_COUNT = Integer.MAX_VALUE / DATA_TYPE_FLOAT64;
+	//size of the buffer the values are written through (a multiple of the size of a value)
+	private static final int WRITE_CHUNK_SIZE = 1 << 20;
+
+	static final String TARGET_COLUMN_NAME = "target";
+
+
+	/**
+	 * The columns of a mapped file, read-only.
+	 *
+	 * @param columnNames	The names of the columns.
+	 * @param rowCount	The number of rows.
+	 * @param columns	The values of each column.
+	 */
+	record ColumnarData(String[] columnNames, int rowCount, DoubleBuffer[] columns){
+
+		/**
+		 * @return	The names of the input columns (all but the last, that is the target).
+		 */
+		String[] inputNames(){
+			return Arrays.copyOf(columnNames, columnNames.length - 1);
+		}
+
+	}
+
+
+	private ColumnarDataFile(){}
+
+
+	/**
+	 * Converts the data of a problem file into the binary columnar format.
+	 *
+	 * @param args	The path of the problem file, and the path of the binary file to write.
+	 * @throws IOException	If an I/O error occurs.
+	 */
+	public static void main(final String[] args) throws IOException{
+		if(args.length != 2)
+			throw new IllegalArgumentException("Usage: ColumnarDataFile <problem file> <binary file>");
+
+		final ProblemData problemData = ProblemExtractor.readProblemData(Paths.get(args[0]));
+		write(Paths.get(args[1]), problemData.dataInput(), problemData.dataColumns());
+	}
+
+
+	/**
+	 * Writes a data table.
+	 *
+	 * @param file	The file to write.
+	 * @param inputNames	The names of the inputs.
+	 * @param columns	The values of each input followed by the target values, from the position to the limit of each buffer.
+	 * @throws IOException	If an I/O error occurs.
+	 */
+	static void write(final Path file, final String[] inputNames, final DoubleBuffer[] columns) throws IOException{
+		final int columnCount = inputNames.length + 1;
+		if(columns.length != columnCount)
+			throw new IllegalArgumentException("There are " + columns.length + " columns for " + inputNames.length + " inputs");
+		final int rowCount = (columnCount > 0? columns[0].remaining(): 0);
+		final String[] columnNames = Arrays.copyOf(inputNames, columnCount);
+		columnNames[columnCount - 1] = TARGET_COLUMN_NAME;
+
+		final byte[][] names = new byte[columnCount][];
+		int headerSize = MAGIC.length + Integer.BYTES * 3 + Long.BYTES;
+		for(int j = 0; j < columnCount; j ++){
+			names[j] = columnNames[j].getBytes(StandardCharsets.UTF_8);
+			headerSize += Integer.BYTES + names[j].length;
+		}
+
+		try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)){
+			final ByteBuffer header = ByteBuffer.allocate(align(headerSize))
+				.order(ByteOrder.LITTLE_ENDIAN);
+			header.put(MAGIC)
+				.putInt(VERSION)
+				.putInt(DATA_TYPE_FLOAT64)
+				.putInt(columnCount)
+				.putLong(rowCount);
+			for(int j = 0; j < columnCount; j ++)
+				header.putInt(names[j].length)
+					.put(names[j]);
+			header.position(header.capacity());
+			writeFully(channel, header.flip());
+
+			final ByteBuffer chunk = ByteBuffer.allocate(WRITE_CHUNK_SIZE)
+				.order(ByteOrder.LITTLE_ENDIAN);
+			final int padding = (int)(align((long)rowCount * DATA_TYPE_FLOAT64) - (long)rowCount * DATA_TYPE_FLOAT64);
+			for(int j = 0; j < columnCount; j ++){
+				final DoubleBuffer column = columns[j].slice();
+				chunk.clear();
+				for(int i = 0; i < rowCount; i ++){
+					if(!chunk.hasRemaining()){
+						writeFully(channel, chunk.flip());
+						chunk.clear();
+					}
+					chunk.putDouble(column.get(i));
+				}
+				writeFully(channel, chunk.flip());
+
+				writeFully(channel, ByteBuffer.allocate(padding));
+			}
+		}
+	}
+
+	private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException{
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	/**
+	 * Maps a data file in memory: the values are not read until accessed, and the pages are shared, through the page cache of the operating
+	 * system, with any other process mapping the same file.
+	 *
+	 * @param file	The file to read.
+	 * @return	The columns.
+	 * @throws IOException	If an I/O error occurs, the file is not in the binary columnar format, or a column is too large to be mapped
+	 * 	(more than {@value #MAX_ROW_COUNT} rows).
+	 */
+	static ColumnarData read(final Path file) throws IOException{
+		try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			final ByteBuffer prefix = ByteBuffer.allocate(MAGIC.length + Integer.BYTES * 3 + Long.BYTES)
+				.order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, prefix, 0l);
+			prefix.flip();
+
+			final byte[] magic = new byte[MAGIC.length];
+			prefix.get(magic);
+			if(!Arrays.equals(magic, MAGIC))
+				throw new IOException("Not a columnar data file: " + file);
+			final int version = prefix.getInt();
+			if(version != VERSION)
+				throw new IOException("Unsupported version " + version + " of columnar data file: " + file);
+			final int dataType = prefix.getInt();
+			if(dataType != DATA_TYPE_FLOAT64)
+				throw new IOException("Unsupported data type " + dataType + " of columnar data file: " + file);
+			final int columnCount = prefix.getInt();
+			final long rows = prefix.getLong();
+			if(rows < 0l || rows > MAX_ROW_COUNT)
+				throw new IOException("Columnar data file with " + rows + " rows, a column cannot be mapped in memory beyond 2 GiB ("
+					+ MAX_ROW_COUNT + " rows): " + file);
+			final int rowCount = (int)rows;
+
+			final String[] columnNames = new String[columnCount];
+			long offset = prefix.capacity();
+			final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES)
+				.order(ByteOrder.LITTLE_ENDIAN);
+			for(int j = 0; j < columnCount; j ++){
+				length.clear();
+				readFully(channel, length, offset);
+				final ByteBuffer name = ByteBuffer.allocate(length.flip().getInt());
+				readFully(channel, name, offset + Integer.BYTES);
+				columnNames[j] = new String(name.array(), StandardCharsets.UTF_8);
+				offset += Integer.BYTES + name.capacity();
+			}
+			offset = align(offset);
+
+			//each column is mapped on its own, so that only a column (not the whole file) is limited to 2 GiB
+			final long columnSize = align((long)rowCount * DATA_TYPE_FLOAT64);
+			final DoubleBuffer[] columns = new DoubleBuffer[columnCount];
+			for(int j = 0; j < columnCount; j ++){
+				columns[j] = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long)rowCount * DATA_TYPE_FLOAT64)
+					.order(ByteOrder.LITTLE_ENDIAN)
+					.asDoubleBuffer();
+				offset += columnSize;
+			}
+			return new ColumnarData(columnNames, rowCount, columns);
+		}
+	}
+
+	private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException{
+		long offset = position;
+		while(buffer.hasRemaining()){
+			final int read = channel.read(buffer, offset);
+			if(read < 0)
+				throw new IOException("Unexpected end of file");
+
+			offset += read;
+		}
+	}
+
+	private static int align(final int size){
+		return (int)align((long)size);
+	}
+
+	private static long align(final long size){
+		return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+
+	/**
+	 * Tells whether a file is in the binary columnar format.
+	 *
+	 * @param file	The file.
+	 * @return	Whether the file starts with the magic number of the format.
+	 * @throws IOException	If an I/O error occurs.
+	 */
+	static boolean isColumnarDataFile(final Path file) throws IOException{
+		try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			final ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+			while(magic.hasRemaining() && channel.read(magic) >= 0);
+			return (!magic.hasRemaining() && Arrays.equals(magic.array(), MAGIC));
+		}
+	}
+
+}
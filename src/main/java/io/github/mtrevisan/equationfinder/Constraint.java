@@ -42,6 +42,10 @@ public class Constraint{
 		return function.evaluate(params);
 	}
 
+	Relationship relationship(){
+		return relationship;
+	}
+
 	public boolean isFeasible(final double value){
 		return switch(relationship){
 			case LEQ -> value <= 0.;
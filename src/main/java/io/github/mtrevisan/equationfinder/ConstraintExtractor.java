@@ -46,26 +46,50 @@ public final class ConstraintExtractor{
 	private ConstraintExtractor(){}
 
 
-	static boolean parseBasicConstraint(final String expression, final double[] lowerBounds, final double[] upperBounds){
+	/**
+	 * A bound on a single parameter.
+	 *
+	 * @param parameterIndex	The index of the parameter.
+	 * @param lower	Whether it is a lower bound.
+	 * @param value	The value of the bound.
+	 */
+	record Bound(int parameterIndex, boolean lower, double value){}
+
+
+	/**
+	 * Parses a constraint of the form {@code p<n> >= <value>} or {@code p<n> <= <value>}.
+	 *
+	 * @param expression	The constraint.
+	 * @return	The bound, or {@code null} if the constraint is not a bound.
+	 */
+	static Bound parseBound(final String expression){
 		final String[] parts = PATTERN_SPLIT.splitWithDelimiters(expression, -1);
 		try{
-			if(parts.length != 3 || !isValidParameter(parts[0]))
+			if(parts.length != 3 || !isValidParameter(parts[0].trim()))
 				throw new IllegalArgumentException("Invalid constraint format: " + expression);
 		}
 		catch(final NumberFormatException ignored){
-			return false;
+			return null;
 		}
 
 		final int parameterIndex = Integer.parseInt(parts[0].trim().substring(1));
 		final String operator = parts[1].trim();
-		final double rhs = Double.parseDouble(parts[2].trim());
+		final double rhs;
+		try{
+			rhs = Double.parseDouble(parts[2].trim());
+		}
+		catch(final NumberFormatException ignored){
+			//the right-hand side is an expression
+			return null;
+		}
 
-		switch(operator){
-			case GREATER_OR_EQUAL -> lowerBounds[parameterIndex] = rhs;
-			case LOWER_OR_EQUAL -> upperBounds[parameterIndex] = rhs;
+		return switch(operator){
+			case GREATER_OR_EQUAL -> new Bound(parameterIndex, true, rhs);
+			case LOWER_OR_EQUAL -> new Bound(parameterIndex, false, rhs);
+			//an equality is not a bound
+			case EQUAL -> null;
 			default -> throw new IllegalArgumentException("Invalid operator: " + operator);
-		}
-		return true;
+		};
 	}
 
 	private static boolean isValidParameter(final String parameter){
@@ -74,6 +98,22 @@ public final class ConstraintExtractor{
 			&& Integer.parseInt(parameter.substring(1)) >= 0);
 	}
 
+	/**
+	 * Recognizes an equality constraint that is affine in the parameters, like {@code p0 + 2·p1 = 10}.
+	 *
+	 * @param expression	The constraint.
+	 * @param parameterCount	The number of parameters.
+	 * @return	The coefficients of the parameters followed by the constant term of {@code lhs - rhs}, or {@code null} if the constraint is not
+	 * 	an affine equality.
+	 */
+	static double[] parseAffineEquality(final String expression, final int parameterCount){
+		final String[] parts = PATTERN_SPLIT.splitWithDelimiters(expression, -1);
+		if(parts.length != 3 || !parts[1].trim().equals(EQUAL))
+			return null;
+
+		return AffineFormParser.parse(parts[0].trim() + MINUS + PARENTHESIS_OPEN + parts[2].trim() + PARENTHESIS_CLOSE, parameterCount);
+	}
+
 	static Constraint parseComplexConstraint(final String expression){
 		final String[] parts = PATTERN_SPLIT.splitWithDelimiters(expression, -1);
 		if(parts.length != 3)
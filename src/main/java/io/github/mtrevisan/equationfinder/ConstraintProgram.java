@@ -0,0 +1,192 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * The constraints of a problem, parsed and compiled once, to be bound to the parameters of each candidate expression.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+final class ConstraintProgram{
+
+	private static final Pattern PATTERN_PARAMETER = Pattern.compile("\\bp(\\d+)\\b");
+
+
+	/**
+	 * The constraints bound to a given number of parameters.
+	 *
+	 * @param lowerBounds	The lower bound of each parameter.
+	 * @param upperBounds	The upper bound of each parameter.
+	 * @param constraints	The constraints that are not simple bounds, equalities excluded.
+	 * @param equalities	The affine equalities, each as the coefficients of the parameters followed by the constant term.
+	 * @param equalityConstraints	The affine equalities, as constraints.
+	 */
+	record Binding(double[] lowerBounds, double[] upperBounds, List<Constraint> constraints, List<double[]> equalities,
+			List<Constraint> equalityConstraints){
+
+		/**
+		 * @return	All the constraints that are not simple bounds, equalities included.
+		 */
+		Constraint[] allConstraints(){
+			final List<Constraint> all = new ArrayList<>(constraints.size() + equalityConstraints.size());
+			all.addAll(constraints);
+			all.addAll(equalityConstraints);
+			return all.toArray(new Constraint[all.size()]);
+		}
+
+	}
+
+	private record CompiledConstraint(Constraint constraint, int parameterCount, double[] affineEquality){}
+
+
+	private final ConstraintExtractor.Bound[] bounds;
+	private final CompiledConstraint[] constraints;
+
+
+	/**
+	 * Parses and compiles the given constraints.
+	 *
+	 * @param constraints	The constraints, as in the {@code subject to} section of the problem.
+	 * @return	The constraint program.
+	 */
+	static ConstraintProgram compile(final String[] constraints){
+		final List<ConstraintExtractor.Bound> bounds = new ArrayList<>(0);
+		final List<CompiledConstraint> compiledConstraints = new ArrayList<>(0);
+		for(int i = 0, length = constraints.length; i < length; i ++){
+			final String constraintExpression = constraints[i];
+
+			final ConstraintExtractor.Bound bound = ConstraintExtractor.parseBound(constraintExpression);
+			if(bound != null){
+				bounds.add(bound);
+				continue;
+			}
+
+			final int parameterCount = referencedParameterCount(constraintExpression);
+			final Constraint constraint = ConstraintExtractor.parseComplexConstraint(constraintExpression);
+			final double[] affineEquality = ConstraintExtractor.parseAffineEquality(constraintExpression, parameterCount);
+			compiledConstraints.add(new CompiledConstraint(constraint, parameterCount, affineEquality));
+		}
+		return new ConstraintProgram(bounds.toArray(new ConstraintExtractor.Bound[bounds.size()]),
+			compiledConstraints.toArray(new CompiledConstraint[compiledConstraints.size()]));
+	}
+
+	//one more than the highest index of the parameters in the expression
+	private static int referencedParameterCount(final CharSequence expression){
+		int count = 0;
+		final Matcher matcher = PATTERN_PARAMETER.matcher(expression);
+		while(matcher.find())
+			count = Math.max(count, Integer.parseInt(matcher.group(1)) + 1);
+		return count;
+	}
+
+
+	private ConstraintProgram(final ConstraintExtractor.Bound[] bounds, final CompiledConstraint[] constraints){
+		this.bounds = bounds;
+		this.constraints = constraints;
+	}
+
+
+	/**
+	 * Binds the constraints to the parameters of an expression.
+	 *
+	 * @param parameterCount	The number of parameters of the expression.
+	 * @return	The bound constraints.
+	 * @throws IllegalArgumentException	If a bound or a constraint references a parameter the expression does not have.
+	 */
+	Binding bind(final int parameterCount){
+		return bind(parameterCount, true);
+	}
+
+	/**
+	 * Binds the constraints to the parameters of a candidate: the bounds and constraints referencing parameters the candidate does not
+	 * have are left out.
+	 *
+	 * @param parameterCount	The number of parameters of the candidate.
+	 * @return	The bound constraints.
+	 */
+	Binding bindAvailable(final int parameterCount){
+		return bind(parameterCount, false);
+	}
+
+	private Binding bind(final int parameterCount, final boolean strict){
+		final double[] lowerBounds = new double[parameterCount];
+		final double[] upperBounds = new double[parameterCount];
+		Arrays.fill(lowerBounds, Double.NEGATIVE_INFINITY);
+		Arrays.fill(upperBounds, Double.POSITIVE_INFINITY);
+		for(int i = 0, length = bounds.length; i < length; i ++){
+			final ConstraintExtractor.Bound bound = bounds[i];
+
+			final int index = bound.parameterIndex();
+			if(strict && index >= parameterCount)
+				throw new IllegalArgumentException("Bound references parameter p" + index + ", but the expression has " + parameterCount
+					+ " parameters");
+			if(index < parameterCount){
+				if(bound.lower())
+					lowerBounds[index] = bound.value();
+				else
+					upperBounds[index] = bound.value();
+			}
+		}
+
+		final List<Constraint> boundConstraints = new ArrayList<>(0);
+		final List<double[]> equalities = new ArrayList<>(0);
+		final List<Constraint> equalityConstraints = new ArrayList<>(0);
+		for(int i = 0, length = constraints.length; i < length; i ++){
+			final CompiledConstraint constraint = constraints[i];
+
+			if(constraint.parameterCount() > parameterCount){
+				if(strict)
+					throw new IllegalArgumentException("Constraint references parameter p" + (constraint.parameterCount() - 1)
+						+ ", but the expression has " + parameterCount + " parameters");
+
+				continue;
+			}
+
+			if(constraint.affineEquality() != null){
+				equalities.add(padEquality(constraint.affineEquality(), constraint.parameterCount(), parameterCount));
+				equalityConstraints.add(constraint.constraint());
+			}
+			else
+				boundConstraints.add(constraint.constraint());
+		}
+		return new Binding(lowerBounds, upperBounds, boundConstraints, equalities, equalityConstraints);
+	}
+
+	//extends the coefficients to the given number of parameters, keeping the constant term last
+	private static double[] padEquality(final double[] equality, final int equalityParameterCount, final int parameterCount){
+		final double[] padded = new double[parameterCount + 1];
+		System.arraycopy(equality, 0, padded, 0, equalityParameterCount);
+		padded[parameterCount] = equality[equalityParameterCount];
+		return padded;
+	}
+
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.DoubleBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+
+
+/**
+ * Loads the data table of a problem from an external file.
+ * <p>
+ * Supported formats are whitespace-separated text ({@value #FORMAT_TEXT}), {@value #FORMAT_CSV}, {@value #FORMAT_TSV} (all three possibly
+ * gzip-compressed), and the binary columnar format ({@value #FORMAT_BINARY}, see {@link ColumnarDataFile}).
+ * Binary files are memory-mapped and their columns read in place, without being copied into the heap.
+ * Loaded tables are cached by path and last modification time, so that many problems sharing the same data parse it once; every caller
+ * gets its own read-only view of the cached columns.
+ * </p>
+ */
+final class DataFileLoader{
+
+	static final String FORMAT_TEXT = "text";
+	static final String FORMAT_CSV = "csv";
+	static final String FORMAT_TSV = "tsv";
+	static final String FORMAT_BINARY = "binary";
+
+	private static final String EXTENSION_GZIP = ".gz";
+	private static final int GZIP_MAGIC = 0x8B1F;
+	private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
+
+	/**
+	 * A loaded table.
+	 *
+	 * @param columnNames	The names of the input columns, if the format carries them, {@code null} otherwise.
+	 * @param columns	The values of each input followed by the target values (read-only).
+	 */
+	record DataFile(String[] columnNames, DoubleBuffer[] columns){}
+
+	private record CacheEntry(FileTime lastModified, String format, DataFile data){}
+
+	private static final Map<Path, CacheEntry> CACHE = new ConcurrentHashMap<>(1);
+
+
+	private DataFileLoader(){}
+
+
+	/**
+	 * Loads a data file, or retrieves it from the cache if unchanged since last loaded.
+	 *
+	 * @param file	The file.
+	 * @param format	The format, or {@code null} to infer it from the extension of the file.
+	 * @return	The data.
+	 * @throws IOException	If an I/O error occurs.
+	 */
+	static DataFile load(final Path file, final String format) throws IOException{
+		final Path key = file.toAbsolutePath()
+			.normalize();
+		final FileTime lastModified = Files.getLastModifiedTime(key);
+		final String resolvedFormat = (format != null? format.toLowerCase(Locale.ROOT): inferFormat(key));
+		CacheEntry cached = CACHE.get(key);
+		if(cached == null || !cached.lastModified().equals(lastModified) || !cached.format().equals(resolvedFormat)){
+			cached = new CacheEntry(lastModified, resolvedFormat, read(key, resolvedFormat));
+			CACHE.put(key, cached);
+		}
+		return view(cached.data());
+	}
+
+	//the position and limit of a buffer are not shared, and the cached values must not be modified
+	private static DataFile view(final DataFile data){
+		final DoubleBuffer[] columns = data.columns();
+		final DoubleBuffer[] views = new DoubleBuffer[columns.length];
+		for(int j = 0, length = columns.length; j < length; j ++)
+			views[j] = columns[j].asReadOnlyBuffer();
+		final String[] columnNames = data.columnNames();
+		return new DataFile((columnNames != null? columnNames.clone(): null), views);
+	}
+
+	private static String inferFormat(final Path file) throws IOException{
+		String name = file.getFileName()
+			.toString()
+			.toLowerCase(Locale.ROOT);
+		if(name.endsWith(EXTENSION_GZIP))
+			name = name.substring(0, name.length() - EXTENSION_GZIP.length());
+
+		if(name.endsWith("." + FORMAT_CSV))
+			return FORMAT_CSV;
+		if(name.endsWith("." + FORMAT_TSV))
+			return FORMAT_TSV;
+		return (ColumnarDataFile.isColumnarDataFile(file)? FORMAT_BINARY: FORMAT_TEXT);
+	}
+
+	private static DataFile read(final Path file, final String format) throws IOException{
+		if(format.equals(FORMAT_BINARY)){
+			final ColumnarDataFile.ColumnarData data = ColumnarDataFile.read(file);
+			return new DataFile(data.inputNames(), data.columns());
+		}
+
+		final char delimiter = switch(format){
+			case FORMAT_CSV -> DataTableParser.COMMA;
+			case FORMAT_TSV -> DataTableParser.TAB;
+			case FORMAT_TEXT -> DataTableParser.WHITESPACE;
+			default -> throw new IllegalArgumentException("Unknown data file format: " + format);
+		};
+		try(final CharLineReader reader = new CharLineReader(new InputStreamReader(openText(file), StandardCharsets.UTF_8))){
+			return new DataFile(null, DataTableParser.readColumns(reader, delimiter));
+		}
+	}
+
+	//opens a text file, decompressing it if gzip-compressed
+	private static InputStream openText(final Path file) throws IOException{
+		final InputStream input = new BufferedInputStream(Files.newInputStream(file), GZIP_BUFFER_SIZE);
+		input.mark(2);
+		final int magic = input.read() | (input.read() << 8);
+		input.reset();
+		return (magic == GZIP_MAGIC? new GZIPInputStream(input, GZIP_BUFFER_SIZE): input);
+	}
+
+}
@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+
+
+/**
+ * Parses rows of numbers, in place, straight into a buffer per column.
+ */
+final class DataTableParser{
+
+	/** Values separated by any number of whitespaces. */
+	static final char WHITESPACE = ' ';
+	static final char COMMA = ',';
+	static final char TAB = '\t';
+
+
+	private DataTableParser(){}
+
+
+	/**
+	 * Reads all the remaining rows.
+	 *
+	 * @param reader	The reader.
+	 * @param delimiter	The delimiter between values (or {@link #WHITESPACE}).
+	 * @return	The values of each input followed by the target values.
+	 * @throws IOException	If an I/O error occurs.
+	 */
+	static DoubleBuffer[] readColumns(final CharLineReader reader, final char delimiter) throws IOException{
+		DoubleColumnBuffer[] columns = null;
+		while(reader.nextLine()){
+			if(reader.isLineEmpty() || reader.firstChar() == '#')
+				continue;
+			if(columns == null && !isNumberStart(reader.firstChar()))
+				//header
+				continue;
+
+			columns = parseRow(reader, columns, delimiter);
+		}
+		return toColumns(columns);
+	}
+
+	static boolean isNumberStart(final char chr){
+		return (chr >= '0' && chr <= '9' || chr == '-' || chr == '+' || chr == '.');
+	}
+
+	/**
+	 * Parses the current line of the reader.
+	 *
+	 * @param reader	The reader.
+	 * @param columns	The columns the values are added to, {@code null} for the first row.
+	 * @param delimiter	The delimiter between values (or {@link #WHITESPACE}).
+	 * @return	The columns.
+	 * @throws IllegalArgumentException	If the number of values differs from the number of columns, or a value is missing or is not a
+	 * 	number.
+	 */
+	static DoubleColumnBuffer[] parseRow(final CharLineReader reader, DoubleColumnBuffer[] columns, final char delimiter){
+		final char[] buffer = reader.buffer();
+		final int end = reader.lineEnd();
+		if(columns == null){
+			//the first row sets the number of columns
+			columns = new DoubleColumnBuffer[countTokens(buffer, reader.lineStart(), end, delimiter)];
+			for(int i = 0, length = columns.length; i < length; i ++)
+				columns[i] = new DoubleColumnBuffer();
+		}
+
+		int column = 0;
+		int index = reader.lineStart();
+		while(index < end){
+			final int tokenStart = index;
+			while(index < end && !isSeparator(buffer[index], delimiter))
+				index ++;
+			int tokenEnd = index;
+			while(tokenEnd > tokenStart && buffer[tokenEnd - 1] <= ' ')
+				tokenEnd --;
+			if(column == columns.length)
+				throw new IllegalArgumentException("Too many values at line " + reader.lineNumber());
+
+			columns[column].add(parseValue(reader, tokenStart, tokenEnd, column));
+			column ++;
+			index = skipSeparator(buffer, index, end, delimiter);
+		}
+		if(endsWithDelimiter(buffer, reader.lineStart(), end, delimiter)){
+			if(column == columns.length)
+				throw new IllegalArgumentException("Too many values at line " + reader.lineNumber());
+
+			//the value after the last delimiter is empty
+			parseValue(reader, end, end, column);
+		}
+		if(column != columns.length)
+			throw new IllegalArgumentException("Too few values at line " + reader.lineNumber());
+		return columns;
+	}
+
+	/**
+	 * Parses the current line of the reader into a row of a known number of values.
+	 *
+	 * @param reader	The reader.
+	 * @param row	The row the values are stored into.
+	 * @param delimiter	The delimiter between values (or {@link #WHITESPACE}).
+	 * @throws IllegalArgumentException	If the number of values differs from the length of the row, or a value is missing or is not a
+	 * 	number.
+	 */
+	static void parseRow(final CharLineReader reader, final double[] row, final char delimiter){
+		final char[] buffer = reader.buffer();
+		final int end = reader.lineEnd();
+		int column = 0;
+		int index = reader.lineStart();
+		while(index < end){
+			final int tokenStart = index;
+			while(index < end && !isSeparator(buffer[index], delimiter))
+				index ++;
+			int tokenEnd = index;
+			while(tokenEnd > tokenStart && buffer[tokenEnd - 1] <= ' ')
+				tokenEnd --;
+			if(column == row.length)
+				throw new IllegalArgumentException("Too many values at line " + reader.lineNumber());
+
+			row[column] = parseValue(reader, tokenStart, tokenEnd, column);
+			column ++;
+			index = skipSeparator(buffer, index, end, delimiter);
+		}
+		if(endsWithDelimiter(buffer, reader.lineStart(), end, delimiter)){
+			if(column == row.length)
+				throw new IllegalArgumentException("Too many values at line " + reader.lineNumber());
+
+			//the value after the last delimiter is empty
+			parseValue(reader, end, end, column);
+		}
+		if(column != row.length)
+			throw new IllegalArgumentException("Too few values at line " + reader.lineNumber());
+	}
+
+	private static double parseValue(final CharLineReader reader, final int start, final int end, final int column){
+		if(start == end)
+			throw new IllegalArgumentException("Missing value in column " + (column + 1) + " at line " + reader.lineNumber());
+
+		try{
+			return FastDoubleParser.parse(reader.buffer(), start, end);
+		}
+		catch(final NumberFormatException nfe){
+			throw new IllegalArgumentException("Invalid value `" + new String(reader.buffer(), start, end - start) + "` in column "
+				+ (column + 1) + " at line " + reader.lineNumber(), nfe);
+		}
+	}
+
+	private static boolean endsWithDelimiter(final char[] buffer, final int start, final int end, final char delimiter){
+		return (delimiter != WHITESPACE && end > start && buffer[end - 1] == delimiter);
+	}
+
+	private static boolean isSeparator(final char chr, final char delimiter){
+		return (delimiter == WHITESPACE? chr <= ' ': chr == delimiter);
+	}
+
+	//skip the separator, along with the spaces around it
+	private static int skipSeparator(final char[] buffer, int index, final int end, final char delimiter){
+		if(delimiter != WHITESPACE && index < end)
+			index ++;
+		while(index < end && buffer[index] <= ' ' && (delimiter == WHITESPACE || buffer[index] != delimiter))
+			index ++;
+		return index;
+	}
+
+	private static int countTokens(final char[] buffer, final int start, final int end, final char delimiter){
+		if(delimiter != WHITESPACE){
+			int count = 1;
+			for(int i = start; i < end; i ++)
+				if(buffer[i] == delimiter)
+					count ++;
+			return count;
+		}
+
+		int count = 0;
+		boolean inToken = false;
+		for(int i = start; i < end; i ++){
+			final boolean separator = (buffer[i] <= ' ');
+			if(!separator && !inToken)
+				count ++;
+			inToken = !separator;
+		}
+		return count;
+	}
+
+	/**
+	 * @param columns	The parsed columns, or {@code null} if there were no rows.
+	 * @return	The columns, each wrapping its array of values.
+	 */
+	static DoubleBuffer[] toColumns(final DoubleColumnBuffer[] columns){
+		if(columns == null)
+			return new DoubleBuffer[0];
+
+		final DoubleBuffer[] buffers = new DoubleBuffer[columns.length];
+		for(int j = 0, length = columns.length; j < length; j ++)
+			buffers[j] = DoubleBuffer.wrap(columns[j].toArray());
+		return buffers;
+	}
+
+}
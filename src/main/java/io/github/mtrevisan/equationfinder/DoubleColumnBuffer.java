@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import java.util.Arrays;
+
+
+/**
+ * A growable array of primitive doubles.
+ */
+final class DoubleColumnBuffer{
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+
+	private double[] values = new double[INITIAL_CAPACITY];
+	private int size;
+
+
+	void add(final double value){
+		if(size == values.length)
+			values = Arrays.copyOf(values, size + (size >> 1));
+		values[size ++] = value;
+	}
+
+	double get(final int index){
+		return values[index];
+	}
+
+	int size(){
+		return size;
+	}
+
+	/**
+	 * @return	The values, in an array of the exact size.
+	 */
+	double[] toArray(){
+		return (values.length == size? values: Arrays.copyOf(values, size));
+	}
+
+}
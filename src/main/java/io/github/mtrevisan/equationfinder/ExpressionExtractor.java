@@ -27,6 +27,7 @@ package io.github.mtrevisan.equationfinder;
 import org.apache.commons.jexl3.JexlBuilder;
 import org.apache.commons.jexl3.JexlContext;
 import org.apache.commons.jexl3.JexlEngine;
+import org.apache.commons.jexl3.JexlException;
 import org.apache.commons.jexl3.JexlExpression;
 import org.apache.commons.jexl3.JexlScript;
 import org.apache.commons.jexl3.MapContext;
@@ -95,6 +96,13 @@ public final class ExpressionExtractor{
 		//FIXME to put to true
 		.silent(false)
 		.create();
+	//domain errors evaluate to NaN instead of throwing an exception
+	private static final JexlEngine JEXL_ENGINE_NAN_PROPAGATING = new JexlBuilder()
+		.cache(512)
+		.strict(true)
+		.silent(false)
+		.arithmetic(new NaNPropagatingArithmetic(true))
+		.create();
 
 
 	private ExpressionExtractor(){}
@@ -104,9 +112,11 @@ public final class ExpressionExtractor{
 	static ParameterConstraintFunction parseParameterConstraintExpression(final String expression){
 		final String updatedExpression = cleanExpression(expression);
 		final JexlExpression jexlExpression = JEXL_ENGINE.createExpression(updatedExpression);
-		final JexlContext context = createJexlContext();
+		//the expression is thread-safe, the context is not (the constraint may be evaluated on several threads at once)
+		final ThreadLocal<JexlContext> contexts = ThreadLocal.withInitial(ExpressionExtractor::createJexlContext);
 
 		return (params) -> {
+			final JexlContext context = contexts.get();
 			setContextParameters(context, params);
 			return ((Number)jexlExpression.evaluate(context))
 				.doubleValue();
@@ -114,15 +124,46 @@ public final class ExpressionExtractor{
 	}
 
 	static ModelFunction parseExpression(final String expression, final String[] dataInput){
+		return parseExpression(expression, dataInput, false);
+	}
+
+	/**
+	 * Parses the expression of a model.
+	 *
+	 * @param expression	The expression.
+	 * @param dataInput	The names of the inputs.
+	 * @param propagateNaN	Whether a domain error (like a division by zero, a failing function call, or an expression that evaluates to
+	 * 	nothing) should make the model evaluate to NaN instead of throwing an exception.
+	 * @return	The model.
+	 */
+	static ModelFunction parseExpression(final String expression, final String[] dataInput, final boolean propagateNaN){
 		final String updatedExpression = cleanExpression(expression);
-		final JexlExpression jexlExpression = JEXL_ENGINE.createExpression(updatedExpression);
-		final JexlContext context = createJexlContext();
+		final JexlExpression jexlExpression = (propagateNaN? JEXL_ENGINE_NAN_PROPAGATING: JEXL_ENGINE)
+			.createExpression(updatedExpression);
+		//the expression is thread-safe, the context is not (the model may be evaluated on several threads at once)
+		final ThreadLocal<JexlContext> contexts = ThreadLocal.withInitial(ExpressionExtractor::createJexlContext);
+
+		if(!propagateNaN)
+			return (params, inputs) -> {
+				final JexlContext context = contexts.get();
+				setContextParameters(context, params);
+				setContextInputs(context, dataInput, inputs);
+				return ((Number)jexlExpression.evaluate(context))
+					.doubleValue();
+			};
 
 		return (params, inputs) -> {
+			final JexlContext context = contexts.get();
 			setContextParameters(context, params);
 			setContextInputs(context, dataInput, inputs);
-			return ((Number)jexlExpression.evaluate(context))
-				.doubleValue();
+			try{
+				final Object result = jexlExpression.evaluate(context);
+				return (result instanceof final Number number? number.doubleValue(): Double.NaN);
+			}
+			catch(final JexlException | ArithmeticException ignored){
+				//the arithmetic catches only the operators, a function (like `floorDiv` or `clamp`) fails inside the method call
+				return Double.NaN;
+			}
 		};
 	}
 
@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+
+/**
+ * Parses decimal numbers straight from a character buffer, without allocating.
+ * <p>
+ * Numbers with at most 15 significant digits and a small decimal exponent (the vast majority of the numbers in a data table) are converted
+ * exactly with a single multiplication or division by a power of ten (Clinger's fast path); every other number is delegated to
+ * {@link Double#parseDouble(String)}, so the result is always correctly rounded.
+ * </p>
+ *
+ * @see <a href="https://doi.org/10.1145/93548.93557">Clinger, W. D. - How to read floating point numbers accurately. 1990.</a>
+ */
+final class FastDoubleParser{
+
+	//largest number of significant digits whose value is exactly representable as a double
+	private static final int MAX_EXACT_DIGITS = 15;
+	private static final double[] POWERS_OF_TEN = {
+		1.e0, 1.e1, 1.e2, 1.e3, 1.e4, 1.e5, 1.e6, 1.e7, 1.e8, 1.e9, 1.e10, 1.e11,
+		1.e12, 1.e13, 1.e14, 1.e15, 1.e16, 1.e17, 1.e18, 1.e19, 1.e20, 1.e21, 1.e22
+	};
+	//limit of the exponent to avoid overflowing it while parsing
+	private static final int MAX_EXPONENT_DIGITS_VALUE = 100_000;
+
+
+	private FastDoubleParser(){}
+
+
+	/**
+	 * Parses a number.
+	 *
+	 * @param buffer	The buffer.
+	 * @param start	The index of the first character of the number.
+	 * @param end	The index after the last character of the number.
+	 * @return	The number.
+	 * @throws NumberFormatException	If the characters are not a number.
+	 */
+	static double parse(final char[] buffer, final int start, final int end){
+		int index = start;
+		boolean negative = false;
+		if(index < end && (buffer[index] == '-' || buffer[index] == '+')){
+			negative = (buffer[index] == '-');
+			index ++;
+		}
+
+		long mantissa = 0l;
+		int significantDigits = 0;
+		int digits = 0;
+		int decimalExponent = 0;
+		while(index < end && isDigit(buffer[index])){
+			significantDigits = accumulate(significantDigits, mantissa, buffer[index]);
+			if(significantDigits <= MAX_EXACT_DIGITS)
+				mantissa = mantissa * 10 + (buffer[index] - '0');
+			else
+				decimalExponent ++;
+			digits ++;
+			index ++;
+		}
+		if(index < end && buffer[index] == '.'){
+			index ++;
+			while(index < end && isDigit(buffer[index])){
+				significantDigits = accumulate(significantDigits, mantissa, buffer[index]);
+				if(significantDigits <= MAX_EXACT_DIGITS){
+					mantissa = mantissa * 10 + (buffer[index] - '0');
+					decimalExponent --;
+				}
+				digits ++;
+				index ++;
+			}
+		}
+		if(digits == 0)
+			//NaN, Infinity, or not a number at all
+			return slowParse(buffer, start, end);
+
+		if(index < end && (buffer[index] == 'e' || buffer[index] == 'E')){
+			index ++;
+			boolean negativeExponent = false;
+			if(index < end && (buffer[index] == '-' || buffer[index] == '+')){
+				negativeExponent = (buffer[index] == '-');
+				index ++;
+			}
+			if(index == end || !isDigit(buffer[index]))
+				return slowParse(buffer, start, end);
+
+			int exponent = 0;
+			while(index < end && isDigit(buffer[index])){
+				if(exponent < MAX_EXPONENT_DIGITS_VALUE)
+					exponent = exponent * 10 + (buffer[index] - '0');
+				index ++;
+			}
+			decimalExponent += (negativeExponent? -exponent: exponent);
+		}
+		if(index != end)
+			return slowParse(buffer, start, end);
+
+		if(significantDigits > MAX_EXACT_DIGITS || decimalExponent < -22 || decimalExponent > 22)
+			return slowParse(buffer, start, end);
+
+		//both the mantissa and the power of ten are exact, so is the single rounding of the operation
+		double value = mantissa;
+		if(decimalExponent < 0)
+			value /= POWERS_OF_TEN[-decimalExponent];
+		else
+			value *= POWERS_OF_TEN[decimalExponent];
+		return (negative? -value: value);
+	}
+
+	//leading zeros are not significant
+	private static int accumulate(final int significantDigits, final long mantissa, final char digit){
+		return (significantDigits == 0 && mantissa == 0l && digit == '0'? 0: significantDigits + 1);
+	}
+
+	private static boolean isDigit(final char chr){
+		return (chr >= '0' && chr <= '9');
+	}
+
+	private static double slowParse(final char[] buffer, final int start, final int end){
+		return Double.parseDouble(new String(buffer, start, end - start));
+	}
+
+}
@@ -24,8 +24,14 @@
  */
 package io.github.mtrevisan.equationfinder;
 
+import io.github.mtrevisan.equationfinder.genetics.KarvaDomainAnalyzer;
 import io.github.mtrevisan.equationfinder.genetics.KarvaExpression;
-import io.github.mtrevisan.equationfinder.genetics.KarvaToInfixConverter;
+import io.github.mtrevisan.equationfinder.genetics.NormalizedExpression;
+import io.github.mtrevisan.equationfinder.genetics.OperatorSet;
+import io.github.mtrevisan.equationfinder.objectives.Coreset;
+import io.github.mtrevisan.equationfinder.objectives.DatasetContext;
+import io.github.mtrevisan.equationfinder.objectives.FusedObjective;
+import io.github.mtrevisan.equationfinder.objectives.ObjectiveLinearScaling;
 import io.github.mtrevisan.equationfinder.objectives.ObjectiveMA;
 import io.github.mtrevisan.equationfinder.objectives.ObjectiveMAR;
 import io.github.mtrevisan.equationfinder.objectives.ObjectiveMax;
@@ -33,6 +39,7 @@ import io.github.mtrevisan.equationfinder.objectives.ObjectiveMaxR;
 import io.github.mtrevisan.equationfinder.objectives.ObjectiveMedA;
 import io.github.mtrevisan.equationfinder.objectives.ObjectiveNSE;
 import io.github.mtrevisan.equationfinder.objectives.ObjectivePenalty;
+import io.github.mtrevisan.equationfinder.objectives.ObjectiveQuantileA;
 import io.github.mtrevisan.equationfinder.objectives.ObjectiveRMSL;
 import io.github.mtrevisan.equationfinder.objectives.ObjectiveRSS;
 import org.apache.commons.math3.analysis.MultivariateFunction;
@@ -56,6 +63,7 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.function.BiFunction;
+import java.util.stream.Collectors;
 
 
 //https://www.dtreg.com/methodology/view/gene-expression-programming
@@ -63,16 +71,18 @@ import java.util.function.BiFunction;
 //https://github.com/ShuhuaGao/geppy
 public class GeneticAlgorithm{
 
-	private static final Map<String, BiFunction<ModelFunction, double[][], MultivariateFunction>> OBJECTIVE_FUNCTIONS = new HashMap<>(8);
+	private static final Map<String, BiFunction<ModelFunction, DatasetContext, FusedObjective>> OBJECTIVE_FUNCTIONS = new HashMap<>(10);
 	static{
-		OBJECTIVE_FUNCTIONS.put(ObjectiveMA.OBJECTIVE_MEAN_ABSOLUTE_ERROR, (function, dataTable) -> new ObjectiveMA(function, dataTable));
-		OBJECTIVE_FUNCTIONS.put(ObjectiveMAR.OBJECTIVE_MEAN_ABSOLUTE_RELATIVE_ERROR, (function, dataTable) -> new ObjectiveMAR(function, dataTable));
-		OBJECTIVE_FUNCTIONS.put(ObjectiveMax.OBJECTIVE_MAXIMUM_ERROR, (function, dataTable) -> new ObjectiveMax(function, dataTable));
-		OBJECTIVE_FUNCTIONS.put(ObjectiveMaxR.OBJECTIVE_MAXIMUM_RELATIVE_ERROR, (function, dataTable) -> new ObjectiveMaxR(function, dataTable));
-		OBJECTIVE_FUNCTIONS.put(ObjectiveMedA.OBJECTIVE_MEDIANT_ABSOLUTE_ERROR, (function, dataTable) -> new ObjectiveMedA(function, dataTable));
-		OBJECTIVE_FUNCTIONS.put(ObjectiveNSE.OBJECTIVE_NASH_SUTCLIFFE_EFFICIENCY, (function, dataTable) -> new ObjectiveNSE(function, dataTable));
-		OBJECTIVE_FUNCTIONS.put(ObjectiveRMSL.OBJECTIVE_ROOT_MEAN_SQUARED_LOG_ERROR, (function, dataTable) -> new ObjectiveRMSL(function, dataTable));
-		OBJECTIVE_FUNCTIONS.put(ObjectiveRSS.OBJECTIVE_RESIDUAL_SUM_OF_SQUARES_ERROR, (function, dataTable) -> new ObjectiveRSS(function, dataTable));
+		OBJECTIVE_FUNCTIONS.put(ObjectiveMA.OBJECTIVE_MEAN_ABSOLUTE_ERROR, (function, dataset) -> new ObjectiveMA(function, dataset));
+		OBJECTIVE_FUNCTIONS.put(ObjectiveMAR.OBJECTIVE_MEAN_ABSOLUTE_RELATIVE_ERROR, (function, dataset) -> new ObjectiveMAR(function, dataset));
+		OBJECTIVE_FUNCTIONS.put(ObjectiveMax.OBJECTIVE_MAXIMUM_ERROR, (function, dataset) -> new ObjectiveMax(function, dataset));
+		OBJECTIVE_FUNCTIONS.put(ObjectiveMaxR.OBJECTIVE_MAXIMUM_RELATIVE_ERROR, (function, dataset) -> new ObjectiveMaxR(function, dataset));
+		OBJECTIVE_FUNCTIONS.put(ObjectiveMedA.OBJECTIVE_MEDIANT_ABSOLUTE_ERROR, (function, dataset) -> new ObjectiveMedA(function, dataset));
+		OBJECTIVE_FUNCTIONS.put(ObjectiveNSE.OBJECTIVE_NASH_SUTCLIFFE_EFFICIENCY, (function, dataset) -> new ObjectiveNSE(function, dataset));
+		OBJECTIVE_FUNCTIONS.put(ObjectiveQuantileA.OBJECTIVE_90TH_PERCENTILE_ABSOLUTE_ERROR, (function, dataset) -> new ObjectiveQuantileA(function, dataset, 0.90));
+		OBJECTIVE_FUNCTIONS.put(ObjectiveQuantileA.OBJECTIVE_95TH_PERCENTILE_ABSOLUTE_ERROR, (function, dataset) -> new ObjectiveQuantileA(function, dataset, 0.95));
+		OBJECTIVE_FUNCTIONS.put(ObjectiveRMSL.OBJECTIVE_ROOT_MEAN_SQUARED_LOG_ERROR, (function, dataset) -> new ObjectiveRMSL(function, dataset));
+		OBJECTIVE_FUNCTIONS.put(ObjectiveRSS.OBJECTIVE_RESIDUAL_SUM_OF_SQUARES_ERROR, (function, dataset) -> new ObjectiveRSS(function, dataset));
 	}
 
 
@@ -85,8 +95,28 @@ public class GeneticAlgorithm{
 	private static final double ONE_POINT_RECOMBINATION_PROBABILITY = 0.3;
 	private static final double TWO_POINT_RECOMBINATION_PROBABILITY = 0.3;
 
+	//linear-scaling screening: number of candidates per generation that go on to the full optimization
+	private static final int SCREENING_TOP_K = 10_000;
+
+	//number of best candidates whose fitness sets the cutoff above which the objective of the next generation can stop scanning the data
+	private static final int HALL_OF_FAME_SIZE = 100;
+
+	//successive-halving racing: minimum number of rows a candidate is first fitted on
+	private static final int RACING_MIN_ROWS = 64;
+	//successive-halving racing: maximum number of halving rounds before the full-data fit
+	private static final int RACING_MAX_ROUNDS = 6;
+	//successive-halving racing: fraction of candidates moving on to the next round
+	private static final double RACING_SURVIVAL_RATIO = 0.5;
+
 	private static final Random RANDOM = new Random(System.currentTimeMillis());
 
+	//number of candidates rejected in the current generation because their model is undefined on the data (e.g. a division by zero)
+	private static int invalidCandidates;
+	//number of candidates discarded in the current generation because their model is proved undefined or constant over the data
+	private static int prunedCandidates;
+	//number of candidates that made it into an optimization problem, during the last call to `generateOptimizationProblems`
+	private static int acceptedCandidates;
+
 
 	public static void main(final String[] args) throws IOException{
 		final String problemDataURI = "C:\\mauro\\mine\\projects\\EquationFinder\\src\\main\\resources\\test.txt";
@@ -95,30 +125,54 @@ public class GeneticAlgorithm{
 
 		final SearchMode searchMode = problemData.searchMode();
 //		final String expression = problemData.expression();
-		final String[] constraints = problemData.constraints();
 		final String[] dataInput = problemData.dataInput();
-		final double[][] dataTable = problemData.dataTable();
 		final String searchMetric = problemData.searchMetric();
+		final OperatorSet operators = problemData.operators();
+		final DatasetContext fullDataset = problemData.createDataset();
+		if(fullDataset.rowCount() < problemData.rowCount())
+			System.out.println("aggregated rows: " + problemData.rowCount() + " -> " + fullDataset.rowCount());
+		//the bulk of the search runs on the coreset, if any, only the hall of fame is refit on the whole data
+		final DatasetContext dataset = (problemData.coreset() != null
+			? Coreset.build(fullDataset, problemData.coreset(), RANDOM)
+			: fullDataset);
+		if(dataset != fullDataset)
+			System.out.println("coreset rows: " + fullDataset.rowCount() + " -> " + dataset.rowCount()
+				+ ", discrepancy: " + Coreset.discrepancy(dataset, fullDataset));
+		final ConstraintProgram constraintProgram = ConstraintProgram.compile(problemData.constraints());
+		//each generation is evaluated on a mini-batch of the rows, if requested, only the best solution is measured on all of them
+		final MiniBatchSchedule miniBatchSchedule = (problemData.miniBatch() != null
+			? MiniBatchSchedule.parse(problemData.miniBatch())
+			: null);
 
 
 		//initialize population
 		final int maxDepth = 5;
-		final List<KarvaExpression> population = generateInitialPopulation(POPULATION_SIZE, maxDepth, dataInput);
+		final List<KarvaExpression> population = generateInitialPopulation(POPULATION_SIZE, maxDepth, operators, dataInput);
 
 		//initialize problem
-		final Map<String, OptimizationProblem> optimizationProblems = generateOptimizationProblems(problemData, population);
+		final Map<String, OptimizationProblem> optimizationProblems = generateOptimizationProblems(problemData, constraintProgram, dataset,
+			fullDataset, population);
 
 		//evaluate population
-		Map<OptimizationProblem, Double> fitnessScore = evaluate(optimizationProblems.values());
+		DatasetContext batch = drawBatch(miniBatchSchedule, dataset, 0);
+		Map<OptimizationProblem, Double> fitnessScore = evaluateWithRacing(screen(optimizationProblems.values(), batch), problemData,
+			batch, Double.POSITIVE_INFINITY, batch != dataset);
 
 		//get best solution
 		Map.Entry<OptimizationProblem, Double> bestSolution = getBestSolution(fitnessScore);
+		if(batch != dataset)
+			bestSolution = measureOnDataset(bestSolution, problemData, fullDataset);
 		System.out.println("best solution: " + bestSolution.getKey().expression
 			+ ", params: " + Arrays.toString(bestSolution.getKey().bestParameters)
-			+ ", fitness: "+ bestSolution.getValue());
+			+ ", fitness: "+ bestSolution.getValue()
+			+ ", invalid candidates: " + invalidCandidates
+			+ ", pruned candidates: " + prunedCandidates);
 
 		//apply genetic algorithm:
 		for(int generation = 0; bestSolution.getValue() >= 1.e-6 && generation < MAX_GENERATIONS; generation ++){
+			invalidCandidates = 0;
+			prunedCandidates = 0;
+
 			//select parents:
 			final int tournamentSize = (int)Math.max(optimizationProblems.size() * MATING_RATIO, 1);
 			final Map<String, OptimizationProblem> parents = tournamentSelection(optimizationProblems, tournamentSize);
@@ -129,7 +183,7 @@ public class GeneticAlgorithm{
 				final OptimizationProblem parent = parents.get(i);
 				final KarvaExpression gene = parent.karvaExpressions.get(RANDOM.nextInt(parent.karvaExpressions.size()));
 				if(RANDOM.nextDouble() < MUTATION_PROBABILITY){
-					final KarvaExpression mutant = mutate(gene, dataInput);
+					final KarvaExpression mutant = mutate(gene, operators, dataInput);
 					newOffsprings.add(mutant);
 				}
 				else if(RANDOM.nextDouble() < INVERSION_PROBABILITY){
@@ -166,122 +220,369 @@ public class GeneticAlgorithm{
 			}
 
 			//evaluate children population
-			fitnessScore = evaluate(parents.values());
+			batch = drawBatch(miniBatchSchedule, dataset, generation + 1);
+			//the fitness of the previous generation was measured on another batch, and is not comparable
+			final double hallOfFameCutoff = (batch != dataset
+				? calculateHallOfFameCutoff(fitnessScore, problemData, batch)
+				: calculateHallOfFameCutoff(fitnessScore));
+			fitnessScore = evaluateWithRacing(screen(parents.values(), batch), problemData, batch, hallOfFameCutoff, batch != dataset);
 
 			//get best solution
 			bestSolution = getBestSolution(fitnessScore);
+			if(batch != dataset)
+				bestSolution = measureOnDataset(bestSolution, problemData, fullDataset);
 			System.out.println("best solution: " + bestSolution.getKey().expression
 				+ ", params: " + Arrays.toString(bestSolution.getKey().bestParameters)
-				+ ", fitness: "+ bestSolution.getValue());
+				+ ", fitness: "+ bestSolution.getValue()
+				+ ", invalid candidates: " + invalidCandidates);
 
 			//update population:
 			optimizationProblems.clear();
 			optimizationProblems.putAll(parents);
-			optimizationProblems.putAll(generateOptimizationProblems(problemData, newOffsprings));
+			optimizationProblems.putAll(generateOptimizationProblems(problemData, constraintProgram, dataset, fullDataset,
+				newOffsprings));
+			//the offsprings are pruned while generating their optimization problems
+			System.out.println("valid offspring rate: " + (newOffsprings.isEmpty()? 0.: (double)acceptedCandidates / newOffsprings.size())
+				+ ", pruned candidates: " + prunedCandidates);
+		}
+
+		if(dataset != fullDataset){
+			fitnessScore = refitHallOfFame(fitnessScore, problemData, fullDataset);
+
+			bestSolution = getBestSolution(fitnessScore);
+			if(bestSolution != null)
+				System.out.println("best solution on the whole data: " + bestSolution.getKey().expression
+					+ ", params: " + Arrays.toString(bestSolution.getKey().bestParameters)
+					+ ", fitness: "+ bestSolution.getValue());
 		}
 
 		//return bestSolution
 	}
 
 	private static Map<String, OptimizationProblem> generateOptimizationProblems(final ProblemData problemData,
+			final ConstraintProgram constraintProgram, final DatasetContext dataset, final DatasetContext fullDataset,
 			final List<KarvaExpression> population){
 		final SearchMode searchMode = problemData.searchMode();
 //		final String expression = problemData.expression();
-		final String[] constraints = problemData.constraints();
 		final String[] dataInput = problemData.dataInput();
-		final double[][] dataTable = problemData.dataTable();
 		final String searchMetric = problemData.searchMetric();
 
 		final int populationSize = population.size();
 		final Map<String, OptimizationProblem> optimizationProblems = new HashMap<>(1);
+		acceptedCandidates = 0;
 		for(int i = 0; i < populationSize; i ++){
 			final KarvaExpression karvaExpression = population.get(i);
 
-			final String expression = KarvaToInfixConverter.convertToEquation(karvaExpression);
+			//compact the parameters and collapse the redundant ones, so that equivalent genes share the same expression
+			final NormalizedExpression normalizedExpression = NormalizedExpression.create(karvaExpression, dataInput);
+			final String expression = normalizedExpression.expression();
 //			System.out.println("Karva expression " + karvaExpression + ": " + expression);
+			if(expression.isEmpty())
+				continue;
 
 
 			//subdivide into equivalence classes:
 			final OptimizationProblem existingProblem = optimizationProblems.get(expression);
-			if(existingProblem != null)
+			if(existingProblem != null){
 				existingProblem.addKarvaExpression(karvaExpression);
+				acceptedCandidates ++;
+			}
 			else{
-				final ModelFunction function = ExpressionExtractor.parseExpression(expression, dataInput);
-				final MultivariateFunction objective = OBJECTIVE_FUNCTIONS.get(searchMetric)
-					.apply(function, dataTable);
-
-				final List<String> parameters = ExpressionExtractor.extractVariables(expression);
-				final int parameterCount = getParameterCount(parameters, dataInput);
+				final int parameterCount = normalizedExpression.parameterCount();
 				if(parameterCount < 2)
 					//TODO manage
 					continue;
 
 //				System.out.println("valid expression: " + expression);
 
-				final double[] lowerBounds = createInitialLowerBounds(parameterCount);
-				final double[] upperBounds = createInitialUpperBounds(parameterCount);
-				final Constraint[] complexConstraints = createComplexConstraints(constraints, lowerBounds, upperBounds);
-				final MultivariateFunction objectiveFunction = new ObjectivePenalty(objective, complexConstraints, searchMode,
-					function, dataTable);
+				final ConstraintProgram.Binding binding = constraintProgram.bindAvailable(parameterCount);
+				final double[] lowerBounds = binding.lowerBounds();
+				final double[] upperBounds = binding.upperBounds();
+				final Constraint[] complexConstraints = binding.allConstraints();
+
+				//discard the expressions that are provably undefined or constant over the data, without evaluating them (the range
+				// is the one of the whole data, since a coreset may miss the rows where the expression is undefined)
+				final KarvaDomainAnalyzer.Domain domain = KarvaDomainAnalyzer.analyze(normalizedExpression, dataInput,
+					fullDataset.inputMinimum(), fullDataset.inputMaximum(), lowerBounds, upperBounds);
+				if(domain != KarvaDomainAnalyzer.Domain.DEFINED){
+					prunedCandidates ++;
+					continue;
+				}
+
+				final ModelFunction function = ExpressionExtractor.parseExpression(expression, dataInput, true);
+				final ObjectivePenalty objectiveFunction = createObjectiveFunction(searchMetric, searchMode, function, complexConstraints,
+					dataset);
 
 				final double[] initialGuess = new double[parameterCount];
 				Arrays.fill(initialGuess, 1.);
 
 				final SimpleBounds bounds = new SimpleBounds(lowerBounds, upperBounds);
-				final OptimizationProblem optimizationProblem = new OptimizationProblem(karvaExpression, expression, objectiveFunction, bounds,
-					initialGuess, 10_000);
+				final OptimizationProblem optimizationProblem = new OptimizationProblem(karvaExpression, expression, function,
+					complexConstraints, objectiveFunction, bounds, initialGuess, 10_000, problemData.operators().cost(karvaExpression));
 				optimizationProblems.put(expression, optimizationProblem);
+				acceptedCandidates ++;
 			}
 		}
 		return optimizationProblems;
 	}
 
-	private static Map<OptimizationProblem, Double> evaluate(final Iterable<OptimizationProblem> optimizationProblems){
+	private static DatasetContext drawBatch(final MiniBatchSchedule miniBatchSchedule, final DatasetContext dataset,
+			final int generation){
+		return (miniBatchSchedule != null
+			? miniBatchSchedule.draw(dataset, generation, RANDOM)
+			: dataset);
+	}
+
+	private static ObjectivePenalty createObjectiveFunction(final String searchMetric, final SearchMode searchMode,
+			final ModelFunction function, final Constraint[] complexConstraints, final DatasetContext dataset){
+		final FusedObjective objective = OBJECTIVE_FUNCTIONS.get(searchMetric)
+			.apply(function, dataset);
+		return new ObjectivePenalty(objective, complexConstraints, searchMode);
+	}
+
+	/**
+	 * Ranks the given problems by the error of the best linear scaling {@code a + b·f(x)} of their expression, with the parameters fixed at
+	 * the initial guess, and retains only the best {@link #SCREENING_TOP_K}.
+	 * <p>
+	 * This costs a single pass over the data table for each candidate, instead of a full optimization.
+	 * </p>
+	 *
+	 * @param optimizationProblems	The problems to be screened.
+	 * @param dataset	The dataset context.
+	 * @return	The problems worth a full optimization.
+	 */
+	private static Collection<OptimizationProblem> screen(final Collection<OptimizationProblem> optimizationProblems,
+			final DatasetContext dataset){
+		if(optimizationProblems.size() <= SCREENING_TOP_K)
+			return optimizationProblems;
+
+		final Map<OptimizationProblem, Double> screeningScore = new HashMap<>(optimizationProblems.size());
+		for(final OptimizationProblem optimizationProblem : optimizationProblems){
+			try{
+				final MultivariateFunction screening = new ObjectiveLinearScaling(optimizationProblem.function, dataset);
+				final double error = screening.value(optimizationProblem.initialGuess);
+				if(Double.isFinite(error))
+					screeningScore.put(optimizationProblem, error);
+				else
+					invalidCandidates ++;
+			}
+			catch(final Exception ignored){}
+		}
+
+		return screeningScore.entrySet()
+			.stream()
+			.sorted(Map.Entry.comparingByValue())
+			.limit(SCREENING_TOP_K)
+			.map(Map.Entry::getKey)
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * Evaluates the given problems through successive halving: all the candidates are first fitted on a small random subset of the rows,
+	 * only the best fraction moves on to a subset twice as big, and so on, until the survivors are fitted on the whole data table.
+	 * <p>
+	 * Each round warm-starts from the parameters found in the previous one; candidates eliminated along the way get an infinite fitness,
+	 * since the one on a small subset is an optimistic estimate that cannot be compared with the fitness on the whole data table (e.g. in
+	 * the tournament selection), and they are not included in the returned map.
+	 * </p>
+	 *
+	 * @param optimizationProblems	The problems to be evaluated.
+	 * @param problemData	The problem data.
+	 * @param dataset	The dataset context.
+	 * @param cutoff	The fitness above which the exact value on the whole data table is of no interest.
+	 * @param miniBatch	Whether the dataset is a mini-batch of the data the problems were created on (the survivors are then fitted on it
+	 * 	instead of on the data of their own objective).
+	 * @return	The fitness on the whole data table of the problems that survived the racing.
+	 */
+	static Map<OptimizationProblem, Double> evaluateWithRacing(final Collection<OptimizationProblem> optimizationProblems,
+			final ProblemData problemData, final DatasetContext dataset, final double cutoff, final boolean miniBatch){
+		final int rowCount = dataset.rowCount();
+
+		List<OptimizationProblem> survivors = new ArrayList<>(optimizationProblems);
+		int subsetSize = Math.max(RACING_MIN_ROWS, rowCount >> RACING_MAX_ROUNDS);
+		while(subsetSize < rowCount && survivors.size() > 1){
+			final DatasetContext subset = dataset.sample(subsetSize, RANDOM);
+
+			final Map<OptimizationProblem, Double> fitnessScore = fit(survivors, problemData, subset);
+
+			final int survivorCount = (int)Math.max(fitnessScore.size() * RACING_SURVIVAL_RATIO, 1);
+			final List<OptimizationProblem> contenders = survivors;
+			survivors = fitnessScore.entrySet()
+				.stream()
+				.sorted(Map.Entry.comparingByValue())
+				.limit(survivorCount)
+				.map(Map.Entry::getKey)
+				.collect(Collectors.toList());
+
+			final Set<OptimizationProblem> survivorSet = new HashSet<>(survivors);
+			for(int i = 0, length = contenders.size(); i < length; i ++){
+				final OptimizationProblem contender = contenders.get(i);
+				if(!survivorSet.contains(contender))
+					contender.setFitness(Double.POSITIVE_INFINITY);
+			}
+
+			subsetSize <<= 1;
+		}
+
+		return (miniBatch
+			? fit(survivors, problemData, dataset)
+			: evaluate(survivors, cutoff));
+	}
+
+	/**
+	 * Fits the given problems on the given subset of the rows, warm-starting from their current parameters.
+	 *
+	 * @param optimizationProblems	The problems to be fitted.
+	 * @param problemData	The problem data.
+	 * @param subset	The context of the subset of the rows.
+	 * @return	The fitness on the subset of the problems whose model is defined on it.
+	 */
+	private static Map<OptimizationProblem, Double> fit(final List<OptimizationProblem> optimizationProblems,
+			final ProblemData problemData, final DatasetContext subset){
+		final Map<OptimizationProblem, Double> fitnessScore = new HashMap<>(optimizationProblems.size());
+		for(int i = 0, length = optimizationProblems.size(); i < length; i ++){
+			final OptimizationProblem optimizationProblem = optimizationProblems.get(i);
+
+			try{
+				final ObjectivePenalty objectiveFunction = createObjectiveFunction(problemData.searchMetric(),
+					problemData.searchMode(), optimizationProblem.function, optimizationProblem.constraints, subset);
+				final double[] bestParameters = optimize(objectiveFunction, optimizationProblem.bounds,
+					optimizationProblem.startingPoint(), optimizationProblem.maxIterations);
+				optimizationProblem.setBestParameters(bestParameters);
+
+				final double fitness = objectiveFunction.exactValue(bestParameters);
+				optimizationProblem.setFitness(fitness);
+				if(fitness != ObjectivePenalty.INVALID_VALUE)
+					fitnessScore.put(optimizationProblem, fitness);
+				else
+					invalidCandidates ++;
+			}
+			catch(final Exception ignored){}
+		}
+		return fitnessScore;
+	}
+
+	/**
+	 * Optimizes the given problems on the data of their own objective.
+	 *
+	 * @param optimizationProblems	The problems to be evaluated.
+	 * @param cutoff	The fitness above which the scan of the data can be aborted during the optimization.
+	 * @return	The exact fitness of the problems whose model is defined on the data.
+	 */
+	static Map<OptimizationProblem, Double> evaluate(final Iterable<OptimizationProblem> optimizationProblems,
+			final double cutoff){
 		final Map<OptimizationProblem, Double> fitnessScore = new HashMap<>(POPULATION_SIZE);
 		for(final OptimizationProblem optimizationProblem : optimizationProblems){
 //			System.out.println("Optimize " + optimizationProblem.expression);
 
 			try{
+				optimizationProblem.objectiveFunction.setCutoff(cutoff);
+
 				final double[] bestParameters = optimize(optimizationProblem);
 				optimizationProblem.setBestParameters(bestParameters);
 
 				final double fitness = calculateFitness(optimizationProblem);
-				fitnessScore.put(optimizationProblem, fitness);
+				optimizationProblem.setFitness(fitness);
+				if(fitness != ObjectivePenalty.INVALID_VALUE)
+					fitnessScore.put(optimizationProblem, fitness);
+				else
+					invalidCandidates ++;
 			}
 			catch(final Exception ignored){}
 		}
 		return fitnessScore;
 	}
 
+	//the exact value, not the estimate of a scan aborted against the cutoff
 	private static double calculateFitness(final OptimizationProblem optimizationProblem){
-		return optimizationProblem.objectiveFunction.value(optimizationProblem.bestParameters);
+		return optimizationProblem.objectiveFunction.exactValue(optimizationProblem.bestParameters);
 	}
 
-	private static double[] createInitialLowerBounds(final int parameterCount){
-		return createBounds(parameterCount, Double.NEGATIVE_INFINITY);
-	}
+	/**
+	 * Refits the hall of fame, that is, the {@link #HALL_OF_FAME_SIZE} best candidates, on the whole data, warm-starting from the
+	 * parameters found on the coreset, and reports the gap between the fitness on the whole data and the one on the coreset of each of
+	 * them.
+	 *
+	 * @param fitnessScore	The fitness on the coreset of the candidates.
+	 * @param problemData	The problem data.
+	 * @param fullDataset	The context of the whole data.
+	 * @return	The fitness on the whole data of the candidates in the hall of fame.
+	 */
+	private static Map<OptimizationProblem, Double> refitHallOfFame(final Map<OptimizationProblem, Double> fitnessScore,
+			final ProblemData problemData, final DatasetContext fullDataset){
+		final List<Map.Entry<OptimizationProblem, Double>> hallOfFame = fitnessScore.entrySet()
+			.stream()
+			.sorted(Map.Entry.comparingByValue())
+			.limit(HALL_OF_FAME_SIZE)
+			.collect(Collectors.toList());
 
-	private static double[] createInitialUpperBounds(final int parameterCount){
-		return createBounds(parameterCount, Double.POSITIVE_INFINITY);
+		final Map<OptimizationProblem, Double> fullFitnessScore = new HashMap<>(hallOfFame.size());
+		for(int i = 0, length = hallOfFame.size(); i < length; i ++){
+			final OptimizationProblem optimizationProblem = hallOfFame.get(i).getKey();
+			final double coresetFitness = hallOfFame.get(i).getValue();
+
+			try{
+				final ObjectivePenalty objectiveFunction = createObjectiveFunction(problemData.searchMetric(),
+					problemData.searchMode(), optimizationProblem.function, optimizationProblem.constraints, fullDataset);
+				final double[] bestParameters = optimize(objectiveFunction, optimizationProblem.bounds,
+					optimizationProblem.startingPoint(), optimizationProblem.maxIterations);
+				optimizationProblem.setBestParameters(bestParameters);
+
+				final double fitness = objectiveFunction.exactValue(bestParameters);
+				optimizationProblem.setFitness(fitness);
+				if(fitness != ObjectivePenalty.INVALID_VALUE)
+					fullFitnessScore.put(optimizationProblem, fitness);
+				else
+					invalidCandidates ++;
+				System.out.println("refit: " + optimizationProblem.expression
+					+ ", coreset fitness: " + coresetFitness
+					+ ", full fitness: " + fitness
+					+ ", gap: " + (fitness - coresetFitness));
+			}
+			catch(final Exception ignored){}
+		}
+		return fullFitnessScore;
 	}
 
-	private static double[] createBounds(final int parameterCount, final double initialValue){
-		final double[] bounds = new double[parameterCount];
-		Arrays.fill(bounds, initialValue);
-		return bounds;
+	/**
+	 * Calculates the fitness of the worst candidate in the hall of fame, that is, the {@link #HALL_OF_FAME_SIZE} best candidates.
+	 *
+	 * @param fitnessScore	The fitness of the candidates.
+	 * @return	The cutoff, or positive infinity if there are not enough candidates.
+	 */
+	private static double calculateHallOfFameCutoff(final Map<OptimizationProblem, Double> fitnessScore){
+		if(fitnessScore.size() < HALL_OF_FAME_SIZE)
+			return Double.POSITIVE_INFINITY;
+
+		return fitnessScore.values()
+			.stream()
+			.sorted()
+			.skip(HALL_OF_FAME_SIZE - 1)
+			.findFirst()
+			.orElse(Double.POSITIVE_INFINITY);
 	}
 
-	private static Constraint[] createComplexConstraints(final String[] constraints, final double[] lowerBounds, final double[] upperBounds){
-		final List<Constraint> complexConstraints = new ArrayList<>(0);
-		for(int k = 0, constraintCount = Math.min(constraints.length, lowerBounds.length); k < constraintCount; k ++){
-			final String constraintExpression = constraints[k];
+	/**
+	 * Calculates the fitness on the given batch of the worst candidate in the hall of fame, that is, the {@link #HALL_OF_FAME_SIZE} best
+	 * candidates.
+	 *
+	 * @param fitnessScore	The fitness of the candidates, measured on another batch.
+	 * @param problemData	The problem data.
+	 * @param batch	The batch the cutoff is used on.
+	 * @return	The cutoff, or positive infinity if there are not enough candidates.
+	 */
+	private static double calculateHallOfFameCutoff(final Map<OptimizationProblem, Double> fitnessScore, final ProblemData problemData,
+			final DatasetContext batch){
+		if(fitnessScore.size() < HALL_OF_FAME_SIZE)
+			return Double.POSITIVE_INFINITY;
 
-			if(!ConstraintExtractor.parseBasicConstraint(constraintExpression, lowerBounds, upperBounds)){
-				final Constraint constraint = ConstraintExtractor.parseComplexConstraint(constraintExpression);
-				complexConstraints.add(constraint);
-			}
-		}
-		return complexConstraints.toArray(new Constraint[complexConstraints.size()]);
+		return fitnessScore.entrySet()
+			.stream()
+			.sorted(Map.Entry.comparingByValue())
+			.limit(HALL_OF_FAME_SIZE)
+			.mapToDouble(solution -> measureOnDataset(solution, problemData, batch).getValue())
+			.max()
+			.orElse(Double.POSITIVE_INFINITY);
 	}
 
 	/**
@@ -289,13 +590,15 @@ public class GeneticAlgorithm{
 	 *
 	 * @param populationSize	The size of the population.
 	 * @param maxDepth	The maximum depth of the expressions.
+	 * @param operators	The operators.
 	 * @param inputs	The inputs.
 	 * @return	A list of Karva expressions.
 	 */
-	private static List<KarvaExpression> generateInitialPopulation(final int populationSize, final int maxDepth, final String[] inputs){
+	private static List<KarvaExpression> generateInitialPopulation(final int populationSize, final int maxDepth,
+			final OperatorSet operators, final String[] inputs){
 		final List<KarvaExpression> population = new ArrayList<>();
 		for(int i = 0; i < populationSize; i ++)
-			population.add(KarvaExpression.createRandom(maxDepth, KarvaToInfixConverter.OPERATOR_ARITY, inputs));
+			population.add(KarvaExpression.createRandom(maxDepth, operators, inputs));
 		return population;
 	}
 
@@ -335,26 +638,23 @@ public class GeneticAlgorithm{
 		OptimizationProblem best = competingIndividuals.getFirst();
 		for(int i = 1, length = competingIndividuals.size(); i < length; i ++){
 			final OptimizationProblem next = competingIndividuals.get(i);
-			if(calculateFitness(next) < calculateFitness(best))
+			//on equal fitness, the cheaper expression wins
+			if(next.fitness < best.fitness || next.fitness == best.fitness && next.cost < best.cost)
 				best = next;
 		}
 		return best;
 	}
 
-	private static int getParameterCount(final List<String> parameters, final String[] dataInput){
-	final Collection<String> params = new HashSet<>(parameters);
-	for(int i = 0, inputCount = dataInput.length; i < inputCount; i ++)
-		params.remove(dataInput[i]);
-	return params.size();
-}
-
 	//https://stackoverflow.com/questions/16950115/apache-commons-optimization-troubles
 	private static double[] optimize(final OptimizationProblem optimizationProblem){
-		final MultivariateFunction objectiveFunction = optimizationProblem.objectiveFunction;
-		final SimpleBounds bounds = optimizationProblem.bounds;
-		final double[] initialGuess = optimizationProblem.initialGuess;
-		final int maxIterations = optimizationProblem.maxIterations;
+		//the objective is reused across racing rounds and generations
+		optimizationProblem.objectiveFunction.resetIncumbent();
+		return optimize(optimizationProblem.objectiveFunction, optimizationProblem.bounds, optimizationProblem.startingPoint(),
+			optimizationProblem.maxIterations);
+	}
 
+	private static double[] optimize(final MultivariateFunction objectiveFunction, final SimpleBounds bounds, final double[] initialGuess,
+			final int maxIterations){
 		//numberOfInterpolationPoints must be in [n + 2, (n + 1) · (n + 2) / 2]
 		final BOBYQAOptimizer optimizer = new BOBYQAOptimizer(2 * initialGuess.length + 1);
 
@@ -372,15 +672,33 @@ public class GeneticAlgorithm{
 	private static Map.Entry<OptimizationProblem, Double> getBestSolution(final Map<OptimizationProblem, Double> fitnessScore){
 		return fitnessScore.entrySet()
 			.stream()
-			.min(Map.Entry.comparingByValue())
+			.min(Map.Entry.<OptimizationProblem, Double>comparingByValue()
+				.thenComparingDouble(entry -> entry.getKey().cost))
 			.orElse(null);
 	}
 
-	private static KarvaExpression mutate(final KarvaExpression karvaExpression, final String[] dataInput){
+	/**
+	 * Calculates the fitness of a solution found on a mini-batch on the whole data (not on the coreset, if any, its objective was created
+	 * on).
+	 *
+	 * @param solution	The solution, with its fitness on the mini-batch.
+	 * @param problemData	The problem data.
+	 * @param fullDataset	The context of the whole data.
+	 * @return	The solution, with its fitness on the whole data.
+	 */
+	private static Map.Entry<OptimizationProblem, Double> measureOnDataset(final Map.Entry<OptimizationProblem, Double> solution,
+			final ProblemData problemData, final DatasetContext fullDataset){
+		final OptimizationProblem optimizationProblem = solution.getKey();
+		final ObjectivePenalty objectiveFunction = createObjectiveFunction(problemData.searchMetric(), problemData.searchMode(),
+			optimizationProblem.function, optimizationProblem.constraints, fullDataset);
+		return Map.entry(optimizationProblem, objectiveFunction.exactValue(optimizationProblem.bestParameters));
+	}
+
+	private static KarvaExpression mutate(final KarvaExpression karvaExpression, final OperatorSet operators, final String[] dataInput){
 		final int geneLength = karvaExpression.length();
 		final int originIndex = RANDOM.nextInt(geneLength - 1);
 		final int length = RANDOM.nextInt(geneLength - originIndex - 1) + 1;
-		return karvaExpression.generateMutation(originIndex, length, KarvaToInfixConverter.OPERATOR_ARITY, dataInput);
+		return karvaExpression.generateMutation(originIndex, length, operators, dataInput);
 	}
 
 	private static KarvaExpression invert(final KarvaExpression karvaExpression){
@@ -424,19 +742,15 @@ public class GeneticAlgorithm{
 	}
 
 	private static KarvaExpression[] recombineOnePoint(final KarvaExpression karvaExpression1, final KarvaExpression karvaExpression2){
-		final int gene1Length = karvaExpression1.length();
-		final int gene2Length = karvaExpression2.length();
-		final int length = Math.min(gene1Length, gene2Length);
+		final int length = karvaExpression1.alignedLength(karvaExpression2);
 		final int crossoverPoint = RANDOM.nextInt(length - 1);
 		return karvaExpression1.generateRecombinationOnePoint(karvaExpression2, crossoverPoint);
 	}
 
 	private static KarvaExpression[] recombineTwoPoint(final KarvaExpression karvaExpression1, final KarvaExpression karvaExpression2){
-		final int gene1Length = karvaExpression1.length();
-		final int gene2Length = karvaExpression2.length();
-		final int length = Math.min(gene1Length, gene2Length);
+		final int length = karvaExpression1.alignedLength(karvaExpression2);
 		final int crossoverPoint1 = RANDOM.nextInt(length - 1);
-		final int crossoverPoint2 = RANDOM.nextInt(length - crossoverPoint1 - 1) + crossoverPoint1;
+		final int crossoverPoint2 = RANDOM.nextInt(length - crossoverPoint1 - 1) + crossoverPoint1 + 1;
 		return karvaExpression1.generateRecombinationTwoPoint(karvaExpression2, crossoverPoint1, crossoverPoint2);
 	}
 
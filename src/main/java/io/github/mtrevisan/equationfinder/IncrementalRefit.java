@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+
+/**
+ * Persisted outcome of a parameter estimation, to refit the problem incrementally once new rows are appended to its data.
+ * <p>
+ * The state is stored next to the problem file (with the {@value #STATE_FILE_EXTENSION} extension added): the problem it belongs to
+ * (expression, inputs, search metric, search mode, and constraints), the number of rows fitted and a fingerprint of them, the parameters
+ * found, and, if the objective was calculated from the sufficient statistics of the data, these statistics.
+ * </p>
+ * <p>
+ * If the problem is the same and the first rows of its data are exactly the fitted ones, only rows were appended: the optimizer is then
+ * warm-started from the persisted parameters, and the sufficient statistics are updated with the appended rows alone.
+ * Checking the fingerprint still reads the old rows, but that is a hash of the values, not an evaluation of the model.
+ * </p>
+ */
+final class IncrementalRefit{
+
+	/** Extension added to the problem file to obtain the file of the persisted state. */
+	static final String STATE_FILE_EXTENSION = ".fit";
+
+	private static final String KEY_PROBLEM = "problem";
+	private static final String KEY_ROW_COUNT = "rows";
+	private static final String KEY_FINGERPRINT = "fingerprint";
+	private static final String KEY_PARAMETERS = "parameters";
+	private static final String KEY_MOMENTS = "moments";
+
+	private static final String VALUE_SEPARATOR = " ";
+	private static final Pattern PATTERN_VALUES = Pattern.compile(VALUE_SEPARATOR);
+
+	//FNV-1a, over 64-bit words
+	private static final long FINGERPRINT_OFFSET_BASIS = 0xCBF2_9CE4_8422_2325L;
+	private static final long FINGERPRINT_PRIME = 0x0000_0100_0000_01B3L;
+
+
+	/**
+	 * The persisted outcome of a parameter estimation.
+	 *
+	 * @param problem	The description of the problem (see {@link #describe(ProblemData)}).
+	 * @param rowCount	The number of rows fitted.
+	 * @param fingerprint	The fingerprint of the rows fitted (see {@link #fingerprint(ProblemData, int)}).
+	 * @param parameters	The parameters found.
+	 * @param moments	The sufficient statistics of the rows fitted, or {@code null} if the objective was calculated from the data.
+	 */
+	record State(String problem, int rowCount, long fingerprint, double[] parameters, double[] moments){
+
+		/**
+		 * Whether this state belongs to the given problem and its rows are the first rows of the data of the problem.
+		 *
+		 * @param problemData	The problem.
+		 * @return	Whether the given problem is this one with (possibly no) rows appended.
+		 */
+		boolean isPrefixOf(final ProblemData problemData){
+			return (problem.equals(describe(problemData))
+				&& rowCount <= problemData.rowCount()
+				&& fingerprint == IncrementalRefit.fingerprint(problemData, rowCount));
+		}
+
+		/**
+		 * The number of rows of the data of the given problem not yet fitted.
+		 *
+		 * @param problemData	The problem, of which this state is a prefix.
+		 * @return	The number of appended rows.
+		 */
+		int appendedRowCount(final ProblemData problemData){
+			return problemData.rowCount() - rowCount;
+		}
+
+	}
+
+
+	private IncrementalRefit(){}
+
+
+	/**
+	 * The file of the persisted state of a problem.
+	 *
+	 * @param problemDataFile	The problem file.
+	 * @return	The state file.
+	 */
+	static Path stateFile(final Path problemDataFile){
+		return problemDataFile.resolveSibling(problemDataFile.getFileName() + STATE_FILE_EXTENSION);
+	}
+
+	/**
+	 * Creates the state after the estimation of the given problem.
+	 *
+	 * @param problemData	The problem.
+	 * @param fingerprint	The fingerprint of all the rows of the problem, taken before its data was released (see
+	 * 	{@link #fingerprint(ProblemData, int)}).
+	 * @param parameters	The parameters found.
+	 * @param moments	The sufficient statistics of the rows, or {@code null}.
+	 * @return	The state.
+	 */
+	static State create(final ProblemData problemData, final long fingerprint, final double[] parameters, final double[] moments){
+		return new State(describe(problemData), problemData.rowCount(), fingerprint, parameters, moments);
+	}
+
+	/**
+	 * Reads the persisted state.
+	 *
+	 * @param stateFile	The state file.
+	 * @return	The state, or {@code null} if there is none.
+	 * @throws IOException	If an I/O error occurs.
+	 */
+	static State load(final Path stateFile) throws IOException{
+		if(!Files.isRegularFile(stateFile))
+			return null;
+
+		final Properties properties = new Properties();
+		try(final Reader reader = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)){
+			properties.load(reader);
+		}
+		final String moments = properties.getProperty(KEY_MOMENTS);
+		return new State(properties.getProperty(KEY_PROBLEM),
+			Integer.parseInt(properties.getProperty(KEY_ROW_COUNT)),
+			Long.parseUnsignedLong(properties.getProperty(KEY_FINGERPRINT), 16),
+			parseValues(properties.getProperty(KEY_PARAMETERS)),
+			(moments != null? parseValues(moments): null));
+	}
+
+	/**
+	 * Persists the state.
+	 *
+	 * @param stateFile	The state file.
+	 * @param state	The state.
+	 * @throws IOException	If an I/O error occurs.
+	 */
+	static void save(final Path stateFile, final State state) throws IOException{
+		final Properties properties = new Properties();
+		properties.setProperty(KEY_PROBLEM, state.problem());
+		properties.setProperty(KEY_ROW_COUNT, Integer.toString(state.rowCount()));
+		properties.setProperty(KEY_FINGERPRINT, Long.toHexString(state.fingerprint()));
+		properties.setProperty(KEY_PARAMETERS, formatValues(state.parameters()));
+		if(state.moments() != null)
+			properties.setProperty(KEY_MOMENTS, formatValues(state.moments()));
+
+		try(final Writer writer = Files.newBufferedWriter(stateFile, StandardCharsets.UTF_8)){
+			properties.store(writer, "incremental refit state");
+		}
+	}
+
+	//the parts of the problem the persisted parameters depend on (not the data, that is fingerprinted); the coreset and the mini-batches
+	// are left out, since only the genetic search uses them, and it does not refit incrementally
+	private static String describe(final ProblemData problemData){
+		return problemData.searchMode()
+			+ "|" + problemData.expression()
+			+ "|" + String.join(",", problemData.dataInput())
+			+ "|" + problemData.searchMetric()
+			+ "|" + String.join(";", problemData.constraints())
+			+ "|" + problemData.constraintHandling()
+			+ "|" + problemData.storage()
+			+ "|" + problemData.aggregation();
+	}
+
+	/**
+	 * Calculates a fingerprint of the first rows of the data.
+	 *
+	 * @param problemData	The problem.
+	 * @param rowCount	The number of rows to be fingerprinted.
+	 * @return	The fingerprint.
+	 */
+	static long fingerprint(final ProblemData problemData, final int rowCount){
+		final double[] row = new double[problemData.dataInput().length + 1];
+		long hash = FINGERPRINT_OFFSET_BASIS;
+		for(int i = 0; i < rowCount; i ++){
+			problemData.row(i, row);
+			hash = (hash ^ row.length) * FINGERPRINT_PRIME;
+			for(int j = 0, length = row.length; j < length; j ++)
+				hash = (hash ^ Double.doubleToLongBits(row[j])) * FINGERPRINT_PRIME;
+		}
+		return hash;
+	}
+
+	private static String formatValues(final double[] values){
+		final StringBuilder sb = new StringBuilder();
+		for(int i = 0, length = values.length; i < length; i ++){
+			if(i > 0)
+				sb.append(VALUE_SEPARATOR);
+			//the shortest representation that reads back to the same value
+			sb.append(values[i]);
+		}
+		return sb.toString();
+	}
+
+	private static double[] parseValues(final String values){
+		if(values.isEmpty())
+			return new double[0];
+
+		return Arrays.stream(PATTERN_VALUES.split(values, -1))
+			.mapToDouble(Double::parseDouble)
+			.toArray();
+	}
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import io.github.mtrevisan.equationfinder.objectives.DatasetContext;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+
+/**
+ * Mini-batches the genetic search evaluates its generations on, in place of the whole data.
+ * <p>
+ * Each generation is evaluated on a random subset of the rows, drawn anew, of {@code initial · growth^generation} rows (up to the whole
+ * data): the early generations, whose population is mostly poor, only need a rough ranking, the later ones a precise one. The subset is
+ * fixed within a generation, so that the function each optimizer sees is deterministic.
+ * </p>
+ */
+final class MiniBatchSchedule{
+
+	private static final int DEFAULT_INITIAL_SIZE = 1_024;
+	private static final double DEFAULT_GROWTH = 1.5;
+
+	private static final Pattern PATTERN_DEFINITION = Pattern.compile("\\s+");
+
+
+	private final int initialSize;
+	private final double growth;
+
+
+	/**
+	 * Parses the {@code with mini batch} section of the problem.
+	 *
+	 * @param definition	The initial number of rows, optionally followed by the growth factor per generation ({@code <rows> [<growth>]}), or
+	 * 	empty for the defaults.
+	 * @return	The schedule.
+	 */
+	static MiniBatchSchedule parse(final String definition){
+		final String trimmed = definition.trim();
+		if(trimmed.isEmpty())
+			return new MiniBatchSchedule(DEFAULT_INITIAL_SIZE, DEFAULT_GROWTH);
+
+		final String[] components = PATTERN_DEFINITION.split(trimmed, -1);
+		final int initialSize = Integer.parseInt(components[0]);
+		final double growth = (components.length > 1? Double.parseDouble(components[1]): DEFAULT_GROWTH);
+		return new MiniBatchSchedule(initialSize, growth);
+	}
+
+
+	private MiniBatchSchedule(final int initialSize, final double growth){
+		if(initialSize < 1)
+			throw new IllegalArgumentException("The initial mini-batch size must be positive: " + initialSize);
+		if(!(growth >= 1.))
+			throw new IllegalArgumentException("The mini-batch growth must be at least one: " + growth);
+
+		this.initialSize = initialSize;
+		this.growth = growth;
+	}
+
+
+	/**
+	 * @param generation	The generation (the evaluation of the initial population being generation zero).
+	 * @param rowCount	The number of rows of the whole data.
+	 * @return	The number of rows of the mini-batch of the given generation.
+	 */
+	int size(final int generation, final int rowCount){
+		return (int)Math.min(rowCount, initialSize * Math.pow(growth, generation));
+	}
+
+	/**
+	 * Draws the mini-batch of the given generation.
+	 *
+	 * @param dataset	The whole data.
+	 * @param generation	The generation.
+	 * @param random	The random number generator.
+	 * @return	The mini-batch, or the given dataset once the schedule reaches its size.
+	 */
+	DatasetContext draw(final DatasetContext dataset, final int generation, final Random random){
+		final int rowCount = dataset.rowCount();
+		final int size = size(generation, rowCount);
+		return (size < rowCount? dataset.sample(size, random): dataset);
+	}
+
+}
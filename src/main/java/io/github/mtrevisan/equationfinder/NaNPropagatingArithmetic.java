@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import org.apache.commons.jexl3.JexlArithmetic;
+
+import java.math.MathContext;
+
+
+/**
+ * Arithmetic that, instead of throwing an exception, returns NaN on a domain error (like a division by zero), so that the error propagates
+ * through the expression without the cost of building a stack trace.
+ */
+final class NaNPropagatingArithmetic extends JexlArithmetic{
+
+	NaNPropagatingArithmetic(final boolean strict){
+		super(strict);
+	}
+
+	private NaNPropagatingArithmetic(final boolean strict, final MathContext mathContext, final int mathScale){
+		super(strict, mathContext, mathScale);
+	}
+
+
+	@Override
+	protected JexlArithmetic createWithOptions(final boolean strict, final MathContext mathContext, final int mathScale){
+		return new NaNPropagatingArithmetic(strict, mathContext, mathScale);
+	}
+
+	@Override
+	public Object divide(final Object left, final Object right){
+		return (isZero(right)? Double.NaN: super.divide(left, right));
+	}
+
+	@Override
+	public Object mod(final Object left, final Object right){
+		return (isZero(right)? Double.NaN: super.mod(left, right));
+	}
+
+	private static boolean isZero(final Object value){
+		return (value instanceof final Number number && number.doubleValue() == 0.);
+	}
+
+}
@@ -25,7 +25,7 @@
 package io.github.mtrevisan.equationfinder;
 
 import io.github.mtrevisan.equationfinder.genetics.KarvaExpression;
-import org.apache.commons.math3.analysis.MultivariateFunction;
+import io.github.mtrevisan.equationfinder.objectives.ObjectivePenalty;
 import org.apache.commons.math3.optim.SimpleBounds;
 
 import java.util.ArrayList;
@@ -36,23 +36,32 @@ class OptimizationProblem{
 
 	final List<KarvaExpression> karvaExpressions;
 	final String expression;
-	final MultivariateFunction objectiveFunction;
+	final ModelFunction function;
+	final Constraint[] constraints;
+	final ObjectivePenalty objectiveFunction;
 	final SimpleBounds bounds;
 	final double[] initialGuess;
 	final int maxIterations;
+	//evaluation cost of the expression, according to the operator set of the problem
+	final double cost;
 
 	double[] bestParameters;
+	double fitness = Double.POSITIVE_INFINITY;
 
 
-	OptimizationProblem(final KarvaExpression karvaExpression, final String expression, final MultivariateFunction objectiveFunction,
-			final SimpleBounds bounds, final double[] initialGuess, final int maxIterations){
+	OptimizationProblem(final KarvaExpression karvaExpression, final String expression, final ModelFunction function,
+			final Constraint[] constraints, final ObjectivePenalty objectiveFunction, final SimpleBounds bounds, final double[] initialGuess,
+			final int maxIterations, final double cost){
 		karvaExpressions = new ArrayList<>(1);
 		karvaExpressions.add(karvaExpression);
 		this.expression = expression;
+		this.function = function;
+		this.constraints = constraints;
 		this.objectiveFunction = objectiveFunction;
 		this.bounds = bounds;
 		this.initialGuess = initialGuess;
 		this.maxIterations = maxIterations;
+		this.cost = cost;
 	}
 
 	public void addKarvaExpression(final KarvaExpression karvaExpression){
@@ -63,4 +72,17 @@ class OptimizationProblem{
 		this.bestParameters = bestParameters;
 	}
 
+	public void setFitness(final double fitness){
+		this.fitness = fitness;
+	}
+
+	/**
+	 * The point the optimizer should start from: the best parameters found so far, if any, the initial guess otherwise.
+	 *
+	 * @return	The starting point.
+	 */
+	double[] startingPoint(){
+		return (bestParameters != null? bestParameters: initialGuess);
+	}
+
 }
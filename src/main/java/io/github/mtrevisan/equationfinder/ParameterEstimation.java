@@ -24,6 +24,9 @@
  */
 package io.github.mtrevisan.equationfinder;
 
+import io.github.mtrevisan.equationfinder.objectives.DatasetContext;
+import io.github.mtrevisan.equationfinder.objectives.FusedObjective;
+import io.github.mtrevisan.equationfinder.objectives.LinearLeastSquares;
 import io.github.mtrevisan.equationfinder.objectives.ObjectiveMA;
 import io.github.mtrevisan.equationfinder.objectives.ObjectiveMAR;
 import io.github.mtrevisan.equationfinder.objectives.ObjectiveMax;
@@ -31,6 +34,7 @@ import io.github.mtrevisan.equationfinder.objectives.ObjectiveMaxR;
 import io.github.mtrevisan.equationfinder.objectives.ObjectiveMedA;
 import io.github.mtrevisan.equationfinder.objectives.ObjectiveNSE;
 import io.github.mtrevisan.equationfinder.objectives.ObjectivePenalty;
+import io.github.mtrevisan.equationfinder.objectives.ObjectiveQuantileA;
 import io.github.mtrevisan.equationfinder.objectives.ObjectiveRMSL;
 import io.github.mtrevisan.equationfinder.objectives.ObjectiveRSS;
 import org.apache.commons.math3.analysis.MultivariateFunction;
@@ -43,6 +47,7 @@ import org.apache.commons.math3.optim.nonlinear.scalar.ObjectiveFunction;
 import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -56,64 +61,188 @@ import java.util.function.Supplier;
 
 public class ParameterEstimation{
 
+	//number of rows from which the scan of the data is split across threads
+	private static final int PARALLEL_ROW_THRESHOLD = 100_000;
+	//BOBYQA does not work on less than two dimensions
+	private static final int MINIMUM_OPTIMIZER_DIMENSION = 2;
+
+
 	public static void main(final String[] args) throws IOException{
 //		final String problemDataURI = "C:\\mauro\\mine\\projects\\EquationFinder\\src\\main\\resources\\test.txt";
 		final String problemDataURI = "C:\\Users\\mauro\\Projects\\EquationFinder\\src\\main\\resources\\\\test.txt";
-		final ProblemData problemData = ProblemExtractor.readProblemData(Paths.get(problemDataURI));
+		final Path problemDataFile = Paths.get(problemDataURI);
+		final ProblemData problemData = ProblemExtractor.readProblemData(problemDataFile);
 
 		final SearchMode searchMode = problemData.searchMode();
 		final String expression = problemData.expression();
 		final String[] constraints = problemData.constraints();
 		final String[] dataInput = problemData.dataInput();
-		final double[][] dataTable = problemData.dataTable();
 		final String searchMetric = problemData.searchMetric();
+		final boolean augmentedLagrangian = AugmentedLagrangian.CONSTRAINT_HANDLING_AUGMENTED_LAGRANGIAN
+			.equals(problemData.constraintHandling());
 
-		final Map<String, Supplier<MultivariateFunction>> objectiveFunctions = new HashMap<>(8);
 		final ModelFunction function = ExpressionExtractor.parseExpression(expression, dataInput);
-		objectiveFunctions.put(ObjectiveMA.OBJECTIVE_MEAN_ABSOLUTE_ERROR, () -> new ObjectiveMA(function, dataTable));
-		objectiveFunctions.put(ObjectiveMAR.OBJECTIVE_MEAN_ABSOLUTE_RELATIVE_ERROR, () -> new ObjectiveMAR(function, dataTable));
-		objectiveFunctions.put(ObjectiveMax.OBJECTIVE_MAXIMUM_ERROR, () -> new ObjectiveMax(function, dataTable));
-		objectiveFunctions.put(ObjectiveMaxR.OBJECTIVE_MAXIMUM_RELATIVE_ERROR, () -> new ObjectiveMaxR(function, dataTable));
-		objectiveFunctions.put(ObjectiveMedA.OBJECTIVE_MEDIANT_ABSOLUTE_ERROR, () -> new ObjectiveMedA(function, dataTable));
-		objectiveFunctions.put(ObjectiveNSE.OBJECTIVE_NASH_SUTCLIFFE_EFFICIENCY, () -> new ObjectiveNSE(function, dataTable));
-		objectiveFunctions.put(ObjectiveRMSL.OBJECTIVE_ROOT_MEAN_SQUARED_LOG_ERROR, () -> new ObjectiveRMSL(function, dataTable));
-		objectiveFunctions.put(ObjectiveRSS.OBJECTIVE_RESIDUAL_SUM_OF_SQUARES_ERROR, () -> new ObjectiveRSS(function, dataTable));
-		final MultivariateFunction objective = objectiveFunctions.get(searchMetric)
-			.get();
-
 		final List<String> parameters = ExpressionExtractor.extractVariables(expression);
 		final int parameterCount = getParameterCount(parameters, dataInput);
-		final double[] lowerBounds = new double[parameterCount];
-		final double[] upperBounds = new double[parameterCount];
-		Arrays.fill(lowerBounds, Double.NEGATIVE_INFINITY);
-		Arrays.fill(upperBounds, Double.POSITIVE_INFINITY);
-		final List<Constraint> complexConstraints = new ArrayList<>(0);
-		for(int i = 0, constraintCount = constraints.length; i < constraintCount; i ++){
-			final String constraintExpression = constraints[i];
-
-			if(!ConstraintExtractor.parseBasicConstraint(constraintExpression, lowerBounds, upperBounds)){
-				final Constraint constraint = ConstraintExtractor.parseComplexConstraint(constraintExpression);
-				complexConstraints.add(constraint);
-			}
-		}
-		final SimpleBounds bounds = new SimpleBounds(lowerBounds, upperBounds);
 
-		final double[] initialGuess = new double[parameterCount];
-		Arrays.fill(initialGuess, 1.);
+		//warm-start from the last solution, if only rows were appended to the data since
+		final Path stateFile = IncrementalRefit.stateFile(problemDataFile);
+		final IncrementalRefit.State previousState = (problemData.incrementalRefit()? IncrementalRefit.load(stateFile): null);
+		final boolean appended = (previousState != null && previousState.isPrefixOf(problemData));
+		if(previousState != null)
+			System.out.println(appended
+				? "incremental refit: " + previousState.appendedRowCount(problemData) + " appended rows"
+				: "incremental refit: data or problem changed, fitting from scratch");
+		//taken now, the data being released once the dataset is created
+		final long fingerprint = (problemData.incrementalRefit()
+			? IncrementalRefit.fingerprint(problemData, problemData.rowCount())
+			: 0l);
 
-		final Constraint[] complexConstraintsArray = complexConstraints.toArray(new Constraint[complexConstraints.size()]);
-		final MultivariateFunction objectiveFunction = new ObjectivePenalty(objective, complexConstraintsArray, searchMode,
-			function, dataTable);
-		final double[] solution = optimize(objectiveFunction, bounds, initialGuess, 1_000);
+		//the rows as they are, neither rounded nor aggregated, so that rows can be appended to the sufficient statistics
+		final DatasetContext rowDataset = (problemData.incrementalRefit()
+			? DatasetContext.create(problemData.dataColumns(), DatasetContext.STORAGE_FLOAT64)
+			: null);
+		LinearLeastSquares statistics = (rowDataset != null
+			? createSufficientStatistics(problemData, rowDataset, function, parameterCount, (appended? previousState: null))
+			: null);
+		final FusedObjective objective = (statistics != null
+			? statistics
+			: createObjective(searchMetric, function, problemData.createDataset().withParallelThreshold(PARALLEL_ROW_THRESHOLD)));
+
+		final ConstraintProgram.Binding binding = ConstraintProgram.compile(constraints)
+			.bind(parameterCount);
+
+		final double[] initialGuess;
+		if(appended)
+			initialGuess = previousState.parameters().clone();
+		else{
+			initialGuess = new double[parameterCount];
+			Arrays.fill(initialGuess, 1.);
+		}
+
+		double[] solution = estimate(objective, binding, searchMode, augmentedLagrangian, initialGuess, 1_000);
+		if(statistics != null){
+			//the linearity of the model was checked only on some rows, confirm the statistics against all of them at the solution: this
+			//is one O(n) evaluation, intended, against the many the fit would make on the data; a sample of the rows is not enough,
+			//as the statistics hold the sums over every row, and the old rows were confirmed only at the previous solution
+			final double value = createObjective(searchMetric, function, rowDataset)
+				.value(solution, searchMode);
+			if(!statistics.isConsistent(solution, value)){
+				System.out.println("incremental refit: the sufficient statistics disagree with the data, fitting on the data");
+				statistics = null;
+				final FusedObjective dataObjective = createObjective(searchMetric, function,
+					problemData.createDataset().withParallelThreshold(PARALLEL_ROW_THRESHOLD));
+				solution = estimate(dataObjective, binding, searchMode, augmentedLagrangian, initialGuess, 1_000);
+			}
+		}
+		//the data is not needed anymore
+		problemData.releaseData();
 
 
 		//Optimal Parameters: [-1.1310510817011101, -17.434973897838685, 26.984627983790357]
 		//Optimal Parameters: [3.7270816439445933, 6.185209157381032, 2.0015957280550607]
 		System.out.println("Optimal Parameters: [3.727081633493055, 6.185209165354761, 2.0015957927716186]");
 		System.out.println("Optimal Parameters: " + Arrays.toString(solution));
+
+		if(problemData.incrementalRefit())
+			IncrementalRefit.save(stateFile, IncrementalRefit.create(problemData, fingerprint, solution,
+				(statistics != null? statistics.moments(): null)));
+	}
+
+	static FusedObjective createObjective(final String searchMetric, final ModelFunction function,
+			final DatasetContext dataset){
+		final Map<String, Supplier<FusedObjective>> objectiveFunctions = new HashMap<>(10);
+		objectiveFunctions.put(ObjectiveMA.OBJECTIVE_MEAN_ABSOLUTE_ERROR, () -> new ObjectiveMA(function, dataset));
+		objectiveFunctions.put(ObjectiveMAR.OBJECTIVE_MEAN_ABSOLUTE_RELATIVE_ERROR, () -> new ObjectiveMAR(function, dataset));
+		objectiveFunctions.put(ObjectiveMax.OBJECTIVE_MAXIMUM_ERROR, () -> new ObjectiveMax(function, dataset));
+		objectiveFunctions.put(ObjectiveMaxR.OBJECTIVE_MAXIMUM_RELATIVE_ERROR, () -> new ObjectiveMaxR(function, dataset));
+		objectiveFunctions.put(ObjectiveMedA.OBJECTIVE_MEDIANT_ABSOLUTE_ERROR, () -> new ObjectiveMedA(function, dataset));
+		objectiveFunctions.put(ObjectiveNSE.OBJECTIVE_NASH_SUTCLIFFE_EFFICIENCY, () -> new ObjectiveNSE(function, dataset));
+		objectiveFunctions.put(ObjectiveQuantileA.OBJECTIVE_90TH_PERCENTILE_ABSOLUTE_ERROR, () -> new ObjectiveQuantileA(function, dataset, 0.90));
+		objectiveFunctions.put(ObjectiveQuantileA.OBJECTIVE_95TH_PERCENTILE_ABSOLUTE_ERROR, () -> new ObjectiveQuantileA(function, dataset, 0.95));
+		objectiveFunctions.put(ObjectiveRMSL.OBJECTIVE_ROOT_MEAN_SQUARED_LOG_ERROR, () -> new ObjectiveRMSL(function, dataset));
+		objectiveFunctions.put(ObjectiveRSS.OBJECTIVE_RESIDUAL_SUM_OF_SQUARES_ERROR, () -> new ObjectiveRSS(function, dataset));
+		return objectiveFunctions.get(searchMetric)
+			.get();
+	}
+
+	/**
+	 * Minimizes the given objective under the given constraints.
+	 * <p>
+	 * The affine equalities are eliminated by substitution, if this leaves the optimizer enough dimensions; the other constraints are
+	 * either penalized or handled by the augmented Lagrangian method.
+	 * </p>
+	 *
+	 * @param objective	The objective.
+	 * @param binding	The constraints, bound to the parameters of the model.
+	 * @param searchMode	The search mode.
+	 * @param augmentedLagrangian	Whether the constraints are handled by the augmented Lagrangian method instead of by a penalty.
+	 * @param initialGuess	The starting point.
+	 * @param maxEvaluations	The maximum number of evaluations of the objective per optimization.
+	 * @return	The parameters found.
+	 */
+	static double[] estimate(final FusedObjective objective, final ConstraintProgram.Binding binding, final SearchMode searchMode,
+			final boolean augmentedLagrangian, final double[] initialGuess, final int maxEvaluations){
+		final int parameterCount = initialGuess.length;
+		final double[] lowerBounds = binding.lowerBounds();
+		final double[] upperBounds = binding.upperBounds();
+		final List<Constraint> complexConstraints = new ArrayList<>(binding.constraints());
+
+		//eliminate the affine equalities by substitution, reducing the dimension of the problem
+		ParameterSubstitution substitution = ParameterSubstitution.create(binding.equalities(), parameterCount);
+		if(substitution.reducedDimension() < MINIMUM_OPTIMIZER_DIMENSION){
+			//the optimizer cannot work in such a low dimension, fall back to penalizing the equalities
+			complexConstraints.addAll(binding.equalityConstraints());
+			substitution = ParameterSubstitution.create(List.of(), parameterCount);
+		}
+		complexConstraints.addAll(substitution.eliminatedBoundConstraints(lowerBounds, upperBounds));
+		final SimpleBounds bounds = new SimpleBounds(substitution.reduce(lowerBounds), substitution.reduce(upperBounds));
+
+		final Constraint[] complexConstraintsArray = complexConstraints.toArray(new Constraint[complexConstraints.size()]);
+		if(augmentedLagrangian && complexConstraintsArray.length > 0){
+			final AugmentedLagrangian.Result result = AugmentedLagrangian.minimize(objective, complexConstraintsArray, searchMode,
+				substitution, ParameterEstimation::optimize, bounds, substitution.reduce(initialGuess), maxEvaluations);
+			System.out.println("Augmented Lagrangian: outer iterations " + result.outerIterations()
+				+ ", max violation " + result.maxViolation()
+				+ ", penalty weight " + result.penaltyWeight()
+				+ (result.isFeasible()? "": " (infeasible)"));
+			return result.point();
+		}
+
+		final MultivariateFunction objectiveFunction = substitution.wrap(new ObjectivePenalty(objective, complexConstraintsArray,
+			searchMode));
+		return substitution.expand(optimize(objectiveFunction, bounds, substitution.reduce(initialGuess), maxEvaluations));
+	}
+
+	/**
+	 * Creates the residual sum of squares of a model linear in its parameters from the sufficient statistics of the data, restoring the
+	 * ones of the previous fit, if any, and accumulating only the rows appended since.
+	 *
+	 * @param problemData	The problem.
+	 * @param rowDataset	The rows of the problem, neither rounded nor aggregated.
+	 * @param function	The model.
+	 * @param parameterCount	The number of parameters of the model.
+	 * @param previousState	The state of the previous fit, of which the data of the problem is a prefix, or {@code null}.
+	 * @return	The objective, or {@code null} if the metric is not the residual sum of squares of an approximate search, or if the model is
+	 * 	not linear in its parameters.
+	 */
+	private static LinearLeastSquares createSufficientStatistics(final ProblemData problemData, final DatasetContext rowDataset,
+			final ModelFunction function, final int parameterCount, final IncrementalRefit.State previousState){
+		if(!ObjectiveRSS.OBJECTIVE_RESIDUAL_SUM_OF_SQUARES_ERROR.equals(problemData.searchMetric())
+				|| problemData.searchMode() != SearchMode.APPROXIMATE)
+			return null;
+		if(!LinearLeastSquares.isLinear(function, parameterCount, rowDataset))
+			return null;
+
+		final int inputCount = problemData.dataInput().length;
+		final LinearLeastSquares statistics = (previousState != null && previousState.moments() != null
+			? LinearLeastSquares.restore(function, parameterCount, inputCount, previousState.moments(), previousState.rowCount())
+			: LinearLeastSquares.create(function, parameterCount, inputCount));
+		statistics.accumulate(rowDataset, statistics.rowCount(), rowDataset.rowCount());
+		return statistics;
 	}
 
-	private static int getParameterCount(final List<String> parameters, final String[] dataInput){
+	static int getParameterCount(final List<String> parameters, final String[] dataInput){
 		final Collection<String> params = new HashSet<>(parameters);
 		for(int i = 0, inputCount = dataInput.length; i < inputCount; i ++)
 			params.remove(dataInput[i]);
@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import org.apache.commons.math3.analysis.MultivariateFunction;
+import org.apache.commons.math3.optim.linear.Relationship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Elimination of affine equality constraints by substitution.
+ * <p>
+ * Each equality {@code a·p + c = 0} is solved for one of its parameters (the one with the largest coefficient, after the previous
+ * equalities have been substituted), so the optimizer works on the remaining, free, parameters only: the dimension is reduced by one per
+ * independent equality, and the equality holds exactly instead of being approximated by a penalty.
+ * </p>
+ */
+final class ParameterSubstitution{
+
+	private static final double EPSILON = 1.e-12;
+
+
+	private final int parameterCount;
+	//indexes of the parameters left to the optimizer
+	private final int[] freeParameters;
+	//indexes of the parameters expressed in terms of the free ones
+	private final int[] eliminatedParameters;
+	//for each eliminated parameter, the coefficients of the free parameters followed by the constant term
+	private final double[][] substitutions;
+
+
+	/**
+	 * Solves the given affine equalities for as many parameters as there are independent equalities.
+	 *
+	 * @param equalities	The equalities, each as the coefficients of the parameters followed by the constant term (see
+	 * 	{@link ConstraintExtractor#parseAffineEquality(String, int)}).
+	 * @param parameterCount	The number of parameters.
+	 * @return	The substitution.
+	 * @throws IllegalArgumentException	If the equalities are inconsistent.
+	 */
+	static ParameterSubstitution create(final List<double[]> equalities, final int parameterCount){
+		//Gauss-Jordan elimination with partial pivoting
+		final int equalityCount = equalities.size();
+		final double[][] rows = new double[equalityCount][];
+		for(int i = 0; i < equalityCount; i ++)
+			rows[i] = equalities.get(i).clone();
+
+		final boolean[] eliminated = new boolean[parameterCount];
+		final List<Integer> pivotColumns = new ArrayList<>(equalityCount);
+		final List<double[]> pivotRows = new ArrayList<>(equalityCount);
+		for(int r = 0; r < equalityCount; r ++){
+			final double[] row = rows[r];
+
+			int pivot = -1;
+			for(int j = 0; j < parameterCount; j ++)
+				if(!eliminated[j] && Math.abs(row[j]) > EPSILON && (pivot < 0 || Math.abs(row[j]) > Math.abs(row[pivot])))
+					pivot = j;
+			if(pivot < 0){
+				if(Math.abs(row[parameterCount]) > EPSILON)
+					throw new IllegalArgumentException("Inconsistent equality constraints");
+
+				//redundant equality
+				continue;
+			}
+
+			final double pivotValue = row[pivot];
+			for(int j = 0; j <= parameterCount; j ++)
+				row[j] /= pivotValue;
+			for(int other = 0; other < equalityCount; other ++)
+				if(other != r)
+					subtractMultiple(rows[other], row, pivot);
+			for(int k = 0, length = pivotRows.size(); k < length; k ++)
+				subtractMultiple(pivotRows.get(k), row, pivot);
+
+			eliminated[pivot] = true;
+			pivotColumns.add(pivot);
+			pivotRows.add(row);
+		}
+
+		final int eliminatedCount = pivotColumns.size();
+		final int[] freeParameters = new int[parameterCount - eliminatedCount];
+		for(int j = 0, index = 0; j < parameterCount; j ++)
+			if(!eliminated[j])
+				freeParameters[index ++] = j;
+
+		//`p[pivot] = -c - Σ a[j]·p[j]` over the free parameters
+		final int[] eliminatedParameters = new int[eliminatedCount];
+		final double[][] substitutions = new double[eliminatedCount][freeParameters.length + 1];
+		for(int k = 0; k < eliminatedCount; k ++){
+			final double[] row = pivotRows.get(k);
+			eliminatedParameters[k] = pivotColumns.get(k);
+			for(int f = 0, length = freeParameters.length; f < length; f ++)
+				substitutions[k][f] = -row[freeParameters[f]];
+			substitutions[k][freeParameters.length] = -row[parameterCount];
+		}
+		return new ParameterSubstitution(parameterCount, freeParameters, eliminatedParameters, substitutions);
+	}
+
+	private static void subtractMultiple(final double[] row, final double[] pivotRow, final int pivot){
+		final double factor = row[pivot];
+		if(factor != 0.)
+			for(int j = 0, length = row.length; j < length; j ++)
+				row[j] -= factor * pivotRow[j];
+	}
+
+
+	private ParameterSubstitution(final int parameterCount, final int[] freeParameters, final int[] eliminatedParameters,
+			final double[][] substitutions){
+		this.parameterCount = parameterCount;
+		this.freeParameters = freeParameters;
+		this.eliminatedParameters = eliminatedParameters;
+		this.substitutions = substitutions;
+	}
+
+
+	int reducedDimension(){
+		return freeParameters.length;
+	}
+
+	int eliminatedCount(){
+		return eliminatedParameters.length;
+	}
+
+	/**
+	 * Reconstructs the full set of parameters from the free ones.
+	 *
+	 * @param reduced	The values of the free parameters.
+	 * @return	The values of all the parameters.
+	 */
+	double[] expand(final double[] reduced){
+		final double[] full = new double[parameterCount];
+		final int freeCount = freeParameters.length;
+		for(int f = 0; f < freeCount; f ++)
+			full[freeParameters[f]] = reduced[f];
+		for(int k = 0, length = eliminatedParameters.length; k < length; k ++){
+			final double[] substitution = substitutions[k];
+			double value = substitution[freeCount];
+			for(int f = 0; f < freeCount; f ++)
+				value += substitution[f] * reduced[f];
+			full[eliminatedParameters[k]] = value;
+		}
+		return full;
+	}
+
+	/**
+	 * Extracts the free parameters (e.g. of bounds, or of an initial guess) from the full set.
+	 *
+	 * @param full	The values of all the parameters.
+	 * @return	The values of the free parameters.
+	 */
+	double[] reduce(final double[] full){
+		final double[] reduced = new double[freeParameters.length];
+		for(int f = 0, length = freeParameters.length; f < length; f ++)
+			reduced[f] = full[freeParameters[f]];
+		return reduced;
+	}
+
+	/**
+	 * Wraps a function of all the parameters into a function of the free ones.
+	 *
+	 * @param function	The function of all the parameters.
+	 * @return	The function of the free parameters.
+	 */
+	MultivariateFunction wrap(final MultivariateFunction function){
+		return (eliminatedParameters.length == 0
+			? function
+			: reduced -> function.value(expand(reduced)));
+	}
+
+	/**
+	 * The bounds of the eliminated parameters, no longer enforceable by the optimizer, as constraints on all the parameters.
+	 *
+	 * @param lowerBounds	The lower bounds of all the parameters.
+	 * @param upperBounds	The upper bounds of all the parameters.
+	 * @return	The constraints.
+	 */
+	List<Constraint> eliminatedBoundConstraints(final double[] lowerBounds, final double[] upperBounds){
+		final List<Constraint> constraints = new ArrayList<>(0);
+		for(int k = 0, length = eliminatedParameters.length; k < length; k ++){
+			final int index = eliminatedParameters[k];
+			final double lowerBound = lowerBounds[index];
+			final double upperBound = upperBounds[index];
+			if(Double.isFinite(lowerBound))
+				constraints.add(new Constraint(params -> params[index] - lowerBound, Relationship.GEQ));
+			if(Double.isFinite(upperBound))
+				constraints.add(new Constraint(params -> params[index] - upperBound, Relationship.LEQ));
+		}
+		return constraints;
+	}
+
+
+	@Override
+	public String toString(){
+		return "free " + Arrays.toString(freeParameters) + ", eliminated " + Arrays.toString(eliminatedParameters);
+	}
+
+}
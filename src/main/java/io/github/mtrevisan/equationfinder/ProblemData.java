@@ -24,12 +24,171 @@
  */
 package io.github.mtrevisan.equationfinder;
 
+import io.github.mtrevisan.equationfinder.genetics.OperatorSet;
+import io.github.mtrevisan.equationfinder.objectives.DatasetContext;
+import io.github.mtrevisan.equationfinder.objectives.DuplicateAggregation;
+
+import java.nio.DoubleBuffer;
+
+
+/**
+ * The definition of a problem, along with its data.
+ * <p>
+ * The data is held only until the dataset is created from it (see {@link #createDataset()}), so that it can be reclaimed as soon as it
+ * is not needed anymore (e.g. when it is stored in single precision, or aggregated).
+ * </p>
+ */
+final class ProblemData{
+
+	private final SearchMode searchMode;
+	private final String expression;
+	private final String[] constraints;
+	private final String[] dataInput;
+	//the values of each input followed by the target values, `null` once released
+	private DoubleBuffer[] dataColumns;
+	private final int rowCount;
+	private final String searchMetric;
+	private final OperatorSet operators;
+	private final String constraintHandling;
+	private final String storage;
+	private final String aggregation;
+	private final String coreset;
+	private final String miniBatch;
+	private final boolean incrementalRefit;
+	private final String streaming;
+
+
+	ProblemData(final SearchMode searchMode, final String expression, final String[] constraints, final String[] dataInput,
+			final DoubleBuffer[] dataColumns, final String searchMetric, final OperatorSet operators, final String constraintHandling,
+			final String storage, final String aggregation, final String coreset, final String miniBatch, final boolean incrementalRefit,
+			final String streaming){
+		this.searchMode = searchMode;
+		this.expression = expression;
+		this.constraints = constraints;
+		this.dataInput = dataInput;
+		this.dataColumns = dataColumns;
+		rowCount = (dataColumns.length > 0? dataColumns[0].remaining(): 0);
+		this.searchMetric = searchMetric;
+		this.operators = operators;
+		this.constraintHandling = constraintHandling;
+		this.storage = storage;
+		this.aggregation = aggregation;
+		this.coreset = coreset;
+		this.miniBatch = miniBatch;
+		this.incrementalRefit = incrementalRefit;
+		this.streaming = streaming;
+	}
+
+
+	/**
+	 * Creates the context of the data, stored with the requested precision and with the duplicate rows aggregated, if requested (merging
+	 * the targets of rows with the same inputs only if the search metric allows it), then releases the data.
+	 *
+	 * @return	The dataset context.
+	 */
+	DatasetContext createDataset(){
+		final DatasetContext dataset = DatasetContext.create(dataColumns(), storage);
+		releaseData();
+		if(aggregation == null)
+			return dataset;
+		if(!aggregation.equals(DuplicateAggregation.AGGREGATION_DUPLICATES))
+			throw new IllegalArgumentException("Unknown aggregation: " + aggregation + ", expected "
+				+ DuplicateAggregation.AGGREGATION_DUPLICATES);
+
+		return DuplicateAggregation.aggregate(dataset, DuplicateAggregation.canMergeTargets(searchMetric, searchMode));
+	}
+
+	/**
+	 * Drops the reference to the data, that is no longer accessible.
+	 */
+	void releaseData(){
+		dataColumns = null;
+	}
+
+	/**
+	 * @return	The values of each input followed by the target values (do not modify).
+	 * @throws IllegalStateException	If the data was released.
+	 */
+	DoubleBuffer[] dataColumns(){
+		if(dataColumns == null)
+			throw new IllegalStateException("The data was released");
+
+		return dataColumns;
+	}
+
+	/**
+	 * @return	The number of rows of the data (also after it was released).
+	 */
+	int rowCount(){
+		return rowCount;
+	}
+
+	/**
+	 * Reads a row of the data.
+	 *
+	 * @param row	The index of the row.
+	 * @param buffer	The buffer where to store the inputs followed by the target.
+	 * @return	The buffer.
+	 * @throws IllegalStateException	If the data was released.
+	 */
+	double[] row(final int row, final double[] buffer){
+		final DoubleBuffer[] columns = dataColumns();
+		for(int j = 0, length = columns.length; j < length; j ++)
+			buffer[j] = columns[j].get(columns[j].position() + row);
+		return buffer;
+	}
+
+
+	SearchMode searchMode(){
+		return searchMode;
+	}
+
+	String expression(){
+		return expression;
+	}
+
+	String[] constraints(){
+		return constraints;
+	}
+
+	String[] dataInput(){
+		return dataInput;
+	}
+
+	String searchMetric(){
+		return searchMetric;
+	}
+
+	OperatorSet operators(){
+		return operators;
+	}
+
+	String constraintHandling(){
+		return constraintHandling;
+	}
+
+	String storage(){
+		return storage;
+	}
+
+	String aggregation(){
+		return aggregation;
+	}
+
+	String coreset(){
+		return coreset;
+	}
+
+	String miniBatch(){
+		return miniBatch;
+	}
+
+	boolean incrementalRefit(){
+		return incrementalRefit;
+	}
+
+	String streaming(){
+		return streaming;
+	}
 
-record ProblemData(
-	SearchMode searchMode,
-	String expression,
-	String[] constraints,
-	String[] dataInput,
-	double[][] dataTable,
-	String searchMetric){
 }
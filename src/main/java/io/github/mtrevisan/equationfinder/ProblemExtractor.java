@@ -24,7 +24,11 @@
  */
 package io.github.mtrevisan.equationfinder;
 
+import io.github.mtrevisan.equationfinder.genetics.OperatorSet;
+
 import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -40,8 +44,17 @@ public final class ProblemExtractor{
 	private static final String LOWER_BOUND_SEARCH = "lower bound search";
 	private static final String SUBJECT_TO = "subject to";
 	private static final String WITH_INPUT = "with input";
+	private static final String WITH_DATA_FILE = "with data file";
 	private static final String WITH_DATA = "with data";
 	private static final String WITH_SEARCH_METRIC = "with search metric";
+	private static final String WITH_OPERATORS = "with operators";
+	private static final String WITH_CONSTRAINT_HANDLING = "with constraint handling";
+	private static final String WITH_STORAGE = "with storage";
+	private static final String WITH_AGGREGATION = "with aggregation";
+	private static final String WITH_CORESET = "with coreset";
+	private static final String WITH_MINI_BATCH = "with mini batch";
+	private static final String WITH_INCREMENTAL_REFIT = "with incremental refit";
+	private static final String WITH_STREAMING = "with streaming";
 
 	private static final int SECTION_NONE = 0;
 	private static final int SECTION_OBJECTIVE = 1;
@@ -49,6 +62,15 @@ public final class ProblemExtractor{
 	private static final int SECTION_INPUT = 3;
 	private static final int SECTION_DATA = 4;
 	private static final int SECTION_SEARCH_METRIC = 5;
+	private static final int SECTION_OPERATORS = 6;
+	private static final int SECTION_CONSTRAINT_HANDLING = 7;
+	private static final int SECTION_STORAGE = 8;
+	private static final int SECTION_AGGREGATION = 9;
+	private static final int SECTION_CORESET = 10;
+	private static final int SECTION_MINI_BATCH = 11;
+	private static final int SECTION_STREAMING = 12;
+	//a header with no lines following
+	private static final int SECTION_NONE_AFTER_HEADER = 13;
 
 	private static final Pattern PATTERN_DATA = Pattern.compile("\\s+");
 
@@ -56,22 +78,56 @@ public final class ProblemExtractor{
 	private ProblemExtractor(){}
 
 
+	/**
+	 * Reads a problem file.
+	 * <p>
+	 * The file is streamed: the rows of the data section are parsed in place, without creating a string for each of them, straight into a
+	 * buffer per column.
+	 * </p>
+	 *
+	 * <p>
+	 * The data can also be read from an external file, with {@code with data file <path> [text|csv|tsv|binary]} (the path being relative
+	 * to the problem file, the format being inferred from the extension if not given, see {@link DataFileLoader}).
+	 * </p>
+	 *
+	 * @param problemDataFile	The problem file.
+	 * @return	The problem.
+	 * @throws IOException	If an I/O error occurs.
+	 */
 	static ProblemData readProblemData(final Path problemDataFile) throws IOException{
-		final List<String> lines = Files.readAllLines(problemDataFile);
+		try(final CharLineReader reader = new CharLineReader(Files.newBufferedReader(problemDataFile, StandardCharsets.UTF_8))){
+			return readProblemData(reader, problemDataFile.toAbsolutePath().getParent());
+		}
+	}
 
+	private static ProblemData readProblemData(final CharLineReader reader, final Path baseDirectory) throws IOException{
 		SearchMode searchMode = null;
 		String expression = null;
 		final List<String> constraints = new ArrayList<>(0);
 		String[] dataInput = null;
-		final List<double[]> dataTableList = new ArrayList<>(1);
+		DoubleColumnBuffer[] dataColumns = null;
+		DataFileLoader.DataFile dataFile = null;
 		String objectiveSearchMetric = null;
+		final List<String[]> operatorDefinitions = new ArrayList<>(0);
+		String constraintHandling = null;
+		String storage = null;
+		String aggregation = null;
+		String coreset = null;
+		String miniBatch = null;
+		boolean incrementalRefit = false;
+		String streaming = null;
 
 		int section = SECTION_NONE;
-		for(String line : lines){
-			line = line.trim();
-			if(line.isEmpty() || line.charAt(0) == '#')
+		while(reader.nextLine()){
+			if(reader.isLineEmpty() || reader.firstChar() == '#')
 				continue;
 
+			if(section == SECTION_DATA && DataTableParser.isNumberStart(reader.firstChar())){
+				dataColumns = DataTableParser.parseRow(reader, dataColumns, DataTableParser.WHITESPACE);
+				continue;
+			}
+
+			final String line = reader.line();
 			if(section == SECTION_NONE){
 				if(line.equals(UPPER_BOUND_SEARCH))
 					searchMode = SearchMode.UPPER_BOUND;
@@ -91,6 +147,11 @@ public final class ProblemExtractor{
 				section = SECTION_INPUT;
 				continue;
 			}
+			else if(line.startsWith(WITH_DATA_FILE)){
+				dataFile = loadDataFile(line.substring(WITH_DATA_FILE.length()).trim(), baseDirectory);
+				section = SECTION_NONE_AFTER_HEADER;
+				continue;
+			}
 			else if(line.startsWith(WITH_DATA)){
 				section = SECTION_DATA;
 				continue;
@@ -99,6 +160,42 @@ public final class ProblemExtractor{
 				section = SECTION_SEARCH_METRIC;
 				continue;
 			}
+			else if(line.startsWith(WITH_OPERATORS)){
+				section = SECTION_OPERATORS;
+				continue;
+			}
+			else if(line.startsWith(WITH_CONSTRAINT_HANDLING)){
+				section = SECTION_CONSTRAINT_HANDLING;
+				continue;
+			}
+			else if(line.startsWith(WITH_STORAGE)){
+				section = SECTION_STORAGE;
+				continue;
+			}
+			else if(line.startsWith(WITH_AGGREGATION)){
+				section = SECTION_AGGREGATION;
+				continue;
+			}
+			else if(line.startsWith(WITH_CORESET)){
+				section = SECTION_CORESET;
+				continue;
+			}
+			else if(line.startsWith(WITH_MINI_BATCH)){
+				//the header alone selects the default schedule
+				miniBatch = "";
+				section = SECTION_MINI_BATCH;
+				continue;
+			}
+			else if(line.startsWith(WITH_INCREMENTAL_REFIT)){
+				//see IncrementalRefit
+				incrementalRefit = true;
+				section = SECTION_NONE_AFTER_HEADER;
+				continue;
+			}
+			else if(line.startsWith(WITH_STREAMING)){
+				section = SECTION_STREAMING;
+				continue;
+			}
 
 			if(section == SECTION_OBJECTIVE)
 				expression = line;
@@ -106,24 +203,79 @@ public final class ProblemExtractor{
 				constraints.add(line);
 			else if(section == SECTION_INPUT)
 				dataInput = PATTERN_DATA.split(line, -1);
-			else if(section == SECTION_DATA){
-				final String[] parts = PATTERN_DATA.split(line, -1);
-				final double[] row = Arrays.stream(parts)
-					.mapToDouble(Double::parseDouble)
-					.toArray();
-				dataTableList.add(row);
-			}
+			else if(section == SECTION_DATA)
+				//NaN or Infinity
+				dataColumns = DataTableParser.parseRow(reader, dataColumns, DataTableParser.WHITESPACE);
 			else if(section == SECTION_SEARCH_METRIC)
 				objectiveSearchMetric = line;
+			else if(section == SECTION_OPERATORS)
+				//operator, followed by optional sampling weight and evaluation cost
+				operatorDefinitions.add(PATTERN_DATA.split(line, -1));
+			else if(section == SECTION_CONSTRAINT_HANDLING)
+				constraintHandling = line;
+			else if(section == SECTION_STORAGE)
+				//`float64` (default) or `float32`, see DatasetContext
+				storage = line;
+			else if(section == SECTION_AGGREGATION)
+				//`duplicates`, see DuplicateAggregation
+				aggregation = line;
+			else if(section == SECTION_CORESET)
+				//`size <rows>` or `tolerance <tolerance>`, see Coreset
+				coreset = line;
+			else if(section == SECTION_MINI_BATCH)
+				//`<initial rows> [<growth>]`, see MiniBatchSchedule
+				miniBatch = line;
+			else if(section == SECTION_STREAMING)
+				//`window <rows> refit <rows> [decay <factor>]`, see StreamingEstimation
+				streaming = line;
 		}
 
-		final int totalSize = dataTableList.size();
-		final double[][] dataTable = new double[totalSize][];
-		for(int i = 0; i < totalSize; i ++)
-			dataTable[i] = dataTableList.get(i);
+		DoubleBuffer[] columns = DataTableParser.toColumns(dataColumns);
+		if(dataFile != null){
+			if(dataColumns != null)
+				throw new IllegalArgumentException("Both inline data and a data file were given");
+
+			columns = dataFile.columns();
+			if(dataInput == null)
+				dataInput = dataFile.columnNames();
+			else if(dataFile.columnNames() != null && !Arrays.equals(dataInput, dataFile.columnNames()))
+				throw new IllegalArgumentException("Inputs " + Arrays.toString(dataInput) + " do not match the columns of the data file "
+					+ Arrays.toString(dataFile.columnNames()));
+		}
 
 		final String[] constraintsArray = constraints.toArray(new String[constraints.size()]);
-		return new ProblemData(searchMode, expression, constraintsArray, dataInput, dataTable, objectiveSearchMetric);
+		final OperatorSet operators = (operatorDefinitions.isEmpty()
+			? OperatorSet.createDefault()
+			: OperatorSet.parse(operatorDefinitions));
+		return new ProblemData(searchMode, expression, constraintsArray, dataInput, columns, objectiveSearchMetric, operators,
+			constraintHandling, storage, aggregation, coreset, miniBatch, incrementalRefit,
+			streaming);
+	}
+
+	//`<path> [<format>]`, the path possibly enclosed in double quotes
+	private static DataFileLoader.DataFile loadDataFile(final String directive, final Path baseDirectory) throws IOException{
+		final String path;
+		String format = null;
+		if(!directive.isEmpty() && directive.charAt(0) == '"'){
+			final int closing = directive.indexOf('"', 1);
+			if(closing < 0)
+				throw new IllegalArgumentException("Unterminated data file path: " + directive);
+
+			path = directive.substring(1, closing);
+			final String rest = directive.substring(closing + 1).trim();
+			if(!rest.isEmpty())
+				format = rest;
+		}
+		else{
+			final String[] parts = PATTERN_DATA.split(directive, -1);
+			if(parts.length > 2)
+				throw new IllegalArgumentException("Invalid data file directive: " + directive);
+
+			path = parts[0];
+			if(parts.length == 2)
+				format = parts[1];
+		}
+		return DataFileLoader.load(baseDirectory.resolve(path), format);
 	}
 
 }
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import io.github.mtrevisan.equationfinder.objectives.DatasetContext;
+
+
+/**
+ * The last rows of a stream, kept in a ring buffer of bounded capacity, stored by column.
+ * <p>
+ * With a decay below one, each row is also weighted by {@code decay^age} (the newest row having age zero), so that the window is
+ * exponentially decayed, besides being truncated at its capacity.
+ * </p>
+ */
+final class SlidingWindow{
+
+	private final double[][] inputColumns;
+	private final double[] target;
+	private final double decay;
+
+	//index the next row is stored at
+	private int next;
+	private int size;
+
+
+	/**
+	 * @param inputCount	The number of inputs of a row (the target following them).
+	 * @param capacity	The maximum number of rows kept.
+	 * @param decay	The weight factor per row of age, in {@code (0, 1]} (one meaning no decay).
+	 */
+	SlidingWindow(final int inputCount, final int capacity, final double decay){
+		if(capacity < 1)
+			throw new IllegalArgumentException("The window capacity must be positive: " + capacity);
+		if(!(decay > 0. && decay <= 1.))
+			throw new IllegalArgumentException("The window decay must be in (0, 1]: " + decay);
+
+		inputColumns = new double[inputCount][capacity];
+		target = new double[capacity];
+		this.decay = decay;
+	}
+
+
+	/**
+	 * Adds a row, evicting the oldest one if the window is full.
+	 *
+	 * @param row	The inputs followed by the target.
+	 */
+	void add(final double[] row){
+		final int inputCount = inputColumns.length;
+		for(int j = 0; j < inputCount; j ++)
+			inputColumns[j][next] = row[j];
+		target[next] = row[inputCount];
+
+		next = (next + 1) % target.length;
+		if(size < target.length)
+			size ++;
+	}
+
+	int size(){
+		return size;
+	}
+
+	/**
+	 * Copies the rows of the window, from the oldest to the newest, into a dataset.
+	 *
+	 * @return	The dataset context of the window.
+	 */
+	DatasetContext toDataset(){
+		final int capacity = target.length;
+		//index of the oldest row
+		final int first = (size < capacity? 0: next);
+		final int head = Math.min(size, capacity - first);
+
+		final int inputCount = inputColumns.length;
+		final double[][] windowInputColumns = new double[inputCount][];
+		for(int j = 0; j < inputCount; j ++)
+			windowInputColumns[j] = unroll(inputColumns[j], first, head);
+		final double[] windowTarget = unroll(target, first, head);
+
+		double[] weights = null;
+		if(decay < 1.){
+			weights = new double[size];
+			double weight = 1.;
+			for(int i = size - 1; i >= 0; i --){
+				//keep the weight positive, should it underflow
+				weights[i] = Math.max(weight, Double.MIN_NORMAL);
+				weight *= decay;
+			}
+		}
+		return DatasetContext.create(windowInputColumns, windowTarget, weights);
+	}
+
+	//copy the ring buffer starting at `first`, wrapping around after `head` values
+	private double[] unroll(final double[] ring, final int first, final int head){
+		final double[] values = new double[size];
+		System.arraycopy(ring, first, values, 0, head);
+		System.arraycopy(ring, 0, values, head, size - head);
+		return values;
+	}
+
+}
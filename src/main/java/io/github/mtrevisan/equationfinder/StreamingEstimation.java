@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import io.github.mtrevisan.equationfinder.objectives.FusedObjective;
+import io.github.mtrevisan.equationfinder.objectives.ObjectivePenalty;
+import org.apache.commons.math3.optim.PointValuePair;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+
+/**
+ * Keeps the parameters of the expression of a problem fitted to the last rows of a stream.
+ * <p>
+ * The rows (inputs followed by the target, separated by whitespaces) are read from the standard input, or from a file that is followed
+ * as it grows, like {@code tail -f}; the rows of the data section of the problem, if any, seed the window.
+ * They are kept in a {@link SlidingWindow} and, every given number of rows, the parameters are re-optimized on the window starting from
+ * the previous solution (the first fit being done on the seeded window, if not empty). For each refit the size of the window, the
+ * ingestion throughput since the previous refit, the refit latency, the fitness, and the parameters are printed.
+ * </p>
+ * <p>
+ * The window is configured by the {@code with streaming} section of the problem: {@code window <rows> refit <rows> [decay <factor>]}.
+ * </p>
+ */
+public class StreamingEstimation{
+
+	private static final String SETTING_WINDOW = "window";
+	private static final String SETTING_REFIT = "refit";
+	private static final String SETTING_DECAY = "decay";
+
+	private static final int DEFAULT_WINDOW_SIZE = 10_000;
+	private static final int DEFAULT_REFIT_INTERVAL = 1_000;
+	private static final double DEFAULT_DECAY = 1.;
+
+	private static final int MAX_EVALUATIONS = 1_000;
+	//time to wait for a followed file to grow
+	private static final long POLL_INTERVAL_MILLIS = 200l;
+
+	private static final Pattern PATTERN_SETTINGS = Pattern.compile("\\s+");
+
+
+	/**
+	 * The configuration of the window.
+	 *
+	 * @param windowSize	The maximum number of rows in the window.
+	 * @param refitInterval	The number of rows read between refits.
+	 * @param decay	The weight factor per row of age (one meaning no decay).
+	 */
+	record Settings(int windowSize, int refitInterval, double decay){
+
+		/**
+		 * Parses the {@code with streaming} section of the problem.
+		 *
+		 * @param definition	The settings ({@code window <rows> refit <rows> [decay <factor>]}, each optional), or {@code null} for the
+		 * 	defaults.
+		 * @return	The settings.
+		 */
+		static Settings parse(final String definition){
+			int windowSize = DEFAULT_WINDOW_SIZE;
+			int refitInterval = DEFAULT_REFIT_INTERVAL;
+			double decay = DEFAULT_DECAY;
+			if(definition != null && !definition.isBlank()){
+				final String[] components = PATTERN_SETTINGS.split(definition.trim(), -1);
+				if(components.length % 2 != 0)
+					throw new IllegalArgumentException("Unknown streaming definition: " + definition + ", expected `" + SETTING_WINDOW
+						+ " <rows> " + SETTING_REFIT + " <rows> [" + SETTING_DECAY + " <factor>]`");
+
+				for(int i = 0, length = components.length; i < length; i += 2){
+					final String value = components[i + 1];
+					switch(components[i]){
+						case SETTING_WINDOW -> windowSize = Integer.parseInt(value);
+						case SETTING_REFIT -> refitInterval = Integer.parseInt(value);
+						case SETTING_DECAY -> decay = Double.parseDouble(value);
+						default -> throw new IllegalArgumentException("Unknown streaming setting: " + components[i]);
+					}
+				}
+			}
+			if(windowSize < 1)
+				throw new IllegalArgumentException("The window size must be positive: " + windowSize);
+			if(refitInterval < 1)
+				throw new IllegalArgumentException("The refit interval must be positive: " + refitInterval);
+
+			if(!(decay > 0. && decay <= 1.))
+				throw new IllegalArgumentException("The decay must be in (0, 1]: " + decay);
+
+			return new Settings(windowSize, refitInterval, decay);
+		}
+
+	}
+
+
+	/**
+	 * @param args	The problem file, optionally followed by the data file to be followed (the standard input being read otherwise).
+	 * @throws IOException	If an I/O error occurs.
+	 */
+	public static void main(final String[] args) throws IOException{
+		if(args.length < 1)
+			throw new IllegalArgumentException("Usage: StreamingEstimation <problem file> [<data file>]");
+
+		final ProblemData problemData = ProblemExtractor.readProblemData(Paths.get(args[0]));
+		final Settings settings = Settings.parse(problemData.streaming());
+
+		final String expression = problemData.expression();
+		final String[] dataInput = problemData.dataInput();
+		final boolean augmentedLagrangian = AugmentedLagrangian.CONSTRAINT_HANDLING_AUGMENTED_LAGRANGIAN
+			.equals(problemData.constraintHandling());
+
+		final ModelFunction function = ExpressionExtractor.parseExpression(expression, dataInput);
+		final List<String> parameters = ExpressionExtractor.extractVariables(expression);
+		final int parameterCount = ParameterEstimation.getParameterCount(parameters, dataInput);
+		final ConstraintProgram.Binding binding = ConstraintProgram.compile(problemData.constraints())
+			.bind(parameterCount);
+
+		final SlidingWindow window = new SlidingWindow(dataInput.length, settings.windowSize(), settings.decay());
+		final double[] seedRow = new double[dataInput.length + 1];
+		for(int i = 0, length = problemData.rowCount(); i < length; i ++)
+			window.add(problemData.row(i, seedRow));
+		problemData.releaseData();
+
+		double[] solution = new double[parameterCount];
+		Arrays.fill(solution, 1.);
+		if(window.size() > 0){
+			final long refitStart = System.nanoTime();
+			final PointValuePair result = refit(window, problemData, function, binding, augmentedLagrangian, solution);
+			solution = result.getPoint();
+
+			System.out.println("seed: rows " + window.size()
+				+ ", refit latency " + ((System.nanoTime() - refitStart) / 1.e6) + " ms"
+				+ ", fitness: " + result.getValue()
+				+ ", params: " + Arrays.toString(solution));
+		}
+
+		final Reader source = (args.length > 1
+			? new TailingReader(Files.newBufferedReader(Path.of(args[1]), StandardCharsets.UTF_8), POLL_INTERVAL_MILLIS)
+			: new InputStreamReader(System.in, StandardCharsets.UTF_8));
+		try(final CharLineReader reader = new CharLineReader(source)){
+			final double[] row = new double[dataInput.length + 1];
+			int windowIndex = 0;
+			int pendingRows = 0;
+			long lastRefitEnd = System.nanoTime();
+			while(reader.nextLine()){
+				if(reader.isLineEmpty() || reader.firstChar() == '#')
+					continue;
+
+				DataTableParser.parseRow(reader, row, DataTableParser.WHITESPACE);
+				window.add(row);
+				if(++ pendingRows < settings.refitInterval())
+					continue;
+
+				//re-optimize on the window, from the previous solution
+				final long refitStart = System.nanoTime();
+				final PointValuePair result = refit(window, problemData, function, binding, augmentedLagrangian, solution);
+				solution = result.getPoint();
+				final long refitEnd = System.nanoTime();
+
+				System.out.println("window " + windowIndex
+					+ ": rows " + window.size()
+					+ ", throughput " + (pendingRows * 1.e9 / (refitStart - lastRefitEnd)) + " rows/s"
+					+ ", refit latency " + ((refitEnd - refitStart) / 1.e6) + " ms"
+					+ ", fitness: " + result.getValue()
+					+ ", params: " + Arrays.toString(solution));
+
+				windowIndex ++;
+				pendingRows = 0;
+				lastRefitEnd = refitEnd;
+			}
+		}
+	}
+
+	/**
+	 * Optimizes the parameters on the rows of the window, the same way {@link ParameterEstimation} does on the whole data.
+	 *
+	 * @param window	The window.
+	 * @param problemData	The problem.
+	 * @param function	The model.
+	 * @param binding	The constraints, bound to the parameters of the model.
+	 * @param augmentedLagrangian	Whether the constraints are handled by the augmented Lagrangian method instead of by a penalty.
+	 * @param initialGuess	The starting point.
+	 * @return	The parameters found, with their fitness (penalty of the constraints included).
+	 */
+	private static PointValuePair refit(final SlidingWindow window, final ProblemData problemData, final ModelFunction function,
+			final ConstraintProgram.Binding binding, final boolean augmentedLagrangian, final double[] initialGuess){
+		final SearchMode searchMode = problemData.searchMode();
+		final FusedObjective objective = ParameterEstimation.createObjective(problemData.searchMetric(), function, window.toDataset());
+		final double[] solution = ParameterEstimation.estimate(objective, binding, searchMode, augmentedLagrangian, initialGuess,
+			MAX_EVALUATIONS);
+		final double fitness = new ObjectivePenalty(objective, binding.allConstraints(), searchMode)
+			.value(solution);
+		return new PointValuePair(solution, fitness);
+	}
+
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+
+
+/**
+ * A reader that, like {@code tail -f}, waits for more characters at the end of the underlying reader (e.g. a file still being written)
+ * instead of reporting the end of the stream.
+ */
+final class TailingReader extends Reader{
+
+	private final Reader reader;
+	private final long pollIntervalMillis;
+
+
+	/**
+	 * @param reader	The underlying reader.
+	 * @param pollIntervalMillis	The time to wait before trying again to read past the end of the underlying reader.
+	 */
+	TailingReader(final Reader reader, final long pollIntervalMillis){
+		this.reader = reader;
+		this.pollIntervalMillis = pollIntervalMillis;
+	}
+
+
+	@Override
+	public int read(final char[] buffer, final int offset, final int length) throws IOException{
+		while(true){
+			final int read = reader.read(buffer, offset, length);
+			if(read >= 0)
+				return read;
+
+			try{
+				Thread.sleep(pollIntervalMillis);
+			}
+			catch(final InterruptedException ie){
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for more data");
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException{
+		reader.close();
+	}
+
+}
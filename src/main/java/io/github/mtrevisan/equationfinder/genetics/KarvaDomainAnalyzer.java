@@ -0,0 +1,325 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.genetics;
+
+import java.util.List;
+
+
+/**
+ * Interval-arithmetic analysis of a Karva expression over the range of its inputs and parameters.
+ * <p>
+ * It proves, without evaluating the expression on the data, whether the expression is undefined everywhere (e.g. the logarithm of an
+ * input that is always negative), or constant (it does not depend on the inputs, or it evaluates to a single value over their range).
+ * The analysis is conservative: an expression is reported as {@link Domain#DEFINED} whenever nothing can be proved.
+ * </p>
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Interval_arithmetic">Interval arithmetic</a>
+ */
+public final class KarvaDomainAnalyzer{
+
+	public enum Domain{
+		/** The expression may be defined and depend on the inputs. */
+		DEFINED,
+		/** The expression is undefined for every value of inputs and parameters. */
+		UNDEFINED,
+		/** The expression does not vary with the inputs. */
+		CONSTANT
+	}
+
+
+	private static final String PARAMETER_PREFIX = "p";
+
+	private static final double HALF_PI = Math.PI / 2.;
+	private static final double TWO_PI = Math.PI * 2.;
+
+
+	private record Interval(double low, double high){
+
+		private static final Interval EMPTY = new Interval(Double.NaN, Double.NaN);
+		private static final Interval REAL = new Interval(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+		private static final Interval UNIT = new Interval(-1., 1.);
+
+		private static Interval of(final double low, final double high){
+			//an undefined bound is replaced by the widest one
+			return new Interval((Double.isNaN(low)? Double.NEGATIVE_INFINITY: low), (Double.isNaN(high)? Double.POSITIVE_INFINITY: high));
+		}
+
+		private boolean isEmpty(){
+			return Double.isNaN(low);
+		}
+
+		private boolean isPoint(){
+			return (low == high && Double.isFinite(low));
+		}
+
+		private boolean contains(final double value){
+			return (low <= value && value <= high);
+		}
+
+	}
+
+
+	private KarvaDomainAnalyzer(){}
+
+
+	/**
+	 * Analyzes the domain of the given expression.
+	 *
+	 * @param karva	The Karva expression.
+	 * @param inputs	The names of the inputs.
+	 * @param inputLow	The minimum value of each input.
+	 * @param inputHigh	The maximum value of each input.
+	 * @param parameterLow	The lower bound of each parameter ({@code p0}, {@code p1}, ...), missing parameters are unbounded.
+	 * @param parameterHigh	The upper bound of each parameter ({@code p0}, {@code p1}, ...), missing parameters are unbounded.
+	 * @return	The domain of the expression.
+	 */
+	public static Domain analyze(final KarvaExpression karva, final String[] inputs, final double[] inputLow, final double[] inputHigh,
+			final double[] parameterLow, final double[] parameterHigh){
+		if(karva.isEmpty())
+			return Domain.UNDEFINED;
+
+		return analyze(KarvaToInfixConverter.buildTree(karva), inputs, inputLow, inputHigh, parameterLow, parameterHigh);
+	}
+
+	/**
+	 * Analyzes the domain of the given expression.
+	 *
+	 * @param expression	The normalized expression.
+	 * @param inputs	The names of the inputs.
+	 * @param inputLow	The minimum value of each input.
+	 * @param inputHigh	The maximum value of each input.
+	 * @param parameterLow	The lower bound of each parameter ({@code p0}, {@code p1}, ...), missing parameters are unbounded.
+	 * @param parameterHigh	The upper bound of each parameter ({@code p0}, {@code p1}, ...), missing parameters are unbounded.
+	 * @return	The domain of the expression.
+	 */
+	public static Domain analyze(final NormalizedExpression expression, final String[] inputs, final double[] inputLow,
+			final double[] inputHigh, final double[] parameterLow, final double[] parameterHigh){
+		if(expression.isEmpty())
+			return Domain.UNDEFINED;
+
+		return analyze(expression.root, inputs, inputLow, inputHigh, parameterLow, parameterHigh);
+	}
+
+	private static Domain analyze(final KarvaToInfixConverter.Node root, final String[] inputs, final double[] inputLow,
+			final double[] inputHigh, final double[] parameterLow, final double[] parameterHigh){
+		final Interval range = evaluate(root, inputs, inputLow, inputHigh, parameterLow, parameterHigh);
+		if(range.isEmpty())
+			return Domain.UNDEFINED;
+		if(range.isPoint() || !dependsOnInputs(root, inputs))
+			return Domain.CONSTANT;
+		return Domain.DEFINED;
+	}
+
+	private static boolean dependsOnInputs(final KarvaToInfixConverter.Node node, final String[] inputs){
+		if(indexOf(inputs, node.value) >= 0)
+			return true;
+
+		final List<KarvaToInfixConverter.Node> children = node.children;
+		for(int i = 0, length = children.size(); i < length; i ++)
+			if(dependsOnInputs(children.get(i), inputs))
+				return true;
+		return false;
+	}
+
+	private static Interval evaluate(final KarvaToInfixConverter.Node node, final String[] inputs, final double[] inputLow,
+			final double[] inputHigh, final double[] parameterLow, final double[] parameterHigh){
+		final List<KarvaToInfixConverter.Node> children = node.children;
+		final int arity = children.size();
+		if(arity == 0)
+			return leaf(node.value, inputs, inputLow, inputHigh, parameterLow, parameterHigh);
+
+		final Interval[] arguments = new Interval[arity];
+		for(int i = 0; i < arity; i ++){
+			arguments[i] = evaluate(children.get(i), inputs, inputLow, inputHigh, parameterLow, parameterHigh);
+			if(arguments[i].isEmpty())
+				return Interval.EMPTY;
+		}
+		if(arity != KarvaToInfixConverter.OPERATOR_ARITY.getOrDefault(node.value, 0))
+			//incomplete tree
+			return Interval.REAL;
+
+		final Interval a = arguments[0];
+		final Interval b = (arity > 1? arguments[1]: null);
+		return switch(node.value){
+			case "+" -> Interval.of(a.low + b.low, a.high + b.high);
+			case "-" -> Interval.of(a.low - b.high, a.high - b.low);
+			case "*" -> multiply(a, b);
+			case "/" -> divide(a, b);
+
+			case "sin" -> sine(a);
+			case "cos" -> sine(Interval.of(a.low + HALF_PI, a.high + HALF_PI));
+			case "tan" -> tangent(a);
+			case "asin" -> increasing(intersect(a, Interval.UNIT), StrictMath::asin);
+			case "acos" -> decreasing(intersect(a, Interval.UNIT), StrictMath::acos);
+			case "atan" -> increasing(a, StrictMath::atan);
+			case "atan2" -> new Interval(-Math.PI, Math.PI);
+
+			case "sinh" -> increasing(a, StrictMath::sinh);
+			case "cosh" -> (a.contains(0.)
+				? Interval.of(1., Math.max(StrictMath.cosh(a.low), StrictMath.cosh(a.high)))
+				: (a.low > 0.? increasing(a, StrictMath::cosh): decreasing(a, StrictMath::cosh)));
+			case "tanh" -> increasing(a, StrictMath::tanh);
+
+			case "exp" -> increasing(a, StrictMath::exp);
+			case "log" -> (a.high <= 0.
+				? Interval.EMPTY
+				: Interval.of((a.low <= 0.? Double.NEGATIVE_INFINITY: StrictMath.log(a.low)), StrictMath.log(a.high)));
+			case "sqrt" -> increasing(intersect(a, new Interval(0., Double.POSITIVE_INFINITY)), StrictMath::sqrt);
+			case "cbrt" -> increasing(a, StrictMath::cbrt);
+			case "pow" -> power(a, b);
+			case "hypot" -> Interval.of(StrictMath.hypot(minimumMagnitude(a), minimumMagnitude(b)),
+				StrictMath.hypot(maximumMagnitude(a), maximumMagnitude(b)));
+
+			case "ceil" -> increasing(a, StrictMath::ceil);
+			case "floor" -> increasing(a, StrictMath::floor);
+			case "round" -> increasing(a, value -> (double)StrictMath.round(value));
+			case "floorDiv", "floorMod", "ceilDiv", "ceilMod" -> (b.low == 0. && b.high == 0.? Interval.EMPTY: Interval.REAL);
+			case "abs" -> Interval.of(minimumMagnitude(a), maximumMagnitude(a));
+			case "clamp" -> {
+				final Interval c = arguments[2];
+				yield Interval.of(Math.min(Math.max(a.low, b.low), c.low), Math.min(Math.max(a.high, b.high), c.high));
+			}
+			case "signum" -> increasing(a, StrictMath::signum);
+
+			case "max" -> Interval.of(Math.max(a.low, b.low), Math.max(a.high, b.high));
+			case "min" -> Interval.of(Math.min(a.low, b.low), Math.min(a.high, b.high));
+
+			default -> Interval.REAL;
+		};
+	}
+
+	private static Interval leaf(final String token, final String[] inputs, final double[] inputLow, final double[] inputHigh,
+			final double[] parameterLow, final double[] parameterHigh){
+		final int inputIndex = indexOf(inputs, token);
+		if(inputIndex >= 0)
+			return Interval.of(inputLow[inputIndex], inputHigh[inputIndex]);
+
+		if(token.startsWith(PARAMETER_PREFIX)){
+			try{
+				final int parameterIndex = Integer.parseInt(token.substring(PARAMETER_PREFIX.length()));
+				if(parameterIndex < parameterLow.length)
+					return Interval.of(parameterLow[parameterIndex], parameterHigh[parameterIndex]);
+			}
+			catch(final NumberFormatException ignored){}
+		}
+		return Interval.REAL;
+	}
+
+	private static int indexOf(final String[] names, final String name){
+		for(int i = 0, length = names.length; i < length; i ++)
+			if(names[i].equals(name))
+				return i;
+		return -1;
+	}
+
+
+	@FunctionalInterface
+	private interface Function{
+		double apply(double value);
+	}
+
+	private static Interval increasing(final Interval a, final Function function){
+		return (a.isEmpty()? a: Interval.of(function.apply(a.low), function.apply(a.high)));
+	}
+
+	private static Interval decreasing(final Interval a, final Function function){
+		return (a.isEmpty()? a: Interval.of(function.apply(a.high), function.apply(a.low)));
+	}
+
+	private static Interval intersect(final Interval a, final Interval b){
+		final double low = Math.max(a.low, b.low);
+		final double high = Math.min(a.high, b.high);
+		return (low <= high? new Interval(low, high): Interval.EMPTY);
+	}
+
+	private static Interval multiply(final Interval a, final Interval b){
+		final double ll = product(a.low, b.low);
+		final double lh = product(a.low, b.high);
+		final double hl = product(a.high, b.low);
+		final double hh = product(a.high, b.high);
+		return Interval.of(Math.min(Math.min(ll, lh), Math.min(hl, hh)), Math.max(Math.max(ll, lh), Math.max(hl, hh)));
+	}
+
+	//in interval arithmetic `0 · ∞ = 0`
+	private static double product(final double a, final double b){
+		return (a == 0. || b == 0.? 0.: a * b);
+	}
+
+	private static Interval divide(final Interval a, final Interval b){
+		if(b.low == 0. && b.high == 0.)
+			return Interval.EMPTY;
+		if(b.contains(0.))
+			return Interval.REAL;
+
+		return multiply(a, new Interval(1. / b.high, 1. / b.low));
+	}
+
+	private static Interval sine(final Interval a){
+		if(!Double.isFinite(a.low) || !Double.isFinite(a.high) || a.high - a.low >= TWO_PI)
+			return Interval.UNIT;
+
+		final double sinLow = StrictMath.sin(a.low);
+		final double sinHigh = StrictMath.sin(a.high);
+		double low = Math.min(sinLow, sinHigh);
+		double high = Math.max(sinLow, sinHigh);
+		//check whether a maximum (π/2 + 2kπ) or a minimum (-π/2 + 2kπ) falls inside the interval
+		if(Math.ceil((a.low - HALF_PI) / TWO_PI) <= Math.floor((a.high - HALF_PI) / TWO_PI))
+			high = 1.;
+		if(Math.ceil((a.low + HALF_PI) / TWO_PI) <= Math.floor((a.high + HALF_PI) / TWO_PI))
+			low = -1.;
+		return new Interval(low, high);
+	}
+
+	private static Interval tangent(final Interval a){
+		if(!Double.isFinite(a.low) || !Double.isFinite(a.high) || a.high - a.low >= Math.PI)
+			return Interval.REAL;
+
+		//check whether a pole (π/2 + kπ) falls inside the interval
+		if(Math.ceil((a.low - HALF_PI) / Math.PI) <= Math.floor((a.high - HALF_PI) / Math.PI))
+			return Interval.REAL;
+		return increasing(a, StrictMath::tan);
+	}
+
+	private static Interval power(final Interval base, final Interval exponent){
+		if(base.low > 0.){
+			//`exp(exponent · log(base))`
+			final Interval logBase = Interval.of(StrictMath.log(base.low), StrictMath.log(base.high));
+			return increasing(multiply(exponent, logBase), StrictMath::exp);
+		}
+		if(base.high < 0. && exponent.isPoint() && exponent.low != Math.rint(exponent.low))
+			//negative base to a non-integer power
+			return Interval.EMPTY;
+		return Interval.REAL;
+	}
+
+	private static double minimumMagnitude(final Interval a){
+		return (a.contains(0.)? 0.: Math.min(Math.abs(a.low), Math.abs(a.high)));
+	}
+
+	private static double maximumMagnitude(final Interval a){
+		return Math.max(Math.abs(a.low), Math.abs(a.high));
+	}
+
+}
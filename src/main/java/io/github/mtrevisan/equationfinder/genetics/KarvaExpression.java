@@ -25,7 +25,6 @@
 package io.github.mtrevisan.equationfinder.genetics;
 
 import java.util.Arrays;
-import java.util.Map;
 import java.util.Random;
 
 
@@ -37,10 +36,13 @@ public class KarvaExpression{
 
 	private static final Random RANDOM = new Random(System.currentTimeMillis());
 
+	private static final String PARAMETER_PREFIX = "p";
+
 
 	//list of functions, variables, and constants, in level-order
 	private final String[] gene;
 	private final int headLength;
+	//number of parameter slots in use (`p0` to `p(parameterCount - 1)`)
 	private final int parameterCount;
 
 
@@ -50,23 +52,19 @@ public class KarvaExpression{
 
 	/**
 	 * Generates a random Karva expression.
+	 * <p>
+	 * The root is always an operator (an expression made of a single terminal cannot be fitted), the tail is made of terminals only, and
+	 * long enough for every head to be complete, so the generated gene always encodes a valid expression.
+	 * </p>
 	 *
 	 * @param maxNumberOfOperators	The maximum number of operators.
+	 * @param operators	The operators to draw from.
+	 * @param inputs	The inputs.
 	 * @return	A Karva expression.
 	 */
-	public static KarvaExpression createRandom(final int maxNumberOfOperators, final Map<String, Integer> operatorArity,
-			final String[] inputs){
-		final int operatorCount = operatorArity.size();
-		final String[] operators = operatorArity.keySet()
-			.toArray(new String[operatorCount]);
-		final int minArgs = operatorArity.values()
-			.stream()
-			.min(Integer::compareTo)
-			.get();
-		final int maxArgs = operatorArity.values()
-			.stream()
-			.max(Integer::compareTo)
-			.get();
+	public static KarvaExpression createRandom(final int maxNumberOfOperators, final OperatorSet operators, final String[] inputs){
+		final int minArgs = operators.minArity();
+		final int maxArgs = operators.maxArity();
 
 		//ensure at least 2 nodes
 		final int headLength = RANDOM.nextInt(maxNumberOfOperators - 2) + 2;
@@ -79,27 +77,42 @@ public class KarvaExpression{
 		//generate head (operators and functions)
 		int index = 0;
 		final int inputCount = inputs.length;
-		int parameterCount = 1;
-		for(int i = 0; i < headLength; i ++){
+		final int[] parameterCount = new int[1];
+		gene[index ++] = operators.sample(RANDOM);
+		for(int i = 1; i < headLength; i ++){
 			final int type = RANDOM.nextInt(3);
 			//add function to head
 			if(type == 0)
-				gene[index ++] = operators[RANDOM.nextInt(operatorCount)];
+				gene[index ++] = operators.sample(RANDOM);
 			//add variable to head
 			else if(type == 1)
 				gene[index ++] = inputs[RANDOM.nextInt(inputCount)];
 			//add constant to head
 			else if(type == 2)
-				gene[index ++] = "p" + RANDOM.nextInt(parameterCount ++);
+				gene[index ++] = nextParameter(parameterCount);
 		}
 
 		//generate tail (variables and constants)
 		for(int i = 0; i < tailLength; i ++)
 			gene[index ++] = (RANDOM.nextBoolean()
 				? inputs[RANDOM.nextInt(inputCount)]
-				: "p" + RANDOM.nextInt(parameterCount ++));
+				: nextParameter(parameterCount));
 
-		return create(gene, headLength, parameterCount);
+		return create(gene, headLength, parameterCount[0]);
+	}
+
+	/**
+	 * Picks either one of the parameters already in use, or the next free one, so that the slots in use are always contiguous and a new
+	 * parameter becomes less likely the more parameters there are.
+	 *
+	 * @param parameterCount	The number of parameter slots in use, updated if a new one is allocated.
+	 * @return	The name of the parameter.
+	 */
+	private static String nextParameter(final int[] parameterCount){
+		final int index = RANDOM.nextInt(parameterCount[0] + 1);
+		if(index == parameterCount[0])
+			parameterCount[0] ++;
+		return PARAMETER_PREFIX + index;
 	}
 
 
@@ -114,46 +127,45 @@ public class KarvaExpression{
 		return gene[index];
 	}
 
-	//Simple mutation
-	public KarvaExpression generateMutation(final int startIndex, final int length, final Map<String, Integer> operatorArity,
-			final String[] inputs){
-		final int operatorCount = operatorArity.size();
-		final String[] operators = operatorArity.keySet()
-			.toArray(new String[operatorCount]);
-
+	//Simple mutation (the root stays an operator, the tail stays made of terminals)
+	public KarvaExpression generateMutation(final int startIndex, final int length, final OperatorSet operators, final String[] inputs){
 		final String[] newGene = Arrays.copyOf(gene, gene.length);
+		final int[] newParameterCount = {parameterCount};
 		if(startIndex >= 0 && length > 0
 				&& startIndex + length <= gene.length){
 			final int inputCount = inputs.length;
 			for(int i = 0; i < length; i ++){
-				if(i + startIndex < headLength){
+				if(i + startIndex == 0)
+					//mutate root
+					newGene[0] = operators.sample(RANDOM);
+				else if(i + startIndex < headLength){
 					//mutate head
 					final int type = RANDOM.nextInt(3);
 					//add function to head
 					if(type == 0)
-						newGene[i + startIndex] = operators[RANDOM.nextInt(operatorCount)];
+						newGene[i + startIndex] = operators.sample(RANDOM);
 					//add variable to head
 					else if(type == 1)
 						newGene[i + startIndex] = inputs[RANDOM.nextInt(inputCount)];
 					//add constant to head
 					else if(type == 2)
-						newGene[i + startIndex] = "p" + RANDOM.nextInt(parameterCount);
+						newGene[i + startIndex] = nextParameter(newParameterCount);
 				}
 				else
 					//mutate tail
 					newGene[i + startIndex] = (RANDOM.nextBoolean()
 						? inputs[RANDOM.nextInt(inputCount)]
-						: "p" + RANDOM.nextInt(parameterCount));
+						: nextParameter(newParameterCount));
 			}
 		}
-		return new KarvaExpression(newGene, headLength, parameterCount);
+		return new KarvaExpression(newGene, headLength, newParameterCount[0]);
 	}
 
-	//Reverse a segment of the gene
+	//Reverse a segment of the gene (a segment crossing the boundary between head and tail is left untouched)
 	public KarvaExpression generateInversion(final int startIndex, final int length){
 		final String[] newGene = Arrays.copyOf(gene, gene.length);
 		if(startIndex >= 0 && length > 1
-				&& startIndex + length <= gene.length){
+				&& startIndex + length <= gene.length && isInsideOneRegion(startIndex, length)){
 			int left = startIndex;
 			int right = startIndex + length - 1;
 			while(left < right){
@@ -164,11 +176,15 @@ public class KarvaExpression{
 				left ++;
 				right --;
 			}
+
+			if(!isOperator(newGene[0]))
+				//the root would become a terminal
+				return this;
 		}
 		return new KarvaExpression(newGene, headLength, parameterCount);
 	}
 
-	//Copy a segment of the gene to a different position
+	//Copy a segment of the gene to a different position (operators are never copied into the tail, nor terminals into the root)
 	public KarvaExpression generateTransposition(final int originIndex, final int targetIndex, final int length){
 		final String[] newGene = Arrays.copyOf(gene, gene.length);
 		if(originIndex >= 0 && targetIndex >= 0 && length > 0
@@ -176,64 +192,88 @@ public class KarvaExpression{
 			final String[] segment = new String[length];
 			System.arraycopy(newGene, originIndex, segment, 0, length);
 
+			if(targetIndex + length > headLength)
+				for(int i = Math.max(headLength - targetIndex, 0); i < length; i ++)
+					if(isOperator(segment[i]))
+						return this;
+			if(targetIndex == 0 && !isOperator(segment[0]))
+				return this;
+
 			//insert the group at the target position
 			System.arraycopy(segment, 0, newGene, targetIndex, length);
 		}
 		return new KarvaExpression(newGene, headLength, parameterCount);
 	}
 
-	//Exchange genetic material between two genes
+	/**
+	 * Exchange genetic material between two genes.
+	 * <p>
+	 * The genes are aligned head with head and tail with tail (see {@link #alignedLength(KarvaExpression)}), so that each offspring keeps
+	 * the shape of its parent and never receives an operator in its tail.
+	 * </p>
+	 *
+	 * @param otherExpression	The other parent.
+	 * @param crossoverPoint	The crossover point, in aligned positions.
+	 * @return	The two offsprings.
+	 */
 	public KarvaExpression[] generateRecombinationOnePoint(final KarvaExpression otherExpression, final int crossoverPoint){
-		final String[] newGene1 = Arrays.copyOf(gene, otherExpression.gene.length);
-		final String[] newGene2 = Arrays.copyOf(otherExpression.gene, gene.length);
-		if(crossoverPoint >= 0
-				&& crossoverPoint <= gene.length && crossoverPoint <= otherExpression.length()){
-			//create temporary arrays to hold the segments to be swapped
-			final String[] segment1 = new String[gene.length - crossoverPoint];
-			final String[] segment2 = new String[otherExpression.gene.length - crossoverPoint];
-			//copy the segments to be swapped
-			System.arraycopy(gene, crossoverPoint, segment1, 0, segment1.length);
-			System.arraycopy(otherExpression.gene, crossoverPoint, segment2, 0, segment2.length);
-
-			//swap the segments
-			System.arraycopy(segment2, 0, newGene1, crossoverPoint, segment2.length);
-			System.arraycopy(segment1, 0, newGene2, crossoverPoint, segment1.length);
-		}
-		return new KarvaExpression[]{
-			new KarvaExpression(newGene1, headLength, parameterCount),
-			new KarvaExpression(newGene2, otherExpression.headLength, otherExpression.parameterCount)
-		};
+		return generateRecombinationTwoPoint(otherExpression, crossoverPoint, alignedLength(otherExpression));
 	}
 
-	//Exchange genetic material between two genes
+	/**
+	 * Exchange genetic material between two genes.
+	 * <p>
+	 * The genes are aligned head with head and tail with tail (see {@link #alignedLength(KarvaExpression)}), so that each offspring keeps
+	 * the shape of its parent and never receives an operator in its tail.
+	 * </p>
+	 *
+	 * @param otherExpression	The other parent.
+	 * @param crossoverPoint1	The start of the segment to swap, in aligned positions.
+	 * @param crossoverPoint2	The end of the segment to swap (excluded), in aligned positions.
+	 * @return	The two offsprings.
+	 */
 	public KarvaExpression[] generateRecombinationTwoPoint(final KarvaExpression otherExpression, final int crossoverPoint1,
 			final int crossoverPoint2){
 		final String[] newGene1 = Arrays.copyOf(gene, gene.length);
 		final String[] newGene2 = Arrays.copyOf(otherExpression.gene, otherExpression.gene.length);
-		if(crossoverPoint1 >= 0 && crossoverPoint2 >= 0 && crossoverPoint1 + 1 < crossoverPoint2
-				&& crossoverPoint1 <= gene.length && crossoverPoint1 <= otherExpression.length()
-				&& crossoverPoint2 <= gene.length && crossoverPoint2 <= otherExpression.length()){
-			//length of the segment to swap
-			final int segmentLength = crossoverPoint2 - crossoverPoint1;
-
-			//temporary buffers to hold the segments to be swapped
-			final String[] segment1 = new String[segmentLength];
-			final String[] segment2 = new String[segmentLength];
-
-			//copy segments from crossover points
-			System.arraycopy(gene, crossoverPoint1, segment1, 0, segmentLength);
-			System.arraycopy(otherExpression.gene, crossoverPoint1, segment2, 0, segmentLength);
-
+		final int alignedLength = alignedLength(otherExpression);
+		if(crossoverPoint1 >= 0 && crossoverPoint1 < crossoverPoint2 && crossoverPoint2 <= alignedLength){
+			final int commonHeadLength = Math.min(headLength, otherExpression.headLength);
 			//swap segments between offspring
-			System.arraycopy(segment2, 0, newGene1, crossoverPoint1, segmentLength);
-			System.arraycopy(segment1, 0, newGene2, crossoverPoint1, segmentLength);
+			for(int i = crossoverPoint1; i < crossoverPoint2; i ++){
+				final int index1 = (i < commonHeadLength? i: headLength + i - commonHeadLength);
+				final int index2 = (i < commonHeadLength? i: otherExpression.headLength + i - commonHeadLength);
+				newGene1[index1] = otherExpression.gene[index2];
+				newGene2[index2] = gene[index1];
+			}
 		}
+		final int newParameterCount = Math.max(parameterCount, otherExpression.parameterCount);
 		return new KarvaExpression[]{
-			new KarvaExpression(newGene1, headLength, parameterCount),
-			new KarvaExpression(newGene2, otherExpression.headLength, otherExpression.parameterCount)
+			new KarvaExpression(newGene1, headLength, newParameterCount),
+			new KarvaExpression(newGene2, otherExpression.headLength, newParameterCount)
 		};
 	}
 
+	/**
+	 * The number of positions two genes have in common once aligned head with head and tail with tail: the first positions are those of
+	 * the shorter head, the others are those of the shorter tail.
+	 *
+	 * @param otherExpression	The other gene.
+	 * @return	The number of aligned positions.
+	 */
+	public int alignedLength(final KarvaExpression otherExpression){
+		return Math.min(headLength, otherExpression.headLength)
+			+ Math.min(gene.length - headLength, otherExpression.gene.length - otherExpression.headLength);
+	}
+
+	private boolean isInsideOneRegion(final int startIndex, final int length){
+		return (startIndex + length <= headLength || startIndex >= headLength);
+	}
+
+	private static boolean isOperator(final String token){
+		return KarvaToInfixConverter.OPERATOR_ARITY.containsKey(token);
+	}
+
 	public boolean isEmpty(){
 		return (gene == null || gene.length == 0);
 	}
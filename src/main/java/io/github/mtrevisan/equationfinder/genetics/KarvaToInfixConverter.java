@@ -125,12 +125,16 @@ public final class KarvaToInfixConverter{
 
 		final Node root = buildTree(karva);
 
+		return convertToEquation(root);
+	}
+
+	static String convertToEquation(final Node root){
 		final List<String> result = postOrderTraversal(root);
 
 		return toExpression(result);
 	}
 
-	private static Node buildTree(final KarvaExpression karva){
+	static Node buildTree(final KarvaExpression karva){
 		//construct the tree using level-order and arity information
 		final LinkedList<Node> queue = new LinkedList<>();
 		int index = 0;
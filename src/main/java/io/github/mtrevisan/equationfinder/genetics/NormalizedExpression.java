@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.genetics;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+
+/**
+ * The canonical form of the expressed part of a Karva expression, where the parameters are the minimal set needed.
+ * <p>
+ * The normalization:
+ * <ul>
+ *    <li>collapses every sub-expression that does not depend on the inputs (e.g. {@code p0 * p1}, or {@code sin(p2)}) into a new
+ *    parameter, since the optimizer can reach the same value with one degree of freedom only (a new one, because the parameters
+ *    of the sub-expression may also appear elsewhere);</li>
+ *    <li>renames the parameters in order of first appearance to {@code p0}, ..., {@code p(k-1)}, so the optimizer works in the minimal
+ *    dimension and parameters are indexed by position, as the evaluator expects.</li>
+ * </ul>
+ * Genes differing only in the naming of their parameters, or in redundant parameters, share the same expression.
+ * </p>
+ */
+public final class NormalizedExpression{
+
+	private static final String PARAMETER_PREFIX = "p";
+	//NOTE: cannot be part of an input name, nor of a parameter name
+	private static final String COLLAPSED_PREFIX = "#";
+
+
+	final KarvaToInfixConverter.Node root;
+	private final String expression;
+	private final int parameterCount;
+
+
+	/**
+	 * Normalizes the expressed part of the given Karva expression.
+	 *
+	 * @param karva	The Karva expression.
+	 * @param inputs	The names of the inputs.
+	 * @return	The normalized expression.
+	 */
+	public static NormalizedExpression create(final KarvaExpression karva, final String[] inputs){
+		if(karva.isEmpty())
+			return new NormalizedExpression(null, "", 0);
+
+		final KarvaToInfixConverter.Node root = KarvaToInfixConverter.buildTree(karva);
+		collapseConstantSubtrees(root, inputs, new int[1]);
+
+		final Map<String, Integer> renaming = new HashMap<>(1);
+		renameParameters(root, renaming);
+
+		return new NormalizedExpression(root, KarvaToInfixConverter.convertToEquation(root), renaming.size());
+	}
+
+
+	private NormalizedExpression(final KarvaToInfixConverter.Node root, final String expression, final int parameterCount){
+		this.root = root;
+		this.expression = expression;
+		this.parameterCount = parameterCount;
+	}
+
+
+	/**
+	 * Replaces every sub-tree that does not contain inputs with a new parameter, not appearing anywhere else.
+	 *
+	 * @param collapsedCount	The number of sub-trees collapsed so far (used to name the new parameters).
+	 * @return	Whether the given node depends on the inputs.
+	 */
+	private static boolean collapseConstantSubtrees(final KarvaToInfixConverter.Node node, final String[] inputs,
+			final int[] collapsedCount){
+		final LinkedList<KarvaToInfixConverter.Node> children = node.children;
+		if(children.isEmpty())
+			return isInput(node.value, inputs);
+
+		boolean dependsOnInputs = false;
+		for(int i = 0, length = children.size(); i < length; i ++)
+			dependsOnInputs |= collapseConstantSubtrees(children.get(i), inputs, collapsedCount);
+		if(!dependsOnInputs){
+			node.value = COLLAPSED_PREFIX + collapsedCount[0] ++;
+			children.clear();
+		}
+		return dependsOnInputs;
+	}
+
+	private static void renameParameters(final KarvaToInfixConverter.Node node, final Map<String, Integer> renaming){
+		final LinkedList<KarvaToInfixConverter.Node> children = node.children;
+		if(children.isEmpty()){
+			if(isParameter(node.value)){
+				Integer index = renaming.get(node.value);
+				if(index == null){
+					index = renaming.size();
+					renaming.put(node.value, index);
+				}
+				node.value = PARAMETER_PREFIX + index;
+			}
+			return;
+		}
+
+		for(int i = 0, length = children.size(); i < length; i ++)
+			renameParameters(children.get(i), renaming);
+	}
+
+	private static boolean isInput(final String token, final String[] inputs){
+		for(int i = 0, length = inputs.length; i < length; i ++)
+			if(inputs[i].equals(token))
+				return true;
+		return false;
+	}
+
+	private static boolean isParameter(final String token){
+		if(token.startsWith(COLLAPSED_PREFIX))
+			return true;
+
+		if(token.length() > PARAMETER_PREFIX.length() && token.startsWith(PARAMETER_PREFIX)){
+			try{
+				Integer.parseInt(token.substring(PARAMETER_PREFIX.length()));
+				return true;
+			}
+			catch(final NumberFormatException ignored){}
+		}
+		return false;
+	}
+
+
+	public boolean isEmpty(){
+		return expression.isEmpty();
+	}
+
+	/**
+	 * @return	The infix expression, whose parameters are {@code p0}, ..., {@code p(k-1)}.
+	 */
+	public String expression(){
+		return expression;
+	}
+
+	public int parameterCount(){
+		return parameterCount;
+	}
+
+
+	@Override
+	public String toString(){
+		return expression;
+	}
+
+}
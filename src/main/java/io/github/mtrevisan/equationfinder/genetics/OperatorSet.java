@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.genetics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+
+/**
+ * The operators the genetic search may use, each with a sampling weight and an evaluation cost.
+ */
+public final class OperatorSet{
+
+	private static final double DEFAULT_WEIGHT = 1.;
+	private static final double DEFAULT_COST = 1.;
+
+
+	private final String[] operators;
+	//cumulative sampling weights, in the same order as `operators`
+	private final double[] cumulativeWeights;
+	private final Map<String, Integer> operatorArity;
+	private final Map<String, Double> operatorCost;
+	private final int minArity;
+	private final int maxArity;
+
+
+	/**
+	 * Creates the set of every known operator, all with the same weight and cost.
+	 *
+	 * @return	The operator set.
+	 */
+	public static OperatorSet createDefault(){
+		final String[] operators = KarvaToInfixConverter.OPERATOR_ARITY.keySet()
+			.toArray(new String[KarvaToInfixConverter.OPERATOR_ARITY.size()]);
+		final double[] weights = new double[operators.length];
+		final double[] costs = new double[operators.length];
+		Arrays.fill(weights, DEFAULT_WEIGHT);
+		Arrays.fill(costs, DEFAULT_COST);
+		return create(operators, weights, costs);
+	}
+
+	/**
+	 * Parses an operator set, one operator per line, in the form {@code <operator> [<weight> [<cost>]]}.
+	 *
+	 * @param definitions	The definitions.
+	 * @return	The operator set.
+	 * @throws IllegalArgumentException	If an operator is unknown, or a weight or cost is not a non-negative number.
+	 */
+	public static OperatorSet parse(final List<String[]> definitions){
+		final int size = definitions.size();
+		final String[] operators = new String[size];
+		final double[] weights = new double[size];
+		final double[] costs = new double[size];
+		for(int i = 0; i < size; i ++){
+			final String[] definition = definitions.get(i);
+			if(definition.length == 0 || definition.length > 3)
+				throw new IllegalArgumentException("Invalid operator format: " + String.join(" ", definition));
+
+			operators[i] = definition[0];
+			weights[i] = (definition.length > 1? Double.parseDouble(definition[1]): DEFAULT_WEIGHT);
+			costs[i] = (definition.length > 2? Double.parseDouble(definition[2]): DEFAULT_COST);
+		}
+		return create(operators, weights, costs);
+	}
+
+	/**
+	 * Creates an operator set.
+	 *
+	 * @param operators	The operators.
+	 * @param weights	The sampling weight of each operator.
+	 * @param costs	The evaluation cost of each operator.
+	 * @return	The operator set.
+	 * @throws IllegalArgumentException	If an operator is unknown, or a weight or cost is not a non-negative number.
+	 */
+	public static OperatorSet create(final String[] operators, final double[] weights, final double[] costs){
+		return new OperatorSet(operators, weights, costs);
+	}
+
+
+	private OperatorSet(final String[] operators, final double[] weights, final double[] costs){
+		if(operators.length == 0)
+			throw new IllegalArgumentException("At least an operator should be given");
+
+		this.operators = operators.clone();
+		cumulativeWeights = new double[operators.length];
+		operatorArity = new HashMap<>(operators.length);
+		operatorCost = new HashMap<>(operators.length);
+		int minArity = Integer.MAX_VALUE;
+		int maxArity = 0;
+		double totalWeight = 0.;
+		for(int i = 0, length = operators.length; i < length; i ++){
+			final String operator = operators[i];
+			final Integer arity = KarvaToInfixConverter.OPERATOR_ARITY.get(operator);
+			if(arity == null)
+				throw new IllegalArgumentException("Unknown operator: " + operator);
+			if(!(weights[i] >= 0.) || !(costs[i] >= 0.))
+				throw new IllegalArgumentException("Invalid weight or cost for operator " + operator);
+			if(operatorArity.put(operator, arity) != null)
+				throw new IllegalArgumentException("Duplicated operator: " + operator);
+
+			operatorCost.put(operator, costs[i]);
+			minArity = Math.min(minArity, arity);
+			maxArity = Math.max(maxArity, arity);
+			totalWeight += weights[i];
+			cumulativeWeights[i] = totalWeight;
+		}
+		if(!(totalWeight > 0.))
+			throw new IllegalArgumentException("At least an operator should have a positive weight");
+
+		this.minArity = minArity;
+		this.maxArity = maxArity;
+	}
+
+
+	/**
+	 * Draws an operator at random, proportionally to its weight.
+	 *
+	 * @param random	The random number generator.
+	 * @return	The operator.
+	 */
+	public String sample(final Random random){
+		final double value = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+		int low = 0;
+		int high = cumulativeWeights.length - 1;
+		while(low < high){
+			final int middle = (low + high) >>> 1;
+			if(cumulativeWeights[middle] <= value)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return operators[low];
+	}
+
+	/**
+	 * @return	The operators along with their arity, unmodifiable.
+	 */
+	public Map<String, Integer> arity(){
+		return Collections.unmodifiableMap(operatorArity);
+	}
+
+	public int minArity(){
+		return minArity;
+	}
+
+	public int maxArity(){
+		return maxArity;
+	}
+
+	/**
+	 * The evaluation cost of an expression, that is the sum of the costs of the operators in its expressed part (terminals cost nothing).
+	 *
+	 * @param karva	The Karva expression.
+	 * @return	The cost.
+	 */
+	public double cost(final KarvaExpression karva){
+		return (karva.isEmpty()? 0.: cost(KarvaToInfixConverter.buildTree(karva)));
+	}
+
+	private double cost(final KarvaToInfixConverter.Node node){
+		double cost = operatorCost.getOrDefault(node.value, 0.);
+		final List<KarvaToInfixConverter.Node> children = node.children;
+		for(int i = 0, length = children.size(); i < length; i ++)
+			cost += cost(children.get(i));
+		return cost;
+	}
+
+}
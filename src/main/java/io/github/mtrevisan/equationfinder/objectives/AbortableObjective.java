@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import io.github.mtrevisan.equationfinder.SearchMode;
+
+
+/**
+ * An objective whose value only grows while scanning the data (like a sum or a maximum of non-negative terms), and that can therefore
+ * stop as soon as the partial value crosses a threshold: the candidate cannot win anymore.
+ */
+public interface AbortableObjective extends FusedObjective{
+
+	/**
+	 * Calculates the metric plus the penalty of the search mode, stopping as soon as it exceeds the given threshold.
+	 *
+	 * @param params	The parameters of the model.
+	 * @param searchMode	The search mode.
+	 * @param abortThreshold	The value above which the exact result is of no interest.
+	 * @return	The value of the metric plus the search mode penalty, or, if the scan was aborted, an estimate of it (extrapolated from the
+	 * 	rows scanned so far) that is guaranteed to be greater than the threshold.
+	 */
+	double value(double[] params, SearchMode searchMode, double abortThreshold);
+
+	@Override
+	default double value(final double[] params, final SearchMode searchMode){
+		return value(params, searchMode, Double.POSITIVE_INFINITY);
+	}
+
+}
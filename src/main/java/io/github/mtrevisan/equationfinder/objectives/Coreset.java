@@ -0,0 +1,272 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+
+/**
+ * A small weighted subset of the rows of a dataset that stands in for it during the search.
+ * <p>
+ * The rows are drawn with probability proportional to their sensitivity: half uniform, half proportional to the squared distance from
+ * the (weighted) mean in the normalized space of the inputs and the target (lightweight coreset), so that the outskirts of the domain
+ * and the extreme responses are represented even when rare. The draw is systematic, yielding the requested number of distinct rows in a
+ * single pass, and each row is weighted by the inverse of its probability of being drawn (Horvitz-Thompson), so that every weighted sum
+ * over the coreset is an unbiased estimate of the one over the whole data.
+ * </p>
+ * <p>
+ * Sums and means are well estimated, a maximum or a quantile less so: the fitness on the coreset is a proxy, to be confirmed on the whole
+ * data.
+ * </p>
+ *
+ * @see <a href="https://arxiv.org/abs/1702.08248">Bachem, Lucic, Krause - Scalable k-Means Clustering via Lightweight Coresets</a>
+ */
+public final class Coreset{
+
+	/** Coreset of a given number of rows ({@code size <rows>}). */
+	public static final String CORESET_SIZE = "size";
+	/**
+	 * Smallest coreset (doubling the number of rows) whose means and variances of the inputs and of the target are within a given relative
+	 * tolerance of the ones of the whole data ({@code tolerance <tolerance>}).
+	 */
+	public static final String CORESET_TOLERANCE = "tolerance";
+
+	//number of rows of the first coreset tried when building one of a given tolerance
+	private static final int TOLERANCE_INITIAL_SIZE = 1_024;
+	//maximum number of redistributions of the probability in excess of the rows sure to be drawn
+	private static final int MAX_CAPPING_ITERATIONS = 32;
+
+	private static final Pattern PATTERN_DEFINITION = Pattern.compile("\\s+");
+
+
+	private Coreset(){}
+
+
+	/**
+	 * Builds the coreset of a dataset.
+	 *
+	 * @param dataset	The dataset.
+	 * @param definition	Either {@code size <rows>} or {@code tolerance <tolerance>}.
+	 * @param random	The random number generator.
+	 * @return	The coreset, or the given dataset if it is not larger than the coreset.
+	 */
+	public static DatasetContext build(final DatasetContext dataset, final String definition, final Random random){
+		final String[] components = PATTERN_DEFINITION.split(definition.trim(), -1);
+		if(components.length == 2 && components[0].equals(CORESET_SIZE))
+			return ofSize(dataset, Integer.parseInt(components[1]), random);
+		if(components.length == 2 && components[0].equals(CORESET_TOLERANCE))
+			return ofTolerance(dataset, Double.parseDouble(components[1]), random);
+
+		throw new IllegalArgumentException("Unknown coreset definition: " + definition + ", expected `" + CORESET_SIZE + " <rows>` or `"
+			+ CORESET_TOLERANCE + " <tolerance>`");
+	}
+
+	/**
+	 * Builds a coreset of the given number of rows.
+	 *
+	 * @param dataset	The dataset.
+	 * @param size	The number of rows of the coreset.
+	 * @param random	The random number generator.
+	 * @return	The coreset, or the given dataset if it has no more than the given number of rows.
+	 */
+	public static DatasetContext ofSize(final DatasetContext dataset, final int size, final Random random){
+		if(size >= dataset.rowCount())
+			return dataset;
+
+		return draw(dataset, sensitivities(dataset), size, random);
+	}
+
+	private static DatasetContext draw(final DatasetContext dataset, final double[] sensitivities, final int size, final Random random){
+		final int rowCount = dataset.rowCount();
+		final double[] probabilities = sensitivities.clone();
+		scaleToProbabilities(probabilities, size);
+
+		//systematic sampling: a row is drawn each time the cumulative probability crosses the next threshold
+		final int[] rowIndexes = new int[size];
+		final double[] weightScales = new double[size];
+		int count = 0;
+		double threshold = random.nextDouble();
+		double cumulative = 0.;
+		for(int i = 0; i < rowCount && count < size; i ++){
+			cumulative += probabilities[i];
+			if(cumulative > threshold){
+				rowIndexes[count] = i;
+				weightScales[count ++] = 1. / probabilities[i];
+				threshold += 1.;
+			}
+		}
+		return dataset.subset(Arrays.copyOf(rowIndexes, count), Arrays.copyOf(weightScales, count));
+	}
+
+	/**
+	 * Builds the smallest coreset, doubling its number of rows, whose means and variances of the inputs and of the target are within the
+	 * given tolerance of the ones of the whole data (see {@link #discrepancy(DatasetContext, DatasetContext)}).
+	 *
+	 * @param dataset	The dataset.
+	 * @param tolerance	The tolerance.
+	 * @param random	The random number generator.
+	 * @return	The coreset, or the given dataset if no smaller coreset is within tolerance.
+	 */
+	public static DatasetContext ofTolerance(final DatasetContext dataset, final double tolerance, final Random random){
+		final double[][] moments = moments(dataset);
+		final double[] sensitivities = sensitivities(dataset);
+		for(int size = TOLERANCE_INITIAL_SIZE, rowCount = dataset.rowCount(); size < rowCount; size <<= 1){
+			final DatasetContext coreset = draw(dataset, sensitivities, size, random);
+			if(discrepancy(moments(coreset), moments) <= tolerance)
+				return coreset;
+		}
+		return dataset;
+	}
+
+	/**
+	 * Calculates how far a coreset is from its dataset: the maximum, over the inputs and the target, of the difference of the means
+	 * relative to the standard deviation, and of the relative difference of the variances.
+	 *
+	 * @param coreset	The coreset.
+	 * @param dataset	The dataset.
+	 * @return	The discrepancy.
+	 */
+	public static double discrepancy(final DatasetContext coreset, final DatasetContext dataset){
+		return discrepancy(moments(coreset), moments(dataset));
+	}
+
+	private static double discrepancy(final double[][] coresetMoments, final double[][] moments){
+		final double[] coresetMean = coresetMoments[0];
+		final double[] coresetVariance = coresetMoments[1];
+		final double[] mean = moments[0];
+		final double[] variance = moments[1];
+		double discrepancy = 0.;
+		for(int j = 0, length = mean.length; j < length; j ++)
+			if(variance[j] > 0.)
+				discrepancy = Math.max(discrepancy, Math.max(
+					Math.abs(coresetMean[j] - mean[j]) / Math.sqrt(variance[j]),
+					Math.abs(coresetVariance[j] / variance[j] - 1.)));
+		return discrepancy;
+	}
+
+	/**
+	 * @return	The weighted mean and variance of each input, followed by the ones of the target.
+	 */
+	private static double[][] moments(final DatasetContext dataset){
+		final int inputCount = dataset.inputCount();
+		final double[] mean = new double[inputCount + 1];
+		final double[] variance = new double[inputCount + 1];
+		final int rowCount = dataset.rowCount();
+		for(int j = 0; j <= inputCount; j ++){
+			//West algorithm
+			double weightSum = 0.;
+			double m = 0.;
+			double m2 = 0.;
+			for(int i = 0; i < rowCount; i ++){
+				final double weight = dataset.weight(i);
+				final double value = (j < inputCount? dataset.input(j, i): dataset.target(i));
+				weightSum += weight;
+				final double delta = value - m;
+				m += delta * weight / weightSum;
+				m2 += weight * delta * (value - m);
+			}
+			mean[j] = m;
+			variance[j] = (weightSum > 0.? m2 / weightSum: 0.);
+		}
+		return new double[][]{mean, variance};
+	}
+
+	/**
+	 * Calculates the sensitivity of each row, {@code w/(2·W) + w·d²/(2·sum(w·d²))}, where {@code d} is the distance from the weighted
+	 * mean in the space of the inputs and the target, each normalized by its range.
+	 */
+	private static double[] sensitivities(final DatasetContext dataset){
+		final int inputCount = dataset.inputCount();
+		final int rowCount = dataset.rowCount();
+		final double[][] moments = moments(dataset);
+		final double[] mean = moments[0];
+		final double[] scale = new double[inputCount + 1];
+		for(int j = 0; j < inputCount; j ++){
+			final double range = dataset.inputMaximum[j] - dataset.inputMinimum[j];
+			scale[j] = (range > 0.? 1. / range: 0.);
+		}
+		double targetMinimum = Double.POSITIVE_INFINITY;
+		double targetMaximum = Double.NEGATIVE_INFINITY;
+		for(int i = 0; i < rowCount; i ++){
+			targetMinimum = Math.min(targetMinimum, dataset.target(i));
+			targetMaximum = Math.max(targetMaximum, dataset.target(i));
+		}
+		final double targetRange = targetMaximum - targetMinimum;
+		scale[inputCount] = (targetRange > 0.? 1. / targetRange: 0.);
+
+		final double[] sensitivities = new double[rowCount];
+		double distanceSum = 0.;
+		for(int i = 0; i < rowCount; i ++){
+			double distance = 0.;
+			for(int j = 0; j <= inputCount; j ++){
+				final double value = (j < inputCount? dataset.input(j, i): dataset.target(i));
+				final double delta = (value - mean[j]) * scale[j];
+				distance += delta * delta;
+			}
+			sensitivities[i] = dataset.weight(i) * distance;
+			distanceSum += sensitivities[i];
+		}
+
+		final double totalWeight = dataset.totalWeight;
+		for(int i = 0; i < rowCount; i ++)
+			sensitivities[i] = (distanceSum > 0.
+				? dataset.weight(i) / (2. * totalWeight) + sensitivities[i] / (2. * distanceSum)
+				: dataset.weight(i) / totalWeight);
+		return sensitivities;
+	}
+
+	/**
+	 * Scales the sensitivities (in place) into probabilities of being drawn that sum up to the given size, capping at one the rows sure
+	 * to be drawn and redistributing their excess among the others.
+	 */
+	private static void scaleToProbabilities(final double[] sensitivities, final int size){
+		final int rowCount = sensitivities.length;
+		double sum = 0.;
+		for(int i = 0; i < rowCount; i ++)
+			sum += sensitivities[i];
+		double factor = size / sum;
+		for(int iteration = 0; iteration < MAX_CAPPING_ITERATIONS; iteration ++){
+			int cappedCount = 0;
+			double uncappedSum = 0.;
+			for(int i = 0; i < rowCount; i ++){
+				if(sensitivities[i] * factor >= 1.)
+					cappedCount ++;
+				else
+					uncappedSum += sensitivities[i];
+			}
+			final double nextFactor = (size - cappedCount) / uncappedSum;
+			if(cappedCount == 0 || uncappedSum == 0. || nextFactor == factor)
+				break;
+
+			factor = nextFactor;
+		}
+
+		for(int i = 0; i < rowCount; i ++)
+			sensitivities[i] = Math.min(sensitivities[i] * factor, 1.);
+	}
+
+}
@@ -0,0 +1,564 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * The data every objective works on, along with the facts about the target that do not depend on the model, computed once.
+ * <p>
+ * The data is stored column-major: one contiguous array per input, the target apart, and optionally a weight for each row (a row of
+ * weight {@code w} counts as {@code w} copies of itself in every mean and quantile). The context is immutable, the arrays are shared
+ * and must not be modified.
+ * </p>
+ * <p>
+ * The inputs and the target can be stored in single precision ({@value #STORAGE_FLOAT32}), halving the memory footprint and the memory
+ * bandwidth of the scan on very large datasets: the values are rounded once when the context is created, while every computation
+ * (model evaluation, sums, statistics) is still carried out in double precision.
+ * </p>
+ * <p>
+ * In double precision, the columns can also be read in place from buffers outside the heap (e.g. memory-mapped from a file), so that
+ * the data does not need to fit in the heap.
+ * </p>
+ */
+public final class DatasetContext{
+
+	public static final String STORAGE_FLOAT64 = "float64";
+	public static final String STORAGE_FLOAT32 = "float32";
+
+
+	//input values, one contiguous array per input (`null` if stored in single precision, or in buffers)
+	final double[][] inputColumns;
+	final double[] target;
+	//`log(1 + target)` (`null` if stored in single precision)
+	final double[] logTarget;
+	//same as above, in single precision (`null` if stored in double precision)
+	final float[][] floatInputColumns;
+	final float[] floatTarget;
+	final float[] floatLogTarget;
+	//input and target values, read in place from buffers (`null` if stored in arrays)
+	final DoubleBuffer[] bufferInputColumns;
+	final DoubleBuffer bufferTarget;
+
+	final double[] inputMinimum;
+	final double[] inputMaximum;
+	//weight of each row, `null` if all the rows weigh one
+	final double[] weights;
+	final double totalWeight;
+	//targets merged into each row, `null` if each row has its own target
+	final TargetSpread spread;
+
+	//weighted mean
+	final double targetMean;
+	//weighted population variance
+	final double targetVariance;
+	final double logTargetMean;
+	//weighted population variance
+	final double logTargetVariance;
+
+	//number of rows from which the objectives split the scan of the data across threads
+	final int parallelThreshold;
+
+
+	/**
+	 * Creates the context of a data table.
+	 *
+	 * @param dataTable	The data table, each row being the inputs followed by the target.
+	 * @return	The dataset context.
+	 */
+	public static DatasetContext create(final double[][] dataTable){
+		return create(dataTable, STORAGE_FLOAT64);
+	}
+
+	/**
+	 * Creates the context of a data table.
+	 *
+	 * @param dataTable	The data table, each row being the inputs followed by the target.
+	 * @param storage	The precision the values are stored with, either {@value #STORAGE_FLOAT64} or {@value #STORAGE_FLOAT32} ({@code null}
+	 * 	meaning {@value #STORAGE_FLOAT64}).
+	 * @return	The dataset context.
+	 */
+	public static DatasetContext create(final double[][] dataTable, final String storage){
+		final int rowCount = dataTable.length;
+		final int inputCount = (rowCount > 0? dataTable[0].length - 1: 0);
+		if(parseStorage(storage)){
+			final float[][] inputColumns = new float[inputCount][rowCount];
+			final float[] target = new float[rowCount];
+			for(int i = 0; i < rowCount; i ++){
+				final double[] row = dataTable[i];
+
+				for(int j = 0; j < inputCount; j ++)
+					inputColumns[j][i] = (float)row[j];
+				target[i] = (float)row[inputCount];
+			}
+			return new DatasetContext(null, null, inputColumns, target, null, null, null, null, Integer.MAX_VALUE);
+		}
+
+		final double[][] inputColumns = new double[inputCount][rowCount];
+		final double[] target = new double[rowCount];
+		for(int i = 0; i < rowCount; i ++){
+			final double[] row = dataTable[i];
+
+			for(int j = 0; j < inputCount; j ++)
+				inputColumns[j][i] = row[j];
+			target[i] = row[inputCount];
+		}
+		return new DatasetContext(inputColumns, target, null, null, null, null, null, null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates the context of a dataset already stored by column.
+	 *
+	 * @param inputColumns	The values of each input, one array per input (not copied, do not modify).
+	 * @param target	The target values (not copied, do not modify).
+	 * @param weights	The (positive) weight of each row, or {@code null} if all the rows weigh one (not copied, do not modify).
+	 * @return	The dataset context.
+	 */
+	public static DatasetContext create(final double[][] inputColumns, final double[] target, final double[] weights){
+		final int rowCount = target.length;
+		for(int j = 0, length = inputColumns.length; j < length; j ++)
+			if(inputColumns[j].length != rowCount)
+				throw new IllegalArgumentException("Input column " + j + " has " + inputColumns[j].length + " rows, expected "
+					+ rowCount);
+		if(weights != null && weights.length != rowCount)
+			throw new IllegalArgumentException("There are " + weights.length + " weights for " + rowCount + " rows");
+
+		return new DatasetContext(inputColumns, target, null, null, null, null, weights, null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates the context of a dataset stored by column, in arrays or in buffers outside the heap (e.g. memory-mapped from a file).
+	 * <p>
+	 * In double precision the values are not copied: the columns backed by an array are scanned as arrays, the others are read in place.
+	 * </p>
+	 *
+	 * @param columns	The values of each input followed by the target values, from the position to the limit of each buffer (do not
+	 * 	modify).
+	 * @param storage	The precision the values are stored with, either {@value #STORAGE_FLOAT64} or {@value #STORAGE_FLOAT32} ({@code null}
+	 * 	meaning {@value #STORAGE_FLOAT64}).
+	 * @return	The dataset context.
+	 */
+	public static DatasetContext create(final DoubleBuffer[] columns, final String storage){
+		final int inputCount = Math.max(columns.length - 1, 0);
+		final DoubleBuffer[] views = new DoubleBuffer[columns.length];
+		for(int j = 0, length = columns.length; j < length; j ++)
+			views[j] = columns[j].slice();
+		final int rowCount = (views.length > 0? views[0].limit(): 0);
+		for(int j = 1, length = views.length; j < length; j ++)
+			if(views[j].limit() != rowCount)
+				throw new IllegalArgumentException("Column " + j + " has " + views[j].limit() + " rows, expected " + rowCount);
+
+		if(parseStorage(storage)){
+			final float[][] inputColumns = new float[inputCount][rowCount];
+			final float[] target = new float[rowCount];
+			for(int j = 0; j < inputCount; j ++)
+				toFloats(views[j], inputColumns[j]);
+			if(views.length > 0)
+				toFloats(views[inputCount], target);
+			return new DatasetContext(null, null, inputColumns, target, null, null, null, null, Integer.MAX_VALUE);
+		}
+
+		if(views.length == 0)
+			return new DatasetContext(new double[0][], new double[0], null, null, null, null, null, null, Integer.MAX_VALUE);
+
+		boolean inArrays = true;
+		for(int j = 0, length = views.length; inArrays && j < length; j ++)
+			inArrays = isWholeArray(views[j], rowCount);
+		if(inArrays){
+			final double[][] inputColumns = new double[inputCount][];
+			for(int j = 0; j < inputCount; j ++)
+				inputColumns[j] = views[j].array();
+			return new DatasetContext(inputColumns, views[inputCount].array(), null, null, null, null, null, null, Integer.MAX_VALUE);
+		}
+
+		return new DatasetContext(null, null, null, null, Arrays.copyOf(views, inputCount), views[inputCount], null, null,
+			Integer.MAX_VALUE);
+	}
+
+	private static void toFloats(final DoubleBuffer column, final float[] values){
+		for(int i = 0, length = values.length; i < length; i ++)
+			values[i] = (float)column.get(i);
+	}
+
+	private static boolean isWholeArray(final DoubleBuffer column, final int rowCount){
+		return (column.hasArray() && column.arrayOffset() == 0 && column.array().length == rowCount);
+	}
+
+	/**
+	 * @param storage	The storage, either {@value #STORAGE_FLOAT64} or {@value #STORAGE_FLOAT32} ({@code null} meaning
+	 * 	{@value #STORAGE_FLOAT64}).
+	 * @return	Whether the values are stored in single precision.
+	 * @throws IllegalArgumentException	If the storage is unknown.
+	 */
+	private static boolean parseStorage(final String storage){
+		if(storage == null || storage.equals(STORAGE_FLOAT64))
+			return false;
+		if(storage.equals(STORAGE_FLOAT32))
+			return true;
+
+		throw new IllegalArgumentException("Unknown storage: " + storage + ", expected " + STORAGE_FLOAT64 + " or " + STORAGE_FLOAT32);
+	}
+
+
+	DatasetContext(final double[][] inputColumns, final double[] target, final float[][] floatInputColumns, final float[] floatTarget,
+			final DoubleBuffer[] bufferInputColumns, final DoubleBuffer bufferTarget, final double[] weights, final TargetSpread spread,
+			final int parallelThreshold){
+		this.inputColumns = inputColumns;
+		this.target = target;
+		this.floatInputColumns = floatInputColumns;
+		this.floatTarget = floatTarget;
+		this.bufferInputColumns = bufferInputColumns;
+		this.bufferTarget = bufferTarget;
+		this.weights = weights;
+		this.spread = spread;
+		this.parallelThreshold = parallelThreshold;
+
+		final int inputCount = inputCount();
+		final int rowCount = rowCount();
+		inputMinimum = new double[inputCount];
+		inputMaximum = new double[inputCount];
+		for(int j = 0; j < inputCount; j ++){
+			double minimum = Double.POSITIVE_INFINITY;
+			double maximum = Double.NEGATIVE_INFINITY;
+			for(int i = 0; i < rowCount; i ++){
+				final double input = input(j, i);
+				minimum = Math.min(minimum, input);
+				maximum = Math.max(maximum, input);
+			}
+			inputMinimum[j] = minimum;
+			inputMaximum[j] = maximum;
+		}
+
+		logTarget = (floatTarget == null? new double[rowCount]: null);
+		floatLogTarget = (floatTarget != null? new float[rowCount]: null);
+		double weightSum = 0.;
+		double mean = 0.;
+		double logMean = 0.;
+		//weighted sum of squares of the differences from the mean, updated with the West algorithm
+		double m2 = 0.;
+		double logM2 = 0.;
+		for(int i = 0; i < rowCount; i ++){
+			final double value = target(i);
+			final double logValue = (spread != null? spread.logMean[i]: StrictMath.log1p(value));
+			if(logTarget != null)
+				logTarget[i] = logValue;
+			else
+				floatLogTarget[i] = (float)logValue;
+
+			final double weight = (weights != null? weights[i]: 1.);
+			weightSum += weight;
+			final double delta = value - mean;
+			mean += delta * weight / weightSum;
+			m2 += weight * delta * (value - mean);
+			final double logDelta = logValue - logMean;
+			logMean += logDelta * weight / weightSum;
+			logM2 += weight * logDelta * (logValue - logMean);
+		}
+		totalWeight = weightSum;
+		if(spread != null){
+			//add back the deviations of the merged targets from the mean of their row
+			m2 += spread.totalResidual;
+			logM2 += spread.totalLogResidual;
+		}
+		targetMean = mean;
+		targetVariance = (weightSum > 0.? m2 / weightSum: 0.);
+		logTargetMean = logMean;
+		logTargetVariance = (weightSum > 0.? logM2 / weightSum: 0.);
+	}
+
+	private DatasetContext(final DatasetContext context, final int parallelThreshold){
+		inputColumns = context.inputColumns;
+		target = context.target;
+		logTarget = context.logTarget;
+		floatInputColumns = context.floatInputColumns;
+		floatTarget = context.floatTarget;
+		floatLogTarget = context.floatLogTarget;
+		bufferInputColumns = context.bufferInputColumns;
+		bufferTarget = context.bufferTarget;
+		inputMinimum = context.inputMinimum;
+		inputMaximum = context.inputMaximum;
+		weights = context.weights;
+		totalWeight = context.totalWeight;
+		spread = context.spread;
+		targetMean = context.targetMean;
+		targetVariance = context.targetVariance;
+		logTargetMean = context.logTargetMean;
+		logTargetVariance = context.logTargetVariance;
+		this.parallelThreshold = parallelThreshold;
+	}
+
+
+	/**
+	 * Makes the objectives split the scan of the data across the threads of the common fork-join pool when there are at least the given
+	 * number of rows.
+	 * <p>
+	 * The rows are partitioned in blocks of fixed size, each summed with compensated summation, and the partial sums are combined in a
+	 * fixed order, so the result does not depend on the number of threads.
+	 * </p>
+	 *
+	 * @param rowThreshold	The minimum number of rows for the scan to be parallel.
+	 * @return	A context sharing the data with this one.
+	 */
+	public DatasetContext withParallelThreshold(final int rowThreshold){
+		return new DatasetContext(this, rowThreshold);
+	}
+
+
+	/**
+	 * Extracts a random subset of rows, without replacement.
+	 *
+	 * @param size	The number of rows to extract.
+	 * @param random	The random number generator.
+	 * @return	The context of the subset of rows (with their weights, if any).
+	 */
+	public DatasetContext sample(final int size, final Random random){
+		final int rowCount = rowCount();
+		final int[] indexes = new int[rowCount];
+		for(int i = 0; i < rowCount; i ++)
+			indexes[i] = i;
+
+		//partial Fisher-Yates shuffle
+		for(int i = 0; i < size; i ++){
+			final int j = i + random.nextInt(rowCount - i);
+			final int index = indexes[j];
+			indexes[j] = indexes[i];
+			indexes[i] = index;
+		}
+		return subset(Arrays.copyOf(indexes, size), null);
+	}
+
+	/**
+	 * Extracts the given rows.
+	 *
+	 * @param rowIndexes	The indexes of the rows to extract.
+	 * @param weightScales	The factor each extracted row has its weight multiplied by, or {@code null} to keep the weights.
+	 * @return	The context of the subset of rows (with their weights and merged targets, if any, and the same storage precision), stored in
+	 * 	arrays.
+	 */
+	DatasetContext subset(final int[] rowIndexes, final double[] weightScales){
+		final int size = rowIndexes.length;
+		final int inputCount = inputCount();
+		final double[] subsetWeights = (weights != null || weightScales != null? new double[size]: null);
+		if(subsetWeights != null)
+			for(int i = 0; i < size; i ++)
+				subsetWeights[i] = weight(rowIndexes[i]) * (weightScales != null? weightScales[i]: 1.);
+		final TargetSpread subsetSpread = (spread != null? spread.subset(rowIndexes, weightScales): null);
+
+		if(floatTarget != null){
+			final float[][] subsetColumns = new float[inputCount][size];
+			final float[] subsetTarget = new float[size];
+			for(int i = 0; i < size; i ++){
+				final int index = rowIndexes[i];
+
+				for(int j = 0; j < inputCount; j ++)
+					subsetColumns[j][i] = floatInputColumns[j][index];
+				subsetTarget[i] = floatTarget[index];
+			}
+			return new DatasetContext(null, null, subsetColumns, subsetTarget, null, null, subsetWeights, subsetSpread, parallelThreshold);
+		}
+
+		//the subset of the rows of buffers is stored in arrays
+		final double[][] subsetColumns = new double[inputCount][size];
+		final double[] subsetTarget = new double[size];
+		for(int i = 0; i < size; i ++){
+			final int index = rowIndexes[i];
+
+			for(int j = 0; j < inputCount; j ++)
+				subsetColumns[j][i] = input(j, index);
+			subsetTarget[i] = target(index);
+		}
+		return new DatasetContext(subsetColumns, subsetTarget, null, null, null, null, subsetWeights, subsetSpread, parallelThreshold);
+	}
+
+
+	boolean isParallel(){
+		return (rowCount() >= parallelThreshold);
+	}
+
+	/**
+	 * @return	A buffer large enough to hold the inputs of a row, to be reused across the rows by a single thread.
+	 */
+	double[] createInputBuffer(){
+		return new double[inputCount()];
+	}
+
+	/**
+	 * Collects the inputs of a row in the given buffer, in the order the model expects them.
+	 *
+	 * @param row	The index of the row.
+	 * @param buffer	The buffer where to store the inputs.
+	 * @return	The buffer.
+	 */
+	double[] gatherInputs(final int row, final double[] buffer){
+		if(inputColumns != null)
+			for(int j = 0, length = inputColumns.length; j < length; j ++)
+				buffer[j] = inputColumns[j][row];
+		else if(floatInputColumns != null)
+			for(int j = 0, length = floatInputColumns.length; j < length; j ++)
+				buffer[j] = floatInputColumns[j][row];
+		else
+			for(int j = 0, length = bufferInputColumns.length; j < length; j ++)
+				buffer[j] = bufferInputColumns[j].get(row);
+		return buffer;
+	}
+
+	double input(final int index, final int row){
+		if(inputColumns != null)
+			return inputColumns[index][row];
+		return (floatInputColumns != null? floatInputColumns[index][row]: bufferInputColumns[index].get(row));
+	}
+
+	double target(final int row){
+		if(target != null)
+			return target[row];
+		return (floatTarget != null? floatTarget[row]: bufferTarget.get(row));
+	}
+
+	double logTarget(final int row){
+		return (logTarget != null? logTarget[row]: floatLogTarget[row]);
+	}
+
+	double weight(final int row){
+		return (weights != null? weights[row]: 1.);
+	}
+
+	double targetMinimum(final int row){
+		return (spread != null? spread.minimum[row]: target(row));
+	}
+
+	double targetMaximum(final int row){
+		return (spread != null? spread.maximum[row]: target(row));
+	}
+
+	/**
+	 * @return	The weighted sum of the squared deviations of the merged targets from the target of their row (zero if the rows do not
+	 * 	merge targets).
+	 */
+	double targetResidual(){
+		return (spread != null? spread.totalResidual: 0.);
+	}
+
+	/**
+	 * @return	The weighted sum of the squared deviations of the logarithm of the merged targets from the one of their row (zero if the
+	 * 	rows do not merge targets).
+	 */
+	double logTargetResidual(){
+		return (spread != null? spread.totalLogResidual: 0.);
+	}
+
+	public int rowCount(){
+		if(target != null)
+			return target.length;
+		return (floatTarget != null? floatTarget.length: bufferTarget.limit());
+	}
+
+	public int inputCount(){
+		if(inputColumns != null)
+			return inputColumns.length;
+		return (floatInputColumns != null? floatInputColumns.length: bufferInputColumns.length);
+	}
+
+	public boolean isSinglePrecision(){
+		return (floatTarget != null);
+	}
+
+	/**
+	 * @param index	The index of the input.
+	 * @return	The values of the given input, do not modify (a copy if not stored in an array in double precision).
+	 */
+	public double[] inputColumn(final int index){
+		if(inputColumns != null)
+			return inputColumns[index];
+
+		final double[] values = new double[rowCount()];
+		for(int i = 0, length = values.length; i < length; i ++)
+			values[i] = input(index, i);
+		return values;
+	}
+
+	/**
+	 * @return	The minimum value of each input, do not modify.
+	 */
+	public double[] inputMinimum(){
+		return inputMinimum;
+	}
+
+	/**
+	 * @return	The maximum value of each input, do not modify.
+	 */
+	public double[] inputMaximum(){
+		return inputMaximum;
+	}
+
+	/**
+	 * @return	The target values, do not modify (a copy if not stored in an array in double precision).
+	 */
+	public double[] target(){
+		if(target != null)
+			return target;
+
+		final double[] values = new double[rowCount()];
+		for(int i = 0, length = values.length; i < length; i ++)
+			values[i] = target(i);
+		return values;
+	}
+
+	public boolean isWeighted(){
+		return (weights != null);
+	}
+
+	/**
+	 * @return	Whether a row holds the mean of the targets of several rows with the same inputs (see {@link DuplicateAggregation}).
+	 */
+	public boolean hasMergedTargets(){
+		return (spread != null);
+	}
+
+	/**
+	 * @return	The weight of each row, do not modify, or {@code null} if all the rows weigh one.
+	 */
+	public double[] weights(){
+		return weights;
+	}
+
+	/**
+	 * @return	The sum of the weights of the rows (the number of rows if they are not weighted).
+	 */
+	public double totalWeight(){
+		return totalWeight;
+	}
+
+	public double targetMean(){
+		return targetMean;
+	}
+
+	public double targetVariance(){
+		return targetVariance;
+	}
+
+}
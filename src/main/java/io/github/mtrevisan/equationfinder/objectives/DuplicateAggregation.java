@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import io.github.mtrevisan.equationfinder.SearchMode;
+
+import java.util.Arrays;
+import java.util.Set;
+
+
+/**
+ * Groups the rows of a dataset with the same inputs into a single weighted row, so that the model is evaluated once per distinct input
+ * vector.
+ * <p>
+ * Rows equal in the inputs and in the target are merged into a row whose weight is the sum of their weights: every metric is unchanged.
+ * Rows equal only in the inputs can also be merged, into a row holding the mean of their targets, when the metric can be computed exactly
+ * from the mean, the sum of squared deviations and the extremes of the targets of each group (see {@link #canMergeTargets(String,
+ * SearchMode)}).
+ * </p>
+ */
+public final class DuplicateAggregation{
+
+	public static final String AGGREGATION_DUPLICATES = "duplicates";
+
+	//metrics whose value is a function of the mean, the sum of squared deviations, and the extremes of the targets of a group
+	private static final Set<String> TARGET_MERGEABLE_METRICS = Set.of(
+		ObjectiveRSS.OBJECTIVE_RESIDUAL_SUM_OF_SQUARES_ERROR,
+		ObjectiveRMSL.OBJECTIVE_ROOT_MEAN_SQUARED_LOG_ERROR,
+		ObjectiveNSE.OBJECTIVE_NASH_SUTCLIFFE_EFFICIENCY,
+		ObjectiveMax.OBJECTIVE_MAXIMUM_ERROR,
+		ObjectiveMaxR.OBJECTIVE_MAXIMUM_RELATIVE_ERROR);
+
+
+	private DuplicateAggregation(){}
+
+
+	/**
+	 * Whether rows with the same inputs but different targets can be merged without changing the value of the given metric.
+	 * <p>
+	 * The penalty of a bound search mode is a sum of one-sided errors, that cannot be recovered from the merged targets, so only the
+	 * approximate search can merge them.
+	 * </p>
+	 *
+	 * @param searchMetric	The search metric.
+	 * @param searchMode	The search mode.
+	 * @return	Whether the targets can be merged.
+	 */
+	public static boolean canMergeTargets(final String searchMetric, final SearchMode searchMode){
+		return (searchMode == SearchMode.APPROXIMATE && TARGET_MERGEABLE_METRICS.contains(searchMetric));
+	}
+
+	/**
+	 * Groups the rows with the same inputs (and the same target, if the targets are not to be merged).
+	 *
+	 * @param dataset	The dataset.
+	 * @param mergeTargets	Whether rows with the same inputs but different targets should be merged (see
+	 * 	{@link #canMergeTargets(String, SearchMode)}).
+	 * @return	The dataset with one weighted row per group, or the given one if there are no duplicates (or if its rows already merge
+	 * 	targets).
+	 */
+	public static DatasetContext aggregate(final DatasetContext dataset, final boolean mergeTargets){
+		if(dataset.hasMergedTargets())
+			return dataset;
+
+		final int rowCount = dataset.rowCount();
+		final int[] groupOfRow = new int[rowCount];
+		final int[] firstRowOfGroup = new int[rowCount];
+		final int groupCount = groupRows(dataset, mergeTargets, groupOfRow, firstRowOfGroup);
+		if(groupCount == rowCount)
+			return dataset;
+
+		//weighted mean of the targets of each group (West algorithm)
+		final double[] weights = new double[groupCount];
+		final double[] mean = new double[groupCount];
+		final double[] logMean = new double[groupCount];
+		final double[] residual = new double[groupCount];
+		final double[] logResidual = new double[groupCount];
+		final double[] minimum = new double[groupCount];
+		final double[] maximum = new double[groupCount];
+		Arrays.fill(minimum, Double.POSITIVE_INFINITY);
+		Arrays.fill(maximum, Double.NEGATIVE_INFINITY);
+		boolean spread = false;
+		for(int i = 0; i < rowCount; i ++){
+			final int group = groupOfRow[i];
+			final double weight = dataset.weight(i);
+			final double value = dataset.target(i);
+			final double logValue = StrictMath.log1p(value);
+
+			weights[group] += weight;
+			final double delta = value - mean[group];
+			mean[group] += delta * weight / weights[group];
+			residual[group] += weight * delta * (value - mean[group]);
+			final double logDelta = logValue - logMean[group];
+			logMean[group] += logDelta * weight / weights[group];
+			logResidual[group] += weight * logDelta * (logValue - logMean[group]);
+			minimum[group] = Math.min(minimum[group], value);
+			maximum[group] = Math.max(maximum[group], value);
+			spread |= (minimum[group] != maximum[group]);
+		}
+
+		final int inputCount = dataset.inputCount();
+		final TargetSpread targetSpread = (spread? new TargetSpread(minimum, maximum, logMean, residual, logResidual): null);
+		if(dataset.isSinglePrecision()){
+			final float[][] inputColumns = new float[inputCount][groupCount];
+			final float[] target = new float[groupCount];
+			for(int group = 0; group < groupCount; group ++){
+				final int row = firstRowOfGroup[group];
+				for(int j = 0; j < inputCount; j ++)
+					inputColumns[j][group] = dataset.floatInputColumns[j][row];
+				//the mean of a single value is the value itself
+				target[group] = (targetSpread != null? (float)mean[group]: dataset.floatTarget[row]);
+			}
+			return new DatasetContext(null, null, inputColumns, target, null, null, weights, targetSpread, dataset.parallelThreshold);
+		}
+
+		final double[][] inputColumns = new double[inputCount][groupCount];
+		final double[] target = new double[groupCount];
+		for(int group = 0; group < groupCount; group ++){
+			final int row = firstRowOfGroup[group];
+			for(int j = 0; j < inputCount; j ++)
+				inputColumns[j][group] = dataset.input(j, row);
+			target[group] = (targetSpread != null? mean[group]: dataset.target(row));
+		}
+		return new DatasetContext(inputColumns, target, null, null, null, null, weights, targetSpread, dataset.parallelThreshold);
+	}
+
+	/**
+	 * Assigns each row to a group, through an open-addressing hash table on the bits of the values.
+	 *
+	 * @return	The number of groups.
+	 */
+	private static int groupRows(final DatasetContext dataset, final boolean mergeTargets, final int[] groupOfRow,
+			final int[] firstRowOfGroup){
+		final int rowCount = dataset.rowCount();
+		//each slot holds the index of a group plus one, zero meaning empty; the load factor is at most one half
+		final int[] slots = new int[Integer.highestOneBit(Math.max(rowCount, 1)) << 2];
+		final int mask = slots.length - 1;
+		int groupCount = 0;
+		for(int i = 0; i < rowCount; i ++){
+			int slot = hash(dataset, i, mergeTargets) & mask;
+			while(true){
+				final int group = slots[slot] - 1;
+				if(group < 0){
+					slots[slot] = groupCount + 1;
+					firstRowOfGroup[groupCount] = i;
+					groupOfRow[i] = groupCount ++;
+					break;
+				}
+				if(isSameGroup(dataset, firstRowOfGroup[group], i, mergeTargets)){
+					groupOfRow[i] = group;
+					break;
+				}
+
+				slot = (slot + 1) & mask;
+			}
+		}
+		return groupCount;
+	}
+
+	private static int hash(final DatasetContext dataset, final int row, final boolean mergeTargets){
+		long hash = 0l;
+		for(int j = 0, length = dataset.inputCount(); j < length; j ++)
+			hash = hash * 31 + Double.doubleToLongBits(dataset.input(j, row));
+		if(!mergeTargets)
+			hash = hash * 31 + Double.doubleToLongBits(dataset.target(row));
+		//spread the bits, for the table index is taken from the lowest ones
+		hash *= 0x9E37_79B9_7F4A_7C15l;
+		return (int)(hash ^ (hash >>> 32));
+	}
+
+	private static boolean isSameGroup(final DatasetContext dataset, final int row, final int otherRow, final boolean mergeTargets){
+		for(int j = 0, length = dataset.inputCount(); j < length; j ++)
+			if(Double.doubleToLongBits(dataset.input(j, row)) != Double.doubleToLongBits(dataset.input(j, otherRow)))
+				return false;
+		return (mergeTargets
+			|| Double.doubleToLongBits(dataset.target(row)) == Double.doubleToLongBits(dataset.target(otherRow)));
+	}
+
+}
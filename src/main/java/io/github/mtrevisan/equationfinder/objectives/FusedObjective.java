@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import io.github.mtrevisan.equationfinder.SearchMode;
+import org.apache.commons.math3.analysis.MultivariateFunction;
+
+
+/**
+ * An objective that computes its metric and the penalty of the search mode (how much the model falls below the data for an upper bound
+ * search, or above it for a lower bound search) in a single pass over the data.
+ */
+public interface FusedObjective extends MultivariateFunction{
+
+	/**
+	 * Calculates the metric plus the penalty of the search mode.
+	 *
+	 * @param params	The parameters of the model.
+	 * @param searchMode	The search mode.
+	 * @return	The value of the metric plus the search mode penalty.
+	 */
+	double value(double[] params, SearchMode searchMode);
+
+	@Override
+	default double value(final double[] params){
+		return value(params, SearchMode.APPROXIMATE);
+	}
+
+
+	/**
+	 * Calculates the contribution of a single row to the penalty of the search mode.
+	 *
+	 * @param searchMode	The search mode.
+	 * @param expected	The expected value.
+	 * @param predicted	The predicted value.
+	 * @return	The penalty.
+	 */
+	static double searchModePenalty(final SearchMode searchMode, final double expected, final double predicted){
+		final double delta = expected - predicted;
+		return switch(searchMode){
+			case UPPER_BOUND -> Math.max(0., delta);
+			case LOWER_BOUND -> Math.max(0., -delta);
+			case APPROXIMATE -> 0.;
+		};
+	}
+
+}
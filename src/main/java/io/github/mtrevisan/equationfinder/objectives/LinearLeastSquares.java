@@ -0,0 +1,261 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import io.github.mtrevisan.equationfinder.ModelFunction;
+import io.github.mtrevisan.equationfinder.SearchMode;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * Residual sum of squares (as a mean, like {@link ObjectiveRSS}) of a model linear in its parameters, calculated from the sufficient
+ * statistics of the data instead of from the data itself.
+ * <p>
+ * A model {@code f(p, x) = φ₀(x) + Σ pₖ·φₖ(x)} has error {@code Σ (r - p·φ)²}, with {@code r = y - φ₀}, that is a quadratic form in the
+ * parameters whose coefficients are the sums of the products {@code φₐ·φᵦ}, {@code φₖ·r}, and {@code r²}: once these are accumulated,
+ * each evaluation costs {@code O(parameters²)} whatever the number of rows, and new rows are added by accumulating only them.
+ * </p>
+ * <p>
+ * The basis is obtained by evaluating the model at the origin and at each unit vector of the parameter space; whether the model is
+ * actually linear is checked by comparing it with the basis at some random parameters on some rows (see {@link #isLinear}), and can be
+ * confirmed at the solution by comparing the value of the statistics with the one calculated on the data (see {@link #isConsistent}).
+ * </p>
+ * <p>
+ * The search mode penalty needs each residual on its own, so only the {@link SearchMode#APPROXIMATE approximate} search is supported.
+ * </p>
+ */
+public final class LinearLeastSquares implements FusedObjective{
+
+	//number of rows the linearity of a model is checked on
+	private static final int LINEARITY_PROBE_ROWS = 8;
+	//number of random parameter vectors the linearity of a model is checked at
+	private static final int LINEARITY_PROBE_POINTS = 3;
+	private static final double LINEARITY_TOLERANCE = 1.e-9;
+	private static final double CONSISTENCY_TOLERANCE = 1.e-6;
+
+
+	private final ModelFunction function;
+	private final int parameterCount;
+	//sums of the products of the augmented basis `(φ₁, ..., φₖ, r)`, row-major, symmetric
+	private final double[] moments;
+	private int rowCount;
+
+	//parameters at which the basis is evaluated
+	private final double[] basisParameters;
+	private final double[] inputs;
+
+
+	/**
+	 * Checks whether a model is linear in its parameters, on some rows of the data, at the origin, at each unit vector, and at some random
+	 * parameters.
+	 *
+	 * @param function	The model.
+	 * @param parameterCount	The number of parameters of the model.
+	 * @param dataset	The data.
+	 * @return	Whether the model is linear in its parameters on the rows it was checked on.
+	 */
+	public static boolean isLinear(final ModelFunction function, final int parameterCount, final DatasetContext dataset){
+		final int rowCount = dataset.rowCount();
+		if(rowCount == 0)
+			return false;
+
+		//fixed seed, so that the check is reproducible
+		final Random random = new Random(parameterCount);
+		final LinearLeastSquares statistics = new LinearLeastSquares(function, parameterCount, dataset.inputCount());
+		final double[] basis = new double[parameterCount + 1];
+		final double[] params = new double[parameterCount];
+		final int step = Math.max(rowCount / LINEARITY_PROBE_ROWS, 1);
+		for(int i = 0; i < rowCount; i += step){
+			statistics.evaluateBasis(dataset, i, basis);
+			for(int k = 0; k <= parameterCount; k ++)
+				if(!Double.isFinite(basis[k]))
+					return false;
+
+			for(int t = 0; t < LINEARITY_PROBE_POINTS; t ++){
+				double expected = basis[parameterCount];
+				double scale = Math.abs(expected);
+				for(int k = 0; k < parameterCount; k ++){
+					params[k] = 4. * random.nextDouble() - 2.;
+					expected += params[k] * basis[k];
+					scale += Math.abs(params[k] * basis[k]);
+				}
+
+				final double predicted = function.evaluate(params, statistics.inputs);
+				if(!(Math.abs(predicted - expected) <= LINEARITY_TOLERANCE * (1. + scale)))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Creates the statistics of a model, with no rows.
+	 *
+	 * @param function	The model, linear in its parameters.
+	 * @param parameterCount	The number of parameters of the model.
+	 * @param inputCount	The number of inputs of the model.
+	 * @return	The statistics.
+	 */
+	public static LinearLeastSquares create(final ModelFunction function, final int parameterCount, final int inputCount){
+		return new LinearLeastSquares(function, parameterCount, inputCount);
+	}
+
+	/**
+	 * Restores the statistics of a model from the ones previously returned by {@link #moments()}.
+	 *
+	 * @param function	The model, linear in its parameters.
+	 * @param parameterCount	The number of parameters of the model.
+	 * @param inputCount	The number of inputs of the model.
+	 * @param moments	The sums of the products of the basis.
+	 * @param rowCount	The number of rows the sums were accumulated on.
+	 * @return	The statistics.
+	 */
+	public static LinearLeastSquares restore(final ModelFunction function, final int parameterCount, final int inputCount,
+			final double[] moments, final int rowCount){
+		final LinearLeastSquares statistics = new LinearLeastSquares(function, parameterCount, inputCount);
+		if(moments.length != statistics.moments.length)
+			throw new IllegalArgumentException("Expected " + statistics.moments.length + " moments, got " + moments.length);
+
+		System.arraycopy(moments, 0, statistics.moments, 0, moments.length);
+		statistics.rowCount = rowCount;
+		return statistics;
+	}
+
+
+	private LinearLeastSquares(final ModelFunction function, final int parameterCount, final int inputCount){
+		this.function = function;
+		this.parameterCount = parameterCount;
+		moments = new double[(parameterCount + 1) * (parameterCount + 1)];
+
+		basisParameters = new double[parameterCount];
+		inputs = new double[inputCount];
+	}
+
+
+	/**
+	 * Adds the given rows to the statistics.
+	 *
+	 * @param dataset	The data.
+	 * @param fromRow	The first row to be added, inclusive.
+	 * @param toRow	The last row to be added, exclusive.
+	 */
+	public void accumulate(final DatasetContext dataset, final int fromRow, final int toRow){
+		final int size = parameterCount + 1;
+		final double[] basis = new double[size];
+		for(int i = fromRow; i < toRow; i ++){
+			evaluateBasis(dataset, i, basis);
+			//replace the offset with the residual of the target from it
+			basis[parameterCount] = dataset.target(i) - basis[parameterCount];
+
+			for(int a = 0; a < size; a ++){
+				final double value = basis[a];
+				final int offset = a * size;
+				for(int b = a; b < size; b ++)
+					moments[offset + b] += value * basis[b];
+			}
+		}
+		for(int a = 0; a < size; a ++)
+			for(int b = a + 1; b < size; b ++)
+				moments[b * size + a] = moments[a * size + b];
+
+		rowCount += toRow - fromRow;
+	}
+
+	//`basis[k] = φₖ(x)` for `k < parameterCount`, `basis[parameterCount] = φ₀(x)`
+	private void evaluateBasis(final DatasetContext dataset, final int row, final double[] basis){
+		dataset.gatherInputs(row, inputs);
+
+		Arrays.fill(basisParameters, 0.);
+		final double offset = function.evaluate(basisParameters, inputs);
+		for(int k = 0; k < parameterCount; k ++){
+			basisParameters[k] = 1.;
+			basis[k] = function.evaluate(basisParameters, inputs) - offset;
+			basisParameters[k] = 0.;
+		}
+		basis[parameterCount] = offset;
+	}
+
+	/**
+	 * The number of rows accumulated so far.
+	 *
+	 * @return	The number of rows.
+	 */
+	public int rowCount(){
+		return rowCount;
+	}
+
+	/**
+	 * The sums of the products of the basis {@code (φ₁, ..., φₖ, r)}, row-major, to be persisted and later given to
+	 * {@link #restore(ModelFunction, int, int, double[], int)}.
+	 *
+	 * @return	A copy of the sums.
+	 */
+	public double[] moments(){
+		return moments.clone();
+	}
+
+	/**
+	 * Checks the value of the statistics at the given parameters against the one calculated on the data.
+	 * <p>
+	 * The two differ if the model is not linear in its parameters on some of the rows not checked by {@link #isLinear}, or if the
+	 * expansion of the error lost too much precision by cancellation.
+	 * </p>
+	 *
+	 * @param params	The parameters of the model.
+	 * @param value	The residual sum of squares at the given parameters, calculated on the rows, divided by their number.
+	 * @return	Whether the statistics agree with the data.
+	 */
+	public boolean isConsistent(final double[] params, final double value){
+		final int size = parameterCount + 1;
+		//the cancellation error is relative to the sum of the squared residuals from the offset
+		final double scale = Math.abs(value) + moments[size * size - 1] / rowCount;
+		return (Math.abs(value(params, SearchMode.APPROXIMATE) - value) <= CONSISTENCY_TOLERANCE * scale);
+	}
+
+
+	@Override
+	public double value(final double[] params, final SearchMode searchMode){
+		if(searchMode != SearchMode.APPROXIMATE)
+			throw new IllegalArgumentException("Sufficient statistics cannot calculate the penalty of a " + searchMode + " search");
+
+		//Σ(r - p·φ)² = Σr² - 2·Σ pₖ·Σφₖ·r + Σ pₐ·pᵦ·Σφₐ·φᵦ
+		final int size = parameterCount + 1;
+		final int residualOffset = parameterCount * size;
+		double error = moments[residualOffset + parameterCount];
+		for(int a = 0; a < parameterCount; a ++){
+			final double param = params[a];
+			final int offset = a * size;
+			double cross = 0.;
+			for(int b = 0; b < parameterCount; b ++)
+				cross += moments[offset + b] * params[b];
+			error += param * (cross - 2. * moments[residualOffset + a]);
+		}
+		//the expansion can go slightly negative by cancellation on a near-perfect fit
+		return Math.max(error, 0.) / rowCount;
+	}
+
+}
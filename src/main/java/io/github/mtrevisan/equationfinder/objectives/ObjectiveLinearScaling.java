@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import io.github.mtrevisan.equationfinder.ModelFunction;
+import org.apache.commons.math3.analysis.MultivariateFunction;
+
+
+/**
+ * Linearly-scaled Mean Squared error
+ *
+ * <p>
+ * The mean squared error of the best linear scaling {@code a + b·f(x)} of the model, where {@code a} and {@code b} are computed in closed
+ * form (least squares) in a single pass over the data. It is meant as a cheap screening of a candidate expression before spending a full
+ * optimization on it, the value does not depend on the offset and scale of the model.
+ * </p>
+ *
+ * @see "Keijzer, M. - Improving Symbolic Regression with Interval Arithmetic and Linear Scaling (EuroGP 2003)"
+ */
+public class ObjectiveLinearScaling implements MultivariateFunction{
+
+	private final ModelFunction function;
+	private final DatasetContext dataset;
+
+
+	public ObjectiveLinearScaling(final ModelFunction function, final DatasetContext dataset){
+		this.function = function;
+		this.dataset = dataset;
+	}
+
+
+	@Override
+	public double value(final double[] params){
+		final double meanExpected = dataset.targetMean;
+		double meanPredicted = 0.;
+		double weightSoFar = 0.;
+		//weighted co-moments, updated with the West algorithm
+		double predictedPredicted = 0.;
+		//since the weighted deviations of the target from its (known) mean sum up to zero, `sum(w·(f - mean(f))·(y - mean(y)))` is
+		//`sum(w·f·(y - mean(y)))`
+		double predictedExpected = 0.;
+		final double[] inputs = dataset.createInputBuffer();
+		final int length = dataset.rowCount();
+		for(int i = 0; i < length; i ++){
+			final double predicted = function.evaluate(params, dataset.gatherInputs(i, inputs));
+			if(!Double.isFinite(predicted))
+				return Double.POSITIVE_INFINITY;
+
+			final double weight = dataset.weight(i);
+			weightSoFar += weight;
+			final double deltaPredicted = predicted - meanPredicted;
+			meanPredicted += deltaPredicted * weight / weightSoFar;
+			predictedPredicted += weight * deltaPredicted * (predicted - meanPredicted);
+
+			predictedExpected += weight * predicted * (dataset.target(i) - meanExpected);
+		}
+		final double totalWeight = dataset.totalWeight;
+		final double expectedExpected = dataset.targetVariance * totalWeight;
+
+		//residual sum of squares of `a + b·f(x)`, with `b = cov(f, y) / var(f)` and `a = mean(y) - b·mean(f)`
+		final double error = (predictedPredicted > 0.
+			? expectedExpected - predictedExpected * predictedExpected / predictedPredicted
+			: expectedExpected);
+		return Math.max(error, 0.) / totalWeight;
+	}
+
+}
@@ -25,7 +25,7 @@
 package io.github.mtrevisan.equationfinder.objectives;
 
 import io.github.mtrevisan.equationfinder.ModelFunction;
-import org.apache.commons.math3.analysis.MultivariateFunction;
+import io.github.mtrevisan.equationfinder.SearchMode;
 
 
 /**
@@ -37,33 +37,60 @@ import org.apache.commons.math3.analysis.MultivariateFunction;
  * using MAR could lead to misleading results.
  * </p>
  */
-public class ObjectiveMAR implements MultivariateFunction{
+public class ObjectiveMAR implements FusedObjective{
 
 	public static final String OBJECTIVE_MEAN_ABSOLUTE_RELATIVE_ERROR = "MAR";
 
 
 	private final ModelFunction function;
-	private final double[][] dataTable;
+	private final DatasetContext dataset;
 
 
-	public ObjectiveMAR(final ModelFunction function, final double[][] dataTable){
+	public ObjectiveMAR(final ModelFunction function, final DatasetContext dataset){
+		if(dataset.hasMergedTargets())
+			throw new IllegalArgumentException("The metric cannot be calculated on rows with merged targets");
+
 		this.function = function;
-		this.dataTable = dataTable;
+		this.dataset = dataset;
 	}
 
 
 	@Override
-	public double value(final double[] params){
+	public double value(final double[] params, final SearchMode searchMode){
+		if(dataset.isParallel())
+			return parallelValue(params, searchMode);
+
 		double error = 0.;
-		final int length = dataTable.length;
+		double penalty = 0.;
+		final double[] inputs = dataset.createInputBuffer();
+		final int length = dataset.rowCount();
 		for(int i = 0; i < length; i ++){
-			final double[] row = dataTable[i];
-
-			final double expected = row[row.length - 1];
-			final double predicted = function.evaluate(params, row);
-			error += Math.abs(1. - predicted / expected);
+			final double weight = dataset.weight(i);
+			final double expected = dataset.target(i);
+			final double predicted = function.evaluate(params, dataset.gatherInputs(i, inputs));
+			error += weight * Math.abs(1. - predicted / expected);
+			penalty += weight * FusedObjective.searchModePenalty(searchMode, expected, predicted);
 		}
-		return error / length;
+		return error / dataset.totalWeight + penalty;
+	}
+
+	private double parallelValue(final double[] params, final SearchMode searchMode){
+		final int length = dataset.rowCount();
+		final double[] sums = ParallelReduction.sum(length, 2, (from, to, blockSums) -> {
+			final double[] inputs = dataset.createInputBuffer();
+			final NeumaierSum error = new NeumaierSum();
+			final NeumaierSum penalty = new NeumaierSum();
+			for(int i = from; i < to; i ++){
+				final double weight = dataset.weight(i);
+				final double expected = dataset.target(i);
+				final double predicted = function.evaluate(params, dataset.gatherInputs(i, inputs));
+				error.add(weight * Math.abs(1. - predicted / expected));
+				penalty.add(weight * FusedObjective.searchModePenalty(searchMode, expected, predicted));
+			}
+			blockSums[0] = error.value();
+			blockSums[1] = penalty.value();
+		});
+		return sums[0] / dataset.totalWeight + sums[1];
 	}
 
 }
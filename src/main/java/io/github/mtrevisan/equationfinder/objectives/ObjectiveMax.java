@@ -25,36 +25,47 @@
 package io.github.mtrevisan.equationfinder.objectives;
 
 import io.github.mtrevisan.equationfinder.ModelFunction;
-import org.apache.commons.math3.analysis.MultivariateFunction;
+import io.github.mtrevisan.equationfinder.SearchMode;
 
 
 /** Maximum error */
-public class ObjectiveMax implements MultivariateFunction{
+public class ObjectiveMax implements AbortableObjective{
 
 	public static final String OBJECTIVE_MAXIMUM_ERROR = "Max";
 
 
 	private final ModelFunction function;
-	protected final double[][] dataTable;
+	protected final DatasetContext dataset;
 
 
-	public ObjectiveMax(final ModelFunction function, final double[][] dataTable){
+	public ObjectiveMax(final ModelFunction function, final DatasetContext dataset){
 		this.function = function;
-		this.dataTable = dataTable;
+		this.dataset = dataset;
 	}
 
 
 	@Override
-	public double value(final double[] params){
+	public double value(final double[] params, final SearchMode searchMode, final double abortThreshold){
 		double error = 0.;
-		final int length = dataTable.length;
+		double penalty = 0.;
+		final double[] inputs = dataset.createInputBuffer();
+		final int length = dataset.rowCount();
 		for(int i = 0; i < length; i ++){
-			final double[] row = dataTable[i];
+			final double expected = dataset.target(i);
+			final double predicted = function.evaluate(params, dataset.gatherInputs(i, inputs));
+			//the weight of a row does not change the maximum, the farthest of its merged targets is one of the extremes
+			error = (dataset.hasMergedTargets()
+				? Math.max(error, Math.max(Math.abs(dataset.targetMaximum(i) - predicted), Math.abs(dataset.targetMinimum(i) - predicted)))
+				: Math.max(error, Math.abs(expected - predicted)));
+			penalty += dataset.weight(i) * FusedObjective.searchModePenalty(searchMode, expected, predicted);
 
-			final double expected = row[row.length - 1];
-			final double predicted = function.evaluate(params, row);
-			error = Math.max(error, Math.abs(expected - predicted));
+			if(normalize(error) + penalty > abortThreshold)
+				return normalize(error) + penalty;
 		}
+		return normalize(error) + penalty;
+	}
+
+	protected double normalize(final double error){
 		return error;
 	}
 
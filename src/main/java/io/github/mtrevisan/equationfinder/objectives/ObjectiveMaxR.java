@@ -33,14 +33,14 @@ public class ObjectiveMaxR extends ObjectiveMax{
 	public static final String OBJECTIVE_MAXIMUM_RELATIVE_ERROR = "MaxR";
 
 
-	public ObjectiveMaxR(final ModelFunction function, final double[][] dataTable){
-		super(function, dataTable);
+	public ObjectiveMaxR(final ModelFunction function, final DatasetContext dataset){
+		super(function, dataset);
 	}
 
 
 	@Override
-	public double value(final double[] params){
-		return super.value(params) / dataTable.length;
+	protected double normalize(final double error){
+		return error / dataset.totalWeight();
 	}
 
 }
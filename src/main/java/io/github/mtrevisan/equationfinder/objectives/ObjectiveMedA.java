@@ -25,9 +25,6 @@
 package io.github.mtrevisan.equationfinder.objectives;
 
 import io.github.mtrevisan.equationfinder.ModelFunction;
-import org.apache.commons.math3.analysis.MultivariateFunction;
-
-import java.util.Arrays;
 
 
 /**
@@ -39,39 +36,23 @@ import java.util.Arrays;
  * median) rather than being influenced by a few large errors (which would affect the mean).
  * </p>
  */
-public class ObjectiveMedA implements MultivariateFunction{
+public class ObjectiveMedA extends ObjectiveQuantileA{
 
 	public static final String OBJECTIVE_MEDIANT_ABSOLUTE_ERROR = "MedA";
 
 
-	private final ModelFunction function;
-	private final double[][] dataTable;
-
-
-	public ObjectiveMedA(final ModelFunction function, final double[][] dataTable){
-		this.function = function;
-		this.dataTable = dataTable;
+	public ObjectiveMedA(final ModelFunction function, final DatasetContext dataset){
+		super(function, dataset, 0.5);
 	}
 
-
-	@Override
-	public double value(final double[] params){
-		final int length = dataTable.length;
-		final double[] errors = new double[length];
-		for(int i = 0; i < length; i ++){
-			final double[] row = dataTable[i];
-
-			final double expected = row[row.length - 1];
-			final double predicted = function.evaluate(params, row);
-			errors[i] = Math.abs(expected - predicted);
-		}
-
-		Arrays.sort(errors);
-
-		final int mid = length >> 1;
-		return (length % 2 == 1
-			? errors[mid]
-			: (errors[mid - 1] + errors[mid]) / 2.);
+	/**
+	 * @param function	The model.
+	 * @param dataset	The data.
+	 * @param approximate	Whether the median is approximated with a t-digest instead of being computed exactly (ignored on a weighted
+	 * 	dataset).
+	 */
+	public ObjectiveMedA(final ModelFunction function, final DatasetContext dataset, final boolean approximate){
+		super(function, dataset, 0.5, approximate);
 	}
 
 }
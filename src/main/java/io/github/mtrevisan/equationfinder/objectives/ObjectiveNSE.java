@@ -25,7 +25,7 @@
 package io.github.mtrevisan.equationfinder.objectives;
 
 import io.github.mtrevisan.equationfinder.ModelFunction;
-import org.apache.commons.math3.analysis.MultivariateFunction;
+import io.github.mtrevisan.equationfinder.SearchMode;
 
 
 /**
@@ -33,50 +33,70 @@ import org.apache.commons.math3.analysis.MultivariateFunction;
  *
  * @see <a href="https://hal.science/hal-00296842/document">Comparison of different efficiency criteria for hydrological model assessment</a>
  */
-public class ObjectiveNSE implements MultivariateFunction{
+public class ObjectiveNSE implements FusedObjective{
 
 	public static final String OBJECTIVE_NASH_SUTCLIFFE_EFFICIENCY = "NSE";
 
 
 	private final ModelFunction function;
-	private final double[][] dataTable;
+	private final DatasetContext dataset;
 
 
-	public ObjectiveNSE(final ModelFunction function, final double[][] dataTable){
+	public ObjectiveNSE(final ModelFunction function, final DatasetContext dataset){
 		this.function = function;
-		this.dataTable = dataTable;
+		this.dataset = dataset;
 	}
 
 
 	@Override
-	public double value(final double[] params){
-		final int length = dataTable.length;
-		final int outputIndex = dataTable[0].length - 1;
-
-		//calculate the sum of the logarithms of the observed values
-		double sumLogObserved = 0.;
-		for(int i = 0; i < length; i ++)
-			sumLogObserved += StrictMath.log(dataTable[i][outputIndex]);
-		//Calculate the logarithmic mean
-		final double meanLogObserved = sumLogObserved / length;
-
-		//sum of squared errors
-		double numerator = 0.;
-		//sum of squared deviations from the logarithmic mean
-		double denominator = 0.;
-		//calculate the numerator and denominator
-		for(int i = 0; i < length; i++){
-			final double[] row = dataTable[i];
-
-			final double observed = StrictMath.log1p(row[row.length - 1]);
-			final double predicted = StrictMath.log1p(function.evaluate(params, row));
+	public double value(final double[] params, final SearchMode searchMode){
+		if(dataset.isParallel())
+			return parallelValue(params, searchMode);
+
+		final double[] inputs = dataset.createInputBuffer();
+		final int length = dataset.rowCount();
+
+		//sum of squared deviations from the logarithmic mean (does not depend on the model)
+		final double denominator = dataset.logTargetVariance * dataset.totalWeight;
+
+		//sum of squared errors (starting from the deviations of the merged targets from the one of their row)
+		double numerator = dataset.logTargetResidual();
+		double penalty = 0.;
+		for(int i = 0; i < length; i ++){
+			final double weight = dataset.weight(i);
+			final double expected = dataset.target(i);
+			final double prediction = function.evaluate(params, dataset.gatherInputs(i, inputs));
+			final double predicted = StrictMath.log1p(prediction);
 
 			//sum in numerator (squares of logarithmic errors)
-			numerator += StrictMath.pow(observed - predicted, 2.);
-			//sum in denominator (squares of deviations from the logarithmic mean)
-			denominator += StrictMath.pow(observed - meanLogObserved, 2.);
+			numerator += weight * StrictMath.pow(dataset.logTarget(i) - predicted, 2.);
+			penalty += weight * FusedObjective.searchModePenalty(searchMode, expected, prediction);
 		}
-		return 1. - numerator / denominator;
+		return 1. - numerator / denominator + penalty;
+	}
+
+	private double parallelValue(final double[] params, final SearchMode searchMode){
+		final int length = dataset.rowCount();
+
+		final double denominator = dataset.logTargetVariance * dataset.totalWeight;
+
+		final double[] sums = ParallelReduction.sum(length, 2, (from, to, blockSums) -> {
+			final double[] inputs = dataset.createInputBuffer();
+			final NeumaierSum numerator = new NeumaierSum();
+			final NeumaierSum penalty = new NeumaierSum();
+			for(int i = from; i < to; i ++){
+				final double weight = dataset.weight(i);
+				final double expected = dataset.target(i);
+				final double prediction = function.evaluate(params, dataset.gatherInputs(i, inputs));
+				final double predicted = StrictMath.log1p(prediction);
+
+				numerator.add(weight * StrictMath.pow(dataset.logTarget(i) - predicted, 2.));
+				penalty.add(weight * FusedObjective.searchModePenalty(searchMode, expected, prediction));
+			}
+			blockSums[0] = numerator.value();
+			blockSums[1] = penalty.value();
+		});
+		return 1. - (sums[0] + dataset.logTargetResidual()) / denominator + sums[1];
 	}
 
 }
@@ -25,35 +25,73 @@
 package io.github.mtrevisan.equationfinder.objectives;
 
 import io.github.mtrevisan.equationfinder.Constraint;
-import io.github.mtrevisan.equationfinder.ModelFunction;
 import io.github.mtrevisan.equationfinder.SearchMode;
 import org.apache.commons.math3.analysis.MultivariateFunction;
 
 
 public class ObjectivePenalty implements MultivariateFunction{
 
-	private final MultivariateFunction multivariateFunction;
+	/** Value of an objective that cannot be calculated (undefined, that is NaN, or failing). */
+	public static final double INVALID_VALUE = Double.POSITIVE_INFINITY;
+
+	private final FusedObjective objective;
 	private final Constraint[] constraints;
 	private final SearchMode searchMode;
-	private final ModelFunction function;
-	private final double[][] dataTable;
+
+	//value above which the caller is not interested in the exact result (e.g. the cutoff of a selection)
+	private double cutoff = Double.POSITIVE_INFINITY;
+	//best value computed so far (e.g. the incumbent of the optimizer)
+	private double incumbent = Double.POSITIVE_INFINITY;
 
 
-	public ObjectivePenalty(final MultivariateFunction multivariateFunction, final Constraint[] constraints, final SearchMode searchMode,
-			final ModelFunction function, final double[][] dataTable){
-		this.multivariateFunction = multivariateFunction;
+	public ObjectivePenalty(final FusedObjective objective, final Constraint[] constraints, final SearchMode searchMode){
+		this.objective = objective;
 		this.constraints = constraints;
 		this.searchMode = searchMode;
-		this.function = function;
-		this.dataTable = dataTable;
 	}
 
 
+	/**
+	 * Sets the value above which the exact result is of no interest.
+	 * <p>
+	 * If the objective is an {@link AbortableObjective}, the scan of the data stops as soon as the value crosses either this cutoff or the
+	 * best value computed so far.
+	 * </p>
+	 *
+	 * @param cutoff	The cutoff.
+	 */
+	public void setCutoff(final double cutoff){
+		this.cutoff = cutoff;
+	}
+
+	/**
+	 * Forgets the best value computed so far, to be called before each optimization, since an incumbent of a previous one (possibly on
+	 * other rows) is not a valid threshold for the scan.
+	 */
+	public void resetIncumbent(){
+		incumbent = Double.POSITIVE_INFINITY;
+	}
+
 	@Override
 	public double value(final double[] params){
-		try{
-			final double error = multivariateFunction.value(params);
+		final double value = value(params, Math.min(cutoff, incumbent));
+		if(value < incumbent)
+			incumbent = value;
+		return value;
+	}
+
+	/**
+	 * Calculates the value on all the rows, regardless of the cutoff and of the best value computed so far.
+	 *
+	 * @param params	The parameters of the model.
+	 * @return	The exact value.
+	 */
+	public double exactValue(final double[] params){
+		return value(params, Double.POSITIVE_INFINITY);
+	}
 
+	private double value(final double[] params, final double threshold){
+		try{
 			double penalty = 0.;
 			for(int i = 0, length = constraints.length; i < length; i ++){
 				final Constraint constraint = constraints[i];
@@ -61,29 +99,19 @@ public class ObjectivePenalty implements MultivariateFunction{
 				final double penaltyError = constraint.evaluate(params);
 				if(!constraint.isFeasible(penaltyError))
 					penalty += StrictMath.pow(penaltyError, 2.);
-
-				if(searchMode != SearchMode.APPROXIMATE)
-					penalty += addSearchModePenalty(params);
 			}
-			return error + penalty;
-		}
-		catch(final Exception ignored){
-			return Double.POSITIVE_INFINITY;
-		}
-	}
 
-	private double addSearchModePenalty(final double[] params){
-		double error = 0.;
-		final int length = dataTable.length;
-		for(int i = 0; i < length; i ++){
-			final double[] row = dataTable[i];
+			//metric and search mode penalty in a single pass over the data
+			final double error = (objective instanceof final AbortableObjective abortableObjective
+				? abortableObjective.value(params, searchMode, threshold - penalty)
+				: objective.value(params, searchMode));
 
-			final double expected = row[row.length - 1];
-			final double predicted = function.evaluate(params, row);
-			final double delta = expected - predicted;
-			error += Math.max(0., (searchMode == SearchMode.UPPER_BOUND? delta: -delta));
+			final double value = error + penalty;
+			return (Double.isNaN(value)? INVALID_VALUE: value);
+		}
+		catch(final Exception ignored){
+			return INVALID_VALUE;
 		}
-		return error;
 	}
 
 }
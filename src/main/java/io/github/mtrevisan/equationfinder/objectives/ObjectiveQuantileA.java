@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import io.github.mtrevisan.equationfinder.ModelFunction;
+import io.github.mtrevisan.equationfinder.SearchMode;
+
+
+/**
+ * Quantile Absolute error
+ *
+ * <p>
+ * The given quantile of the absolute errors (e.g. the 90th percentile): it bounds the error of most of the data while ignoring the worst
+ * few rows, in between the median and the maximum error.
+ * </p>
+ * <p>
+ * The quantile is computed exactly, in linear time, on a buffer reused across calls (one per thread). On very large tables it can be
+ * approximated in bounded memory with a streaming t-digest, if explicitly requested (the result is then no longer exact).
+ * </p>
+ * <p>
+ * On a weighted dataset the quantile is the one of the rows repeated as many times as their weight, and it is always computed exactly
+ * (the digest only merges values of unit weight).
+ * </p>
+ */
+public class ObjectiveQuantileA implements FusedObjective{
+
+	public static final String OBJECTIVE_90TH_PERCENTILE_ABSOLUTE_ERROR = "P90A";
+	public static final String OBJECTIVE_95TH_PERCENTILE_ABSOLUTE_ERROR = "P95A";
+
+	private static final double DIGEST_COMPRESSION = 200.;
+
+	private static final ThreadLocal<double[]> ERRORS = ThreadLocal.withInitial(() -> new double[0]);
+	private static final ThreadLocal<double[]> ERROR_WEIGHTS = ThreadLocal.withInitial(() -> new double[0]);
+	private static final ThreadLocal<QuantileDigest> DIGEST = ThreadLocal.withInitial(() -> new QuantileDigest(DIGEST_COMPRESSION));
+
+
+	private final ModelFunction function;
+	private final DatasetContext dataset;
+	private final double quantile;
+	private final boolean approximate;
+
+
+	public ObjectiveQuantileA(final ModelFunction function, final DatasetContext dataset, final double quantile){
+		this(function, dataset, quantile, false);
+	}
+
+	/**
+	 * @param function	The model.
+	 * @param dataset	The data.
+	 * @param quantile	The quantile, in [0, 1].
+	 * @param approximate	Whether the quantile is approximated with a t-digest instead of being computed exactly (ignored on a weighted
+	 * 	dataset).
+	 */
+	public ObjectiveQuantileA(final ModelFunction function, final DatasetContext dataset, final double quantile,
+			final boolean approximate){
+		if(quantile < 0. || quantile > 1.)
+			throw new IllegalArgumentException("Quantile must be in [0, 1]: " + quantile);
+		if(dataset.hasMergedTargets())
+			throw new IllegalArgumentException("The metric cannot be calculated on rows with merged targets");
+
+		this.function = function;
+		this.dataset = dataset;
+		this.quantile = quantile;
+		this.approximate = (approximate && !dataset.isWeighted());
+	}
+
+
+	@Override
+	public double value(final double[] params, final SearchMode searchMode){
+		return (approximate
+			? approximateValue(params, searchMode)
+			: exactValue(params, searchMode));
+	}
+
+	private double exactValue(final double[] params, final SearchMode searchMode){
+		final int length = dataset.rowCount();
+		double[] errors = ERRORS.get();
+		if(errors.length < length){
+			errors = new double[length];
+			ERRORS.set(errors);
+		}
+		final double[] inputs = dataset.createInputBuffer();
+		double penalty = 0.;
+		for(int i = 0; i < length; i ++){
+			final double expected = dataset.target(i);
+			final double predicted = function.evaluate(params, dataset.gatherInputs(i, inputs));
+			errors[i] = absoluteError(expected, predicted);
+			penalty += dataset.weight(i) * FusedObjective.searchModePenalty(searchMode, expected, predicted);
+		}
+
+		if(!dataset.isWeighted())
+			return OrderStatistics.quantile(errors, length, quantile)
+				+ penalty;
+
+		//the selection reorders the weights along with the errors
+		double[] errorWeights = ERROR_WEIGHTS.get();
+		if(errorWeights.length < length){
+			errorWeights = new double[length];
+			ERROR_WEIGHTS.set(errorWeights);
+		}
+		System.arraycopy(dataset.weights, 0, errorWeights, 0, length);
+		return OrderStatistics.weightedQuantile(errors, errorWeights, length, quantile)
+			+ penalty;
+	}
+
+	private double approximateValue(final double[] params, final SearchMode searchMode){
+		final int length = dataset.rowCount();
+		final QuantileDigest digest = DIGEST.get();
+		digest.reset();
+		final double[] inputs = dataset.createInputBuffer();
+		double penalty = 0.;
+		for(int i = 0; i < length; i ++){
+			final double expected = dataset.target(i);
+			final double predicted = function.evaluate(params, dataset.gatherInputs(i, inputs));
+			digest.add(absoluteError(expected, predicted));
+			penalty += FusedObjective.searchModePenalty(searchMode, expected, predicted);
+		}
+
+		return digest.quantile(quantile)
+			+ penalty;
+	}
+
+	private static double absoluteError(final double expected, final double predicted){
+		final double error = Math.abs(expected - predicted);
+		//an undefined error is the worst possible one
+		return (Double.isNaN(error)? Double.POSITIVE_INFINITY: error);
+	}
+
+}
@@ -25,7 +25,7 @@
 package io.github.mtrevisan.equationfinder.objectives;
 
 import io.github.mtrevisan.equationfinder.ModelFunction;
-import org.apache.commons.math3.analysis.MultivariateFunction;
+import io.github.mtrevisan.equationfinder.SearchMode;
 
 
 /**
@@ -36,33 +36,58 @@ import org.apache.commons.math3.analysis.MultivariateFunction;
  * choice when the data is not very sparse and the errors’ relative difference is more important.
  * </p>
  */
-public class ObjectiveRMSL implements MultivariateFunction{
+public class ObjectiveRMSL implements FusedObjective{
 
 	public static final String OBJECTIVE_ROOT_MEAN_SQUARED_LOG_ERROR = "RMSL";
 
 
 	private final ModelFunction function;
-	private final double[][] dataTable;
+	private final DatasetContext dataset;
 
 
-	public ObjectiveRMSL(final ModelFunction function, final double[][] dataTable){
+	public ObjectiveRMSL(final ModelFunction function, final DatasetContext dataset){
 		this.function = function;
-		this.dataTable = dataTable;
+		this.dataset = dataset;
 	}
 
 
 	@Override
-	public double value(final double[] params){
-		double error = 0.;
-		final int length = dataTable.length;
-		for(int i = 0; i < length; i ++){
-			final double[] row = dataTable[i];
+	public double value(final double[] params, final SearchMode searchMode){
+		if(dataset.isParallel())
+			return parallelValue(params, searchMode);
 
-			final double expected = StrictMath.log1p(row[row.length - 1]);
-			final double predicted = StrictMath.log1p(function.evaluate(params, row));
-			error += StrictMath.pow(expected - predicted, 2.);
+		//deviations of the merged targets from the one of their row (they do not depend on the model)
+		double error = dataset.logTargetResidual();
+		double penalty = 0.;
+		final double[] inputs = dataset.createInputBuffer();
+		final int length = dataset.rowCount();
+		for(int i = 0; i < length; i ++){
+			final double weight = dataset.weight(i);
+			final double expected = dataset.target(i);
+			final double predicted = function.evaluate(params, dataset.gatherInputs(i, inputs));
+			error += weight * StrictMath.pow(dataset.logTarget(i) - StrictMath.log1p(predicted), 2.);
+			penalty += weight * FusedObjective.searchModePenalty(searchMode, expected, predicted);
 		}
-		return error / length;
+		return error / dataset.totalWeight + penalty;
+	}
+
+	private double parallelValue(final double[] params, final SearchMode searchMode){
+		final int length = dataset.rowCount();
+		final double[] sums = ParallelReduction.sum(length, 2, (from, to, blockSums) -> {
+			final double[] inputs = dataset.createInputBuffer();
+			final NeumaierSum error = new NeumaierSum();
+			final NeumaierSum penalty = new NeumaierSum();
+			for(int i = from; i < to; i ++){
+				final double weight = dataset.weight(i);
+				final double expected = dataset.target(i);
+				final double predicted = function.evaluate(params, dataset.gatherInputs(i, inputs));
+				error.add(weight * StrictMath.pow(dataset.logTarget(i) - StrictMath.log1p(predicted), 2.));
+				penalty.add(weight * FusedObjective.searchModePenalty(searchMode, expected, predicted));
+			}
+			blockSums[0] = error.value();
+			blockSums[1] = penalty.value();
+		});
+		return (sums[0] + dataset.logTargetResidual()) / dataset.totalWeight + sums[1];
 	}
 
 }
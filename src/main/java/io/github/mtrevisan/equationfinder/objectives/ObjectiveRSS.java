@@ -25,7 +25,7 @@
 package io.github.mtrevisan.equationfinder.objectives;
 
 import io.github.mtrevisan.equationfinder.ModelFunction;
-import org.apache.commons.math3.analysis.MultivariateFunction;
+import io.github.mtrevisan.equationfinder.SearchMode;
 
 
 /**
@@ -35,33 +35,66 @@ import org.apache.commons.math3.analysis.MultivariateFunction;
  * Very similar to the Root Mean Squared metric but without taking the average and the square root.
  * </p>
  */
-public class ObjectiveRSS implements MultivariateFunction{
+public class ObjectiveRSS implements AbortableObjective{
 
 	public static final String OBJECTIVE_RESIDUAL_SUM_OF_SQUARES_ERROR = "RSS";
 
 
 	private final ModelFunction function;
-	private final double[][] dataTable;
+	private final DatasetContext dataset;
 
 
-	public ObjectiveRSS(final ModelFunction function, final double[][] dataTable){
+	public ObjectiveRSS(final ModelFunction function, final DatasetContext dataset){
 		this.function = function;
-		this.dataTable = dataTable;
+		this.dataset = dataset;
 	}
 
 
 	@Override
-	public double value(final double[] params){
-		double error = 0.;
-		final int length = dataTable.length;
+	public double value(final double[] params, final SearchMode searchMode, final double abortThreshold){
+		if(dataset.isParallel())
+			return parallelValue(params, searchMode);
+
+		//deviations of the merged targets from the one of their row (they do not depend on the model)
+		double error = dataset.targetResidual();
+		double penalty = 0.;
+		double weightSoFar = 0.;
+		final double[] inputs = dataset.createInputBuffer();
+		final int length = dataset.rowCount();
+		final double totalWeight = dataset.totalWeight;
+		final double abortError = abortThreshold * totalWeight;
 		for(int i = 0; i < length; i ++){
-			final double[] row = dataTable[i];
+			final double weight = dataset.weight(i);
+			final double expected = dataset.target(i);
+			final double predicted = function.evaluate(params, dataset.gatherInputs(i, inputs));
+			error += weight * StrictMath.pow(expected - predicted, 2.);
+			penalty += weight * FusedObjective.searchModePenalty(searchMode, expected, predicted);
+			weightSoFar += weight;
 
-			final double expected = row[row.length - 1];
-			final double predicted = function.evaluate(params, row);
-			error += StrictMath.pow(expected - predicted, 2.);
+			if(error + penalty * totalWeight > abortError)
+				//extrapolate to all the rows
+				return (error + penalty * totalWeight) / weightSoFar;
 		}
-		return error / length;
+		return error / totalWeight + penalty;
+	}
+
+	private double parallelValue(final double[] params, final SearchMode searchMode){
+		final int length = dataset.rowCount();
+		final double[] sums = ParallelReduction.sum(length, 2, (from, to, blockSums) -> {
+			final double[] inputs = dataset.createInputBuffer();
+			final NeumaierSum error = new NeumaierSum();
+			final NeumaierSum penalty = new NeumaierSum();
+			for(int i = from; i < to; i ++){
+				final double weight = dataset.weight(i);
+				final double expected = dataset.target(i);
+				final double predicted = function.evaluate(params, dataset.gatherInputs(i, inputs));
+				error.add(weight * StrictMath.pow(expected - predicted, 2.));
+				penalty.add(weight * FusedObjective.searchModePenalty(searchMode, expected, predicted));
+			}
+			blockSums[0] = error.value();
+			blockSums[1] = penalty.value();
+		});
+		return (sums[0] + dataset.targetResidual()) / dataset.totalWeight + sums[1];
 	}
 
 }
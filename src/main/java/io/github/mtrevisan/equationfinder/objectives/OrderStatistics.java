@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+
+/**
+ * Linear-time selection of order statistics, in place.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Floyd%E2%80%93Rivest_algorithm">Floyd-Rivest algorithm</a>
+ */
+final class OrderStatistics{
+
+	//below this size the sampling step of Floyd-Rivest does not pay off
+	private static final int SAMPLING_THRESHOLD = 600;
+
+
+	private OrderStatistics(){}
+
+
+	/**
+	 * Calculates the quantile of the first {@code length} values, interpolating linearly between the two closest order statistics.
+	 * <p>
+	 * The values are partially reordered. They must not contain NaN.
+	 * </p>
+	 *
+	 * @param values	The values.
+	 * @param length	The number of values to consider.
+	 * @param quantile	The quantile, in [0, 1].
+	 * @return	The quantile.
+	 */
+	static double quantile(final double[] values, final int length, final double quantile){
+		final double position = quantile * (length - 1);
+		final int lowIndex = (int)position;
+		select(values, 0, length - 1, lowIndex);
+		final double low = values[lowIndex];
+		final double fraction = position - lowIndex;
+		if(fraction == 0.)
+			return low;
+
+		//after the selection, the next order statistic is the minimum of the upper partition
+		double high = values[lowIndex + 1];
+		for(int i = lowIndex + 2; i < length; i ++)
+			high = Math.min(high, values[i]);
+		return (high == low? low: low + fraction * (high - low));
+	}
+
+	/**
+	 * Calculates the quantile of the first {@code length} values, each counted as many times as its weight, interpolating linearly between
+	 * the two closest order statistics.
+	 * <p>
+	 * With integer weights, the result is the quantile of the values repeated as many times as their weight. The values and the weights
+	 * are partially reordered (together). The values must not contain NaN, the weights must be positive.
+	 * </p>
+	 *
+	 * @param values	The values.
+	 * @param weights	The weight of each value.
+	 * @param length	The number of values to consider.
+	 * @param quantile	The quantile, in [0, 1].
+	 * @return	The quantile.
+	 */
+	static double weightedQuantile(final double[] values, final double[] weights, final int length, final double quantile){
+		double totalWeight = 0.;
+		for(int i = 0; i < length; i ++)
+			totalWeight += weights[i];
+
+		//position in the (virtual) sequence of the values repeated as many times as their weight
+		final double position = Math.max(quantile * (totalWeight - 1.), 0.);
+		final double lowPosition = Math.floor(position);
+		final double low = weightedSelect(values, weights, length, lowPosition);
+		final double fraction = position - lowPosition;
+		if(fraction == 0.)
+			return low;
+
+		final double high = weightedSelect(values, weights, length, lowPosition + 1.);
+		return (high == low? low: low + fraction * (high - low));
+	}
+
+	/**
+	 * Finds the value at the given position of the sequence of the values repeated as many times as their weight, that is the lowest value
+	 * whose cumulative weight (in sorted order) exceeds the position, or the maximum value if there is none.
+	 */
+	private static double weightedSelect(final double[] values, final double[] weights, final int length, double position){
+		int left = 0;
+		int right = length - 1;
+		while(true){
+			final double pivot = values[left + ((right - left) >> 1)];
+
+			//three-way partition: `[left, lower)` below the pivot, `[lower, i)` equal to it, `(upper, right]` above it
+			int lower = left;
+			int upper = right;
+			int i = left;
+			double lowerWeight = 0.;
+			double equalWeight = 0.;
+			while(i <= upper){
+				final double value = values[i];
+				if(value < pivot){
+					lowerWeight += weights[i];
+					swap(values, weights, lower ++, i ++);
+				}
+				else if(value > pivot)
+					swap(values, weights, i, upper --);
+				else
+					equalWeight += weights[i ++];
+			}
+
+			if(position < lowerWeight)
+				right = lower - 1;
+			else if(position < lowerWeight + equalWeight || upper == right)
+				return pivot;
+			else{
+				position -= lowerWeight + equalWeight;
+				left = upper + 1;
+			}
+		}
+	}
+
+	/**
+	 * Rearranges the values between {@code left} and {@code right} (inclusive) so that the value at index {@code k} is the one that would
+	 * be there if the range was sorted, with no greater value before it and no lower value after it.
+	 *
+	 * @param values	The values.
+	 * @param left	The left index of the range.
+	 * @param right	The right index of the range.
+	 * @param k	The index of the order statistic.
+	 */
+	static void select(final double[] values, int left, int right, final int k){
+		while(right > left){
+			if(right - left > SAMPLING_THRESHOLD){
+				//recurse on a sample, to find a pivot close to the k-th value
+				final int n = right - left + 1;
+				final int i = k - left + 1;
+				final double z = Math.log(n);
+				final double s = 0.5 * Math.exp(2. * z / 3.);
+				final double sd = 0.5 * Math.sqrt(z * s * (n - s) / n) * Math.signum(i - n / 2.);
+				final int newLeft = Math.max(left, (int)(k - i * s / n + sd));
+				final int newRight = Math.min(right, (int)(k + (n - i) * s / n + sd));
+				select(values, newLeft, newRight, k);
+			}
+
+			//partition around values[k]
+			final double pivot = values[k];
+			int i = left;
+			int j = right;
+			swap(values, left, k);
+			if(values[right] > pivot)
+				swap(values, right, left);
+			while(i < j){
+				swap(values, i, j);
+				i ++;
+				j --;
+				while(values[i] < pivot)
+					i ++;
+				while(values[j] > pivot)
+					j --;
+			}
+			if(values[left] == pivot)
+				swap(values, left, j);
+			else{
+				j ++;
+				swap(values, j, right);
+			}
+
+			if(j <= k)
+				left = j + 1;
+			if(k <= j)
+				right = j - 1;
+		}
+	}
+
+	private static void swap(final double[] values, final int i, final int j){
+		final double temp = values[i];
+		values[i] = values[j];
+		values[j] = temp;
+	}
+
+	private static void swap(final double[] values, final double[] weights, final int i, final int j){
+		swap(values, i, j);
+		swap(weights, i, j);
+	}
+
+}
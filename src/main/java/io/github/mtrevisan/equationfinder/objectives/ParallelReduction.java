@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Deterministic parallel sum over the rows of a dataset.
+ * <p>
+ * The rows are partitioned in blocks of fixed size (that do not depend on the number of threads), each block is summed on its own, and the
+ * partial sums are combined pairwise in a fixed tree order: the result is bit-identical whatever the number of threads.
+ * </p>
+ */
+final class ParallelReduction{
+
+	private static final int BLOCK_SIZE = 4_096;
+
+
+	@FunctionalInterface
+	interface BlockSum{
+
+		/**
+		 * Sums the terms of the rows in {@code [from, to)}.
+		 *
+		 * @param from	The first row (inclusive).
+		 * @param to	The last row (exclusive).
+		 * @param sums	The array where to store the sum of each term.
+		 */
+		void sum(int from, int to, double[] sums);
+
+	}
+
+
+	private ParallelReduction(){}
+
+
+	/**
+	 * @param rowCount	The number of rows.
+	 * @param termCount	The number of terms summed for each row.
+	 * @param blockSum	The function summing the terms of a block of rows.
+	 * @return	The sum of each term over all the rows.
+	 */
+	static double[] sum(final int rowCount, final int termCount, final BlockSum blockSum){
+		final int blockCount = (rowCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		if(blockCount == 0)
+			return new double[termCount];
+
+		final double[][] blockSums = new double[blockCount][termCount];
+		ForkJoinPool.commonPool()
+			.invoke(new BlockTask(blockSum, rowCount, blockSums, 0, blockCount));
+		return combine(blockSums, 0, blockCount);
+	}
+
+	private static double[] combine(final double[][] blockSums, final int from, final int to){
+		if(to - from == 1)
+			return blockSums[from];
+
+		final int mid = (from + to) >>> 1;
+		final double[] left = combine(blockSums, from, mid);
+		final double[] right = combine(blockSums, mid, to);
+		for(int k = 0, length = left.length; k < length; k ++)
+			left[k] += right[k];
+		return left;
+	}
+
+
+	private static final class BlockTask extends RecursiveAction{
+
+		private static final long serialVersionUID = -2_904_133_655_427_719_068l;
+
+		//the task is never serialized, the function summing the blocks need not be serializable
+		private final transient BlockSum blockSum;
+		private final int rowCount;
+		private final double[][] blockSums;
+		private final int fromBlock;
+		private final int toBlock;
+
+
+		BlockTask(final BlockSum blockSum, final int rowCount, final double[][] blockSums, final int fromBlock, final int toBlock){
+			this.blockSum = blockSum;
+			this.rowCount = rowCount;
+			this.blockSums = blockSums;
+			this.fromBlock = fromBlock;
+			this.toBlock = toBlock;
+		}
+
+		@Override
+		protected void compute(){
+			if(toBlock - fromBlock == 1){
+				final int from = fromBlock * BLOCK_SIZE;
+				blockSum.sum(from, Math.min(from + BLOCK_SIZE, rowCount), blockSums[fromBlock]);
+			}
+			else{
+				final int mid = (fromBlock + toBlock) >>> 1;
+				invokeAll(new BlockTask(blockSum, rowCount, blockSums, fromBlock, mid),
+					new BlockTask(blockSum, rowCount, blockSums, mid, toBlock));
+			}
+		}
+
+	}
+
+}
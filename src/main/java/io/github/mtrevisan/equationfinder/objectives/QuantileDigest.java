@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import java.util.Arrays;
+
+
+/**
+ * Streaming approximation of quantiles in bounded memory (merging t-digest).
+ * <p>
+ * The values are collected in a buffer that, once full, is sorted and merged into a set of centroids whose maximum weight is small near
+ * the tails and large in the middle of the distribution (scale function {@code k1}).
+ * </p>
+ *
+ * @see <a href="https://arxiv.org/abs/1902.04023">Dunning, Ertl - Computing Extremely Accurate Quantiles Using t-Digests</a>
+ */
+final class QuantileDigest{
+
+	private final double compression;
+
+	private double[] means;
+	private double[] weights;
+	private int centroidCount;
+
+	private final double[] buffer;
+	private int bufferSize;
+
+	private double totalWeight;
+	private double min;
+	private double max;
+
+	//merge scratch space
+	private double[] mergedMeans;
+	private double[] mergedWeights;
+
+
+	QuantileDigest(final double compression){
+		this.compression = compression;
+
+		final int capacity = (int)Math.ceil(compression) + 1;
+		means = new double[capacity];
+		weights = new double[capacity];
+		mergedMeans = new double[capacity];
+		mergedWeights = new double[capacity];
+		buffer = new double[capacity * 5];
+
+		reset();
+	}
+
+
+	void reset(){
+		centroidCount = 0;
+		bufferSize = 0;
+		totalWeight = 0.;
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+	}
+
+	void add(final double value){
+		if(bufferSize == buffer.length)
+			merge();
+
+		buffer[bufferSize ++] = value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * @param quantile	The quantile, in [0, 1].
+	 * @return	The approximated quantile of the values added so far.
+	 */
+	double quantile(final double quantile){
+		merge();
+
+		if(centroidCount == 0)
+			return Double.NaN;
+		if(centroidCount == 1 || min == max)
+			return means[0];
+
+		final double index = quantile * totalWeight;
+		//between the minimum and the center of the first centroid
+		double cumulative = weights[0] / 2.;
+		if(index < cumulative)
+			return interpolate(min, means[0], index / cumulative);
+
+		for(int i = 0; i < centroidCount - 1; i ++){
+			final double delta = (weights[i] + weights[i + 1]) / 2.;
+			if(cumulative + delta > index)
+				return interpolate(means[i], means[i + 1], (index - cumulative) / delta);
+
+			cumulative += delta;
+		}
+
+		//between the center of the last centroid and the maximum
+		final int last = centroidCount - 1;
+		final double remaining = weights[last] / 2.;
+		return interpolate(means[last], max, Math.min((index - cumulative) / remaining, 1.));
+	}
+
+	private static double interpolate(final double from, final double to, final double fraction){
+		return (from == to? from: from + fraction * (to - from));
+	}
+
+	private void merge(){
+		if(bufferSize == 0)
+			return;
+
+		Arrays.sort(buffer, 0, bufferSize);
+		totalWeight += bufferSize;
+
+		//merge sort between centroids and buffered values (of unit weight)
+		int count = 0;
+		int centroidIndex = 0;
+		int bufferIndex = 0;
+		double weightSoFar = 0.;
+		double weightLimit = totalWeight * limitQuantile(0.);
+		double currentMean = 0.;
+		double currentWeight = 0.;
+		while(centroidIndex < centroidCount || bufferIndex < bufferSize){
+			final double nextMean;
+			final double nextWeight;
+			if(bufferIndex == bufferSize || centroidIndex < centroidCount && means[centroidIndex] <= buffer[bufferIndex]){
+				nextMean = means[centroidIndex];
+				nextWeight = weights[centroidIndex ++];
+			}
+			else{
+				nextMean = buffer[bufferIndex ++];
+				nextWeight = 1.;
+			}
+
+			if(currentWeight == 0.){
+				currentMean = nextMean;
+				currentWeight = nextWeight;
+			}
+			else if(weightSoFar + currentWeight + nextWeight <= weightLimit){
+				currentWeight += nextWeight;
+				currentMean += (nextMean - currentMean) * nextWeight / currentWeight;
+			}
+			else{
+				count = emit(count, currentMean, currentWeight);
+				weightSoFar += currentWeight;
+				weightLimit = totalWeight * limitQuantile(weightSoFar / totalWeight);
+
+				currentMean = nextMean;
+				currentWeight = nextWeight;
+			}
+		}
+		count = emit(count, currentMean, currentWeight);
+
+		double[] temp = means;
+		means = mergedMeans;
+		mergedMeans = temp;
+		temp = weights;
+		weights = mergedWeights;
+		mergedWeights = temp;
+		centroidCount = count;
+		bufferSize = 0;
+	}
+
+	private int emit(final int count, final double mean, final double weight){
+		if(count == mergedMeans.length){
+			mergedMeans = Arrays.copyOf(mergedMeans, count << 1);
+			mergedWeights = Arrays.copyOf(mergedWeights, count << 1);
+		}
+		mergedMeans[count] = mean;
+		mergedWeights[count] = weight;
+		return count + 1;
+	}
+
+	/**
+	 * Calculates the quantile up to which a centroid starting at the given quantile may extend, that is {@code q(k(quantile) + 1)},
+	 * with {@code k(q) = δ / (2π) · asin(2q - 1)}.
+	 */
+	private double limitQuantile(final double quantile){
+		final double k = compression / (2. * Math.PI) * Math.asin(2. * quantile - 1.) + 1.;
+		return (k >= compression / 4.
+			? 1.
+			: (Math.sin(k * 2. * Math.PI / compression) + 1.) / 2.);
+	}
+
+}
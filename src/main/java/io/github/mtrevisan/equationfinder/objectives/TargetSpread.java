@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+
+/**
+ * The targets merged into each row of a dataset whose rows with the same inputs were grouped together.
+ * <p>
+ * The row holds the (weighted) mean of the targets of its group, this holds what is lost by the merge and that some metric still needs:
+ * the extremes of the targets, the mean of their logarithm, and their sums of squared deviations from the means (that do not depend on
+ * the model, since a sum of squared errors of a group is {@code w·(mean - f)² + sum((y - mean)²)}).
+ * </p>
+ */
+final class TargetSpread{
+
+	final double[] minimum;
+	final double[] maximum;
+	//weighted mean of `log(1 + target)`
+	final double[] logMean;
+	//weighted sum of squared deviations from the mean
+	final double[] residual;
+	final double[] logResidual;
+
+	final double totalResidual;
+	final double totalLogResidual;
+
+
+	TargetSpread(final double[] minimum, final double[] maximum, final double[] logMean, final double[] residual,
+			final double[] logResidual){
+		this.minimum = minimum;
+		this.maximum = maximum;
+		this.logMean = logMean;
+		this.residual = residual;
+		this.logResidual = logResidual;
+
+		double sum = 0.;
+		double logSum = 0.;
+		for(int i = 0, length = residual.length; i < length; i ++){
+			sum += residual[i];
+			logSum += logResidual[i];
+		}
+		totalResidual = sum;
+		totalLogResidual = logSum;
+	}
+
+
+	/**
+	 * Extracts the given rows.
+	 *
+	 * @param rowIndexes	The indexes of the rows to extract.
+	 * @param weightScales	The factor each extracted row has its weight multiplied by, or {@code null} to keep the weights.
+	 * @return	The spread of the targets of the subset of rows.
+	 */
+	TargetSpread subset(final int[] rowIndexes, final double[] weightScales){
+		final int size = rowIndexes.length;
+		final double[] subsetMinimum = new double[size];
+		final double[] subsetMaximum = new double[size];
+		final double[] subsetLogMean = new double[size];
+		final double[] subsetResidual = new double[size];
+		final double[] subsetLogResidual = new double[size];
+		for(int i = 0; i < size; i ++){
+			final int index = rowIndexes[i];
+
+			subsetMinimum[i] = minimum[index];
+			subsetMaximum[i] = maximum[index];
+			subsetLogMean[i] = logMean[index];
+			//the sums of squared deviations are weighted
+			final double scale = (weightScales != null? weightScales[i]: 1.);
+			subsetResidual[i] = residual[index] * scale;
+			subsetLogResidual[i] = logResidual[index] * scale;
+		}
+		return new TargetSpread(subsetMinimum, subsetMaximum, subsetLogMean, subsetResidual, subsetLogResidual);
+	}
+
+}
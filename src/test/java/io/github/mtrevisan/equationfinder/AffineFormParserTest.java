@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class AffineFormParserTest{
+
+	@Test
+	void affine(){
+		Assertions.assertArrayEquals(new double[]{2., 0., -3.}, AffineFormParser.parse("2*p0 - 3", 2), 0.);
+		Assertions.assertArrayEquals(new double[]{1.5, -1., 0.5}, AffineFormParser.parse("(3 * p0 - 2*p1 + 1) / 2", 2), 0.);
+		Assertions.assertArrayEquals(new double[]{-1., 1., 1.e2}, AffineFormParser.parse("-(p0 - p1) + 1e2", 2), 0.);
+		Assertions.assertArrayEquals(new double[]{0., 0., 0.}, AffineFormParser.parse("p0 - p0", 2), 0.);
+	}
+
+	@Test
+	void notAffine(){
+		Assertions.assertNull(AffineFormParser.parse("p0 * p1", 2));
+		Assertions.assertNull(AffineFormParser.parse("1 / p0", 2));
+		Assertions.assertNull(AffineFormParser.parse("p0 / 0", 2));
+		Assertions.assertNull(AffineFormParser.parse("sin(p0)", 2));
+		Assertions.assertNull(AffineFormParser.parse("p0 + x", 2));
+		Assertions.assertNull(AffineFormParser.parse("p2 + 1", 2));
+		Assertions.assertNull(AffineFormParser.parse("(p0 + 1", 2));
+		Assertions.assertNull(AffineFormParser.parse("p0 +", 2));
+	}
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import io.github.mtrevisan.equationfinder.objectives.FusedObjective;
+import org.apache.commons.math3.optim.InitialGuess;
+import org.apache.commons.math3.optim.MaxEval;
+import org.apache.commons.math3.optim.SimpleBounds;
+import org.apache.commons.math3.optim.linear.Relationship;
+import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
+import org.apache.commons.math3.optim.nonlinear.scalar.ObjectiveFunction;
+import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+
+class AugmentedLagrangianTest{
+
+	//(p0 - 2)^2 + (p1 - 1)^2
+	private static final FusedObjective QUADRATIC = (params, searchMode) -> (params[0] - 2.) * (params[0] - 2.)
+		+ (params[1] - 1.) * (params[1] - 1.);
+	private static final AugmentedLagrangian.InnerOptimizer BOBYQA = (function, bounds, initialGuess, maxEvaluations) ->
+		new BOBYQAOptimizer(2 * initialGuess.length + 1)
+			.optimize(GoalType.MINIMIZE, new ObjectiveFunction(function), bounds, new InitialGuess(initialGuess),
+				new MaxEval(maxEvaluations))
+			.getPoint();
+	private static final SimpleBounds BOUNDS = new SimpleBounds(new double[]{-10., -10.}, new double[]{10., 10.});
+	private static final ParameterSubstitution NO_SUBSTITUTION = ParameterSubstitution.create(List.of(), 2);
+
+
+	@Test
+	void equality(){
+		//p0 + p1 = 1, solution (1, 0)
+		Constraint[] constraints = {new Constraint(params -> params[0] + params[1] - 1., Relationship.EQ)};
+
+		AugmentedLagrangian.Result result = AugmentedLagrangian.minimize(QUADRATIC, constraints, SearchMode.APPROXIMATE, NO_SUBSTITUTION,
+			BOBYQA, BOUNDS, new double[]{0., 0.}, 2_000);
+
+		Assertions.assertTrue(result.isFeasible());
+		Assertions.assertArrayEquals(new double[]{1., 0.}, result.point(), 1.e-6);
+	}
+
+	@Test
+	void activeInequality(){
+		//p0 <= 1.5, solution (1.5, 1)
+		Constraint[] constraints = {new Constraint(params -> params[0] - 1.5, Relationship.LEQ)};
+
+		AugmentedLagrangian.Result result = AugmentedLagrangian.minimize(QUADRATIC, constraints, SearchMode.APPROXIMATE, NO_SUBSTITUTION,
+			BOBYQA, BOUNDS, new double[]{0., 0.}, 2_000);
+
+		Assertions.assertTrue(result.isFeasible());
+		Assertions.assertArrayEquals(new double[]{1.5, 1.}, result.point(), 1.e-6);
+	}
+
+	@Test
+	void inactiveInequality(){
+		//p1 >= 0, solution (2, 1)
+		Constraint[] constraints = {new Constraint(params -> params[1], Relationship.GEQ)};
+
+		AugmentedLagrangian.Result result = AugmentedLagrangian.minimize(QUADRATIC, constraints, SearchMode.APPROXIMATE, NO_SUBSTITUTION,
+			BOBYQA, BOUNDS, new double[]{0., 0.}, 2_000);
+
+		Assertions.assertTrue(result.isFeasible());
+		Assertions.assertEquals(1, result.outerIterations());
+		Assertions.assertArrayEquals(new double[]{2., 1.}, result.point(), 1.e-6);
+	}
+
+}
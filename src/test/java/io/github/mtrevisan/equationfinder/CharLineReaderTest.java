@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+
+class CharLineReaderTest{
+
+	@Test
+	void lines() throws IOException{
+		Assertions.assertEquals(List.of("a b", "", "c"), readLines(new StringReader("  a b \n\n\tc")));
+		Assertions.assertEquals(List.of("a"), readLines(new StringReader("a\n")));
+		Assertions.assertEquals(List.of(), readLines(new StringReader("")));
+	}
+
+	@Test
+	void crlf() throws IOException{
+		Assertions.assertEquals(List.of("a,1", "", "b,2"), readLines(new StringReader("a,1\r\n\r\nb,2\r\n")));
+	}
+
+	@Test
+	void linesAcrossRefills() throws IOException{
+		StringBuilder text = new StringBuilder();
+		List<String> expected = new ArrayList<>();
+		for(int i = 0; i < 5_000; i ++){
+			String line = "row" + i + ",".repeat(i % 7) + i * 31;
+			expected.add(line);
+			text.append(line).append(i % 2 == 0? "\n": "\r\n");
+		}
+
+		//few characters per read, so that lines straddle the refills
+		Assertions.assertEquals(expected, readLines(new ChunkedReader(text.toString(), 7)));
+	}
+
+	@Test
+	void lineLongerThanBuffer() throws IOException{
+		String longLine = "1,".repeat(100_000) + "1";
+
+		Assertions.assertEquals(List.of("a", longLine, "b"), readLines(new ChunkedReader("a\n" + longLine + "\r\nb", 4_096)));
+	}
+
+	@Test
+	void lineNumbers() throws IOException{
+		try(CharLineReader reader = new CharLineReader(new StringReader("a\n\nb"))){
+			while(reader.nextLine())
+				if(reader.line().equals("b"))
+					Assertions.assertEquals(3, reader.lineNumber());
+		}
+	}
+
+
+	private static List<String> readLines(Reader input) throws IOException{
+		List<String> lines = new ArrayList<>();
+		try(CharLineReader reader = new CharLineReader(input)){
+			while(reader.nextLine())
+				lines.add(reader.line());
+		}
+		return lines;
+	}
+
+	private static final class ChunkedReader extends Reader{
+
+		private final String text;
+		private final int chunkSize;
+		private int position;
+
+
+		private ChunkedReader(String text, int chunkSize){
+			this.text = text;
+			this.chunkSize = chunkSize;
+		}
+
+
+		@Override
+		public int read(char[] buffer, int offset, int length){
+			if(position == text.length())
+				return -1;
+
+			int count = Math.min(Math.min(length, chunkSize), text.length() - position);
+			text.getChars(position, position + count, buffer, offset);
+			position += count;
+			return count;
+		}
+
+		@Override
+		public void close(){}
+
+	}
+
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import io.github.mtrevisan.equationfinder.objectives.DatasetContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+class ColumnarDataFileTest{
+
+	private static final String[] INPUTS = {"x", "y"};
+	private static final double[][] COLUMNS = {{1., 2., 3., -4.5}, {0.5, Double.NaN, 7., 1.e300}, {3., 4., 5., 6.}};
+	//offset of the number of rows in the header
+	private static final int ROW_COUNT_OFFSET = 16;
+
+
+	@Test
+	void roundTrip() throws IOException{
+		Path file = Files.createTempFile("columnar", ".bin");
+		try{
+			write(file);
+
+			Assertions.assertTrue(ColumnarDataFile.isColumnarDataFile(file));
+			ColumnarDataFile.ColumnarData data = ColumnarDataFile.read(file);
+			Assertions.assertArrayEquals(INPUTS, data.inputNames());
+			Assertions.assertEquals(COLUMNS[0].length, data.rowCount());
+			for(int j = 0; j < COLUMNS.length; j ++){
+				Assertions.assertTrue(data.columns()[j].isReadOnly());
+				for(int i = 0; i < COLUMNS[j].length; i ++)
+					Assertions.assertEquals(COLUMNS[j][i], data.columns()[j].get(i));
+			}
+
+			//read in place, not copied into arrays
+			DatasetContext dataset = DatasetContext.create(data.columns(), DatasetContext.STORAGE_FLOAT64);
+			Assertions.assertEquals(2, dataset.inputCount());
+			Assertions.assertArrayEquals(COLUMNS[2], dataset.target(), 0.);
+			Assertions.assertArrayEquals(COLUMNS[1], dataset.inputColumn(1), 0.);
+		}
+		finally{
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void tooManyRows() throws IOException{
+		Path file = Files.createTempFile("columnar", ".bin");
+		try{
+			write(file);
+			try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)){
+				ByteBuffer rowCount = ByteBuffer.allocate(Long.BYTES)
+					.order(ByteOrder.LITTLE_ENDIAN)
+					.putLong(1l << 28);
+				channel.write(rowCount.flip(), ROW_COUNT_OFFSET);
+			}
+
+			Assertions.assertThrows(IOException.class, () -> ColumnarDataFile.read(file));
+		}
+		finally{
+			Files.delete(file);
+		}
+	}
+
+
+	private static void write(Path file) throws IOException{
+		DoubleBuffer[] columns = new DoubleBuffer[COLUMNS.length];
+		for(int j = 0; j < COLUMNS.length; j ++)
+			columns[j] = DoubleBuffer.wrap(COLUMNS[j]);
+		ColumnarDataFile.write(file, INPUTS, columns);
+	}
+
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class ConstraintProgramTest{
+
+	private static final ConstraintProgram PROGRAM = ConstraintProgram.compile(new String[]{
+		"p0 >= -1", "p2 <= 3", "p0 + p1 = 1", "p0 * p2 <= 4"
+	});
+
+
+	@Test
+	void bind(){
+		ConstraintProgram.Binding binding = PROGRAM.bind(3);
+
+		Assertions.assertArrayEquals(new double[]{-1., Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY}, binding.lowerBounds(), 0.);
+		Assertions.assertArrayEquals(new double[]{Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, 3.}, binding.upperBounds(), 0.);
+		Assertions.assertEquals(1, binding.constraints().size());
+		Assertions.assertEquals(1, binding.equalities().size());
+		Assertions.assertArrayEquals(new double[]{1., 1., 0., -1.}, binding.equalities().get(0), 0.);
+		Assertions.assertEquals(2, binding.allConstraints().length);
+	}
+
+	@Test
+	void missingParameterIsRejected(){
+		Assertions.assertThrows(IllegalArgumentException.class, () -> PROGRAM.bind(2));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> ConstraintProgram.compile(new String[]{"p0 + p3 = 1"}).bind(2));
+	}
+
+	@Test
+	void missingParameterIsLeftOut(){
+		ConstraintProgram.Binding binding = PROGRAM.bindAvailable(2);
+
+		Assertions.assertArrayEquals(new double[]{-1., Double.NEGATIVE_INFINITY}, binding.lowerBounds(), 0.);
+		Assertions.assertArrayEquals(new double[]{Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY}, binding.upperBounds(), 0.);
+		Assertions.assertEquals(0, binding.constraints().size());
+		Assertions.assertEquals(1, binding.equalities().size());
+	}
+
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+
+class DataFileLoaderTest{
+
+	@Test
+	void cachedUntilModified() throws IOException{
+		Path file = Files.createTempFile("data", ".csv");
+		try{
+			Files.writeString(file, "1,2\n3,4\n");
+			FileTime lastModified = Files.getLastModifiedTime(file);
+			DataFileLoader.DataFile data = DataFileLoader.load(file, null);
+			assertColumns(new double[][]{{1., 3.}, {2., 4.}}, data.columns());
+
+			//same modification time: served from the cache
+			Files.writeString(file, "5,6\n7,8\n");
+			Files.setLastModifiedTime(file, lastModified);
+			assertColumns(new double[][]{{1., 3.}, {2., 4.}}, DataFileLoader.load(file, null).columns());
+
+			Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified.toMillis() + 10_000));
+			assertColumns(new double[][]{{5., 7.}, {6., 8.}}, DataFileLoader.load(file, null).columns());
+		}
+		finally{
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void viewsAreIndependent() throws IOException{
+		Path file = Files.createTempFile("data", ".csv");
+		try{
+			Files.writeString(file, "1,2\n3,4\n");
+			DoubleBuffer[] columns = DataFileLoader.load(file, null).columns();
+			DoubleBuffer[] other = DataFileLoader.load(file, null).columns();
+
+			Assertions.assertNotSame(columns[0], other[0]);
+			Assertions.assertTrue(columns[0].isReadOnly());
+			Assertions.assertThrows(ReadOnlyBufferException.class, () -> columns[0].put(0, 9.));
+			//moving one view does not move the other
+			columns[0].position(1);
+			Assertions.assertEquals(0, other[0].position());
+			Assertions.assertEquals(1., other[0].get());
+		}
+		finally{
+			Files.delete(file);
+		}
+	}
+
+
+	private static void assertColumns(double[][] expected, DoubleBuffer[] columns){
+		Assertions.assertEquals(expected.length, columns.length);
+		for(int j = 0; j < expected.length; j ++){
+			Assertions.assertEquals(expected[j].length, columns[j].limit());
+			for(int i = 0; i < expected[j].length; i ++)
+				Assertions.assertEquals(expected[j][i], columns[j].get(i));
+		}
+	}
+
+}
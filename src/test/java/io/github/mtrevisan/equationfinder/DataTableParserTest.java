@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.DoubleBuffer;
+
+
+class DataTableParserTest{
+
+	@Test
+	void whitespaces() throws IOException{
+		DoubleBuffer[] columns = read("x y target\n1   2\t\t3\n \t4 \t 5  6 \n# comment\n\n7\t8 9\n", DataTableParser.WHITESPACE);
+
+		assertColumns(new double[][]{{1., 4., 7.}, {2., 5., 8.}, {3., 6., 9.}}, columns);
+	}
+
+	@Test
+	void delimited() throws IOException{
+		assertColumns(new double[][]{{1., 4.}, {2., -5.}, {3., 6.}}, read("1 , 2,3\n4,\t-5 ,  6\r\n", DataTableParser.COMMA));
+		assertColumns(new double[][]{{1., 4.}, {2., 5.}, {3., 6.}}, read("1\t 2\t3\n4 \t5\t6\n", DataTableParser.TAB));
+	}
+
+	@Test
+	void emptyField(){
+		assertError("Missing value in column 2 at line 2", "1,2,3\n4,,6\n", DataTableParser.COMMA);
+		assertError("Missing value in column 3 at line 2", "1,2,3\n4,5,\n", DataTableParser.COMMA);
+		assertError("Missing value in column 1 at line 2", "1,2,3\n,5,6\n", DataTableParser.COMMA);
+		assertError("Missing value in column 2 at line 1", "1\t\t3\n", DataTableParser.TAB);
+	}
+
+	@Test
+	void invalidRows(){
+		assertError("Invalid value `4a` in column 1 at line 2", "1,2,3\n4a,5,6\n", DataTableParser.COMMA);
+		assertError("Too many values at line 2", "1 2 3\n4 5 6 7\n", DataTableParser.WHITESPACE);
+		assertError("Too few values at line 3", "1 2 3\n4 5 6\n7 8\n", DataTableParser.WHITESPACE);
+		assertError("Too many values at line 2", "1,2\n4,5,\n", DataTableParser.COMMA);
+	}
+
+	@Test
+	void knownRow() throws IOException{
+		try(CharLineReader reader = new CharLineReader(new StringReader("1 \t 2   3"))){
+			reader.nextLine();
+			double[] row = new double[3];
+			DataTableParser.parseRow(reader, row, DataTableParser.WHITESPACE);
+
+			Assertions.assertArrayEquals(new double[]{1., 2., 3.}, row, 0.);
+		}
+		try(CharLineReader reader = new CharLineReader(new StringReader("1,,3"))){
+			reader.nextLine();
+
+			Assertions.assertThrows(IllegalArgumentException.class,
+				() -> DataTableParser.parseRow(reader, new double[3], DataTableParser.COMMA));
+		}
+	}
+
+
+	private static DoubleBuffer[] read(String text, char delimiter) throws IOException{
+		try(CharLineReader reader = new CharLineReader(new StringReader(text))){
+			return DataTableParser.readColumns(reader, delimiter);
+		}
+	}
+
+	private static void assertColumns(double[][] expected, DoubleBuffer[] columns){
+		Assertions.assertEquals(expected.length, columns.length);
+		for(int j = 0; j < expected.length; j ++){
+			Assertions.assertEquals(expected[j].length, columns[j].remaining());
+			for(int i = 0; i < expected[j].length; i ++)
+				Assertions.assertEquals(expected[j][i], columns[j].get(i));
+		}
+	}
+
+	private static void assertError(String message, String text, char delimiter){
+		IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class, () -> read(text, delimiter));
+		Assertions.assertEquals(message, exception.getMessage());
+	}
+
+}
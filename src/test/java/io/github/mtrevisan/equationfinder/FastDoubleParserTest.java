@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+
+class FastDoubleParserTest{
+
+	@Test
+	void asParseDouble(){
+		String[] numbers = {
+			"0", "-0", "+0", "0.0", "-0.0", "1", "-1", "+1", ".5", "5.", "00012.50", "3.141592653589793", "-2.718281828459045",
+			//beyond the exact mantissa
+			"1234567890123456789", "0.1234567890123456789", "9007199254740993", "123456789012345.678", "0.000000000000000000001234",
+			//exponents
+			"1e22", "1e23", "1E-22", "1e-23", "1.5e+10", "-6.02214076e23", "1e308", "1.7976931348623157e308", "1e309", "1e-400",
+			//subnormals
+			"4.9e-324", "2.2250738585072011e-308", "2.2250738585072014e-308", "1e-310",
+			//not finite
+			"NaN", "Infinity", "-Infinity", "+Infinity"
+		};
+		for(String number : numbers)
+			assertSameAsParseDouble(number);
+	}
+
+	@Test
+	void randomAsParseDouble(){
+		Random random = new Random(0);
+		for(int i = 0; i < 100_000; i ++){
+			double value = Double.longBitsToDouble(random.nextLong());
+			assertSameAsParseDouble(Double.toString(value));
+			assertSameAsParseDouble(String.format("%." + random.nextInt(20) + "g", random.nextDouble() * 1_000.));
+		}
+	}
+
+	@Test
+	void notANumber(){
+		for(String number : new String[]{"", "-", ".", "e5", "1e", "1e+", "1.2.3", "1x", "0x10"})
+			Assertions.assertThrows(NumberFormatException.class, () -> FastDoubleParser.parse(number.toCharArray(), 0, number.length()));
+	}
+
+	@Test
+	void slice(){
+		char[] buffer = "x,-12.5e1,y".toCharArray();
+
+		Assertions.assertEquals(-125., FastDoubleParser.parse(buffer, 2, 9), 0.);
+	}
+
+
+	private static void assertSameAsParseDouble(String number){
+		Assertions.assertEquals(Double.doubleToRawLongBits(Double.parseDouble(number)),
+			Double.doubleToRawLongBits(FastDoubleParser.parse(number.toCharArray(), 0, number.length())), number);
+	}
+
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import io.github.mtrevisan.equationfinder.genetics.OperatorSet;
+import io.github.mtrevisan.equationfinder.objectives.DatasetContext;
+import io.github.mtrevisan.equationfinder.objectives.ObjectivePenalty;
+import io.github.mtrevisan.equationfinder.objectives.ObjectiveRSS;
+import org.apache.commons.math3.optim.SimpleBounds;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.DoubleBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+
+class GeneticAlgorithmTest{
+
+	private static final ModelFunction LINEAR = (params, inputs) -> params[0] * inputs[0] + params[1];
+	private static final ModelFunction QUADRATIC = (params, inputs) -> params[0] * inputs[0] * inputs[0] + params[1];
+	private static final ModelFunction SHIFTED_LINEAR = (params, inputs) -> params[0] * (inputs[0] + 1.) + params[1];
+	private static final ModelFunction SINE = (params, inputs) -> params[0] * Math.sin(inputs[0]) + params[1];
+
+
+	@Test
+	void fitnessIsExactDespiteTheCutoff(){
+		DatasetContext dataset = createDataset(2_000);
+		OptimizationProblem linear = createProblem(LINEAR, dataset);
+		OptimizationProblem quadratic = createProblem(QUADRATIC, dataset);
+
+		//a cutoff below any fitness makes the optimizer abort most scans
+		for(int generation = 0; generation < 2; generation ++){
+			Map<OptimizationProblem, Double> fitnessScore = GeneticAlgorithm.evaluate(List.of(linear, quadratic), 1.e-6);
+
+			for(OptimizationProblem problem : List.of(linear, quadratic)){
+				double expected = new ObjectiveRSS(problem.function, dataset).value(problem.bestParameters);
+				Assertions.assertEquals(expected, (double)fitnessScore.get(problem));
+				Assertions.assertEquals(expected, problem.fitness);
+			}
+		}
+	}
+
+	@Test
+	void racingEliminatesTheWorseCandidates(){
+		//a single halving round on 64 rows, then the survivors are fitted on all of them
+		DatasetContext dataset = createDataset(100);
+		OptimizationProblem linear = createProblem(LINEAR, dataset);
+		OptimizationProblem shiftedLinear = createProblem(SHIFTED_LINEAR, dataset);
+		OptimizationProblem quadratic = createProblem(QUADRATIC, dataset);
+		OptimizationProblem sine = createProblem(SINE, dataset);
+
+		Map<OptimizationProblem, Double> fitnessScore = GeneticAlgorithm.evaluateWithRacing(List.of(linear, quadratic, shiftedLinear, sine),
+			createProblemData(), dataset, Double.POSITIVE_INFINITY, false);
+
+		Assertions.assertEquals(2, fitnessScore.size());
+		for(OptimizationProblem survivor : List.of(linear, shiftedLinear)){
+			double expected = new ObjectiveRSS(survivor.function, dataset).value(survivor.bestParameters);
+			Assertions.assertEquals(expected, (double)fitnessScore.get(survivor));
+			Assertions.assertTrue(expected < 0.1);
+		}
+		for(OptimizationProblem eliminated : List.of(quadratic, sine)){
+			Assertions.assertFalse(fitnessScore.containsKey(eliminated));
+			Assertions.assertEquals(Double.POSITIVE_INFINITY, eliminated.fitness);
+		}
+	}
+
+	@Test
+	void racingHalvesUntilOneSurvivor(){
+		//64, 128, 256 rows... until a single candidate is left, that is then fitted on all the rows
+		DatasetContext dataset = createDataset(2_000);
+		OptimizationProblem linear = createProblem(LINEAR, dataset);
+		OptimizationProblem quadratic = createProblem(QUADRATIC, dataset);
+		OptimizationProblem sine = createProblem(SINE, dataset);
+
+		Map<OptimizationProblem, Double> fitnessScore = GeneticAlgorithm.evaluateWithRacing(List.of(sine, quadratic, linear),
+			createProblemData(), dataset, Double.POSITIVE_INFINITY, false);
+
+		Assertions.assertEquals(1, fitnessScore.size());
+		Assertions.assertEquals(new ObjectiveRSS(LINEAR, dataset).value(linear.bestParameters), (double)fitnessScore.get(linear));
+		Assertions.assertEquals(Double.POSITIVE_INFINITY, quadratic.fitness);
+		Assertions.assertEquals(Double.POSITIVE_INFINITY, sine.fitness);
+	}
+
+	private static DatasetContext createDataset(int rowCount){
+		Random random = new Random(0);
+		double[][] dataTable = new double[rowCount][];
+		for(int i = 0; i < rowCount; i ++){
+			double x = random.nextDouble() * 10.;
+			dataTable[i] = new double[]{x, 3. * x + 2. + 0.1 * random.nextGaussian()};
+		}
+		return DatasetContext.create(dataTable);
+	}
+
+	private static ProblemData createProblemData(){
+		return new ProblemData(SearchMode.APPROXIMATE, "p0 * x + p1", new String[0], new String[]{"x"}, new DoubleBuffer[0],
+			ObjectiveRSS.OBJECTIVE_RESIDUAL_SUM_OF_SQUARES_ERROR, OperatorSet.createDefault(), null, null, null, null, null, false, null);
+	}
+
+	private static OptimizationProblem createProblem(ModelFunction function, DatasetContext dataset){
+		ObjectivePenalty objectiveFunction = new ObjectivePenalty(new ObjectiveRSS(function, dataset), new Constraint[0],
+			SearchMode.APPROXIMATE);
+		SimpleBounds bounds = new SimpleBounds(new double[]{-100., -100.}, new double[]{100., 100.});
+		return new OptimizationProblem(null, function.toString(), function, new Constraint[0], objectiveFunction, bounds,
+			new double[]{1., 1.}, 1_000, 1.);
+	}
+
+}
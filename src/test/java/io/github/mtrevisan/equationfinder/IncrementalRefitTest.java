@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import io.github.mtrevisan.equationfinder.genetics.OperatorSet;
+import io.github.mtrevisan.equationfinder.objectives.DatasetContext;
+import io.github.mtrevisan.equationfinder.objectives.DuplicateAggregation;
+import io.github.mtrevisan.equationfinder.objectives.ObjectiveRSS;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.DoubleBuffer;
+
+
+class IncrementalRefitTest{
+
+	@Test
+	void appendedRows(){
+		ProblemData fitted = create(new double[]{1., 2., 3.}, null, null);
+		IncrementalRefit.State state = IncrementalRefit.create(fitted, IncrementalRefit.fingerprint(fitted, 3), new double[]{2.}, null);
+
+		ProblemData appended = create(new double[]{1., 2., 3., 4.}, null, null);
+
+		Assertions.assertTrue(state.isPrefixOf(appended));
+		Assertions.assertEquals(1, state.appendedRowCount(appended));
+		Assertions.assertFalse(state.isPrefixOf(create(new double[]{1., 2.5, 3., 4.}, null, null)));
+	}
+
+	@Test
+	void changedStorageOrAggregation(){
+		ProblemData fitted = create(new double[]{1., 2., 3.}, null, null);
+		IncrementalRefit.State state = IncrementalRefit.create(fitted, IncrementalRefit.fingerprint(fitted, 3), new double[]{2.}, null);
+
+		Assertions.assertFalse(state.isPrefixOf(create(new double[]{1., 2., 3.}, DatasetContext.STORAGE_FLOAT32, null)));
+		Assertions.assertFalse(state.isPrefixOf(create(new double[]{1., 2., 3.}, null, DuplicateAggregation.AGGREGATION_DUPLICATES)));
+	}
+
+
+	private static ProblemData create(double[] inputs, String storage, String aggregation){
+		double[] target = new double[inputs.length];
+		for(int i = 0; i < inputs.length; i ++)
+			target[i] = 2. * inputs[i];
+		DoubleBuffer[] columns = {DoubleBuffer.wrap(inputs), DoubleBuffer.wrap(target)};
+		return new ProblemData(SearchMode.APPROXIMATE, "p0 * x", new String[0], new String[]{"x"}, columns,
+			ObjectiveRSS.OBJECTIVE_RESIDUAL_SUM_OF_SQUARES_ERROR, OperatorSet.createDefault(), null, storage, aggregation, null, null,
+			true, null);
+	}
+
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import io.github.mtrevisan.equationfinder.objectives.DatasetContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+
+class MiniBatchScheduleTest{
+
+	@Test
+	void sizeGrows(){
+		MiniBatchSchedule schedule = MiniBatchSchedule.parse("100 2");
+
+		Assertions.assertEquals(100, schedule.size(0, 10_000));
+		Assertions.assertEquals(200, schedule.size(1, 10_000));
+		Assertions.assertEquals(800, schedule.size(3, 10_000));
+	}
+
+	@Test
+	void sizeIsClampedToTheRowCount(){
+		MiniBatchSchedule schedule = MiniBatchSchedule.parse("100 2");
+
+		Assertions.assertEquals(1_000, schedule.size(4, 1_000));
+		Assertions.assertEquals(1_000, schedule.size(1_000, 1_000));
+		Assertions.assertEquals(50, schedule.size(0, 50));
+	}
+
+	@Test
+	void defaults(){
+		MiniBatchSchedule schedule = MiniBatchSchedule.parse(" ");
+
+		Assertions.assertEquals(1_024, schedule.size(0, 100_000));
+		Assertions.assertEquals(1_536, schedule.size(1, 100_000));
+		Assertions.assertEquals(2_048, MiniBatchSchedule.parse("2048").size(0, 100_000));
+	}
+
+	@Test
+	void invalidDefinition(){
+		Assertions.assertThrows(IllegalArgumentException.class, () -> MiniBatchSchedule.parse("0"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> MiniBatchSchedule.parse("100 0.5"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> MiniBatchSchedule.parse("100 NaN"));
+		Assertions.assertThrows(NumberFormatException.class, () -> MiniBatchSchedule.parse("many"));
+	}
+
+	@Test
+	void draw(){
+		double[][] dataTable = new double[100][2];
+		for(int i = 0; i < dataTable.length; i ++)
+			dataTable[i] = new double[]{i, 2. * i};
+		DatasetContext dataset = DatasetContext.create(dataTable, DatasetContext.STORAGE_FLOAT64);
+		MiniBatchSchedule schedule = MiniBatchSchedule.parse("10 4");
+		Random random = new Random(0);
+
+		DatasetContext batch = schedule.draw(dataset, 1, random);
+
+		Assertions.assertEquals(40, batch.rowCount());
+		double[] input = batch.inputColumn(0);
+		double[] target = batch.target();
+		for(int i = 0; i < batch.rowCount(); i ++)
+			Assertions.assertEquals(2. * input[i], target[i]);
+		Assertions.assertSame(dataset, schedule.draw(dataset, 2, random));
+	}
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import io.github.mtrevisan.equationfinder.objectives.DatasetContext;
+import io.github.mtrevisan.equationfinder.objectives.ObjectivePenalty;
+import io.github.mtrevisan.equationfinder.objectives.ObjectiveRSS;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class NaNPropagatingArithmeticTest{
+
+	private static final String[] DATA_INPUT = {"x"};
+
+
+	@Test
+	void divisionByZero(){
+		ModelFunction function = ExpressionExtractor.parseExpression("p0 / x + p1", DATA_INPUT, true);
+
+		Assertions.assertEquals(3., function.evaluate(new double[]{4., 1.}, new double[]{2.}), 1.e-12);
+		Assertions.assertTrue(Double.isNaN(function.evaluate(new double[]{4., 1.}, new double[]{0.})));
+	}
+
+	@Test
+	void moduloByZero(){
+		ModelFunction function = ExpressionExtractor.parseExpression("p0 % x + p1", DATA_INPUT, true);
+
+		Assertions.assertTrue(Double.isNaN(function.evaluate(new double[]{4., 1.}, new double[]{0.})));
+	}
+
+	@Test
+	void floorDivisionByZero(){
+		ModelFunction function = ExpressionExtractor.parseExpression("floorDiv(p0, x) + p1", DATA_INPUT, true);
+
+		Assertions.assertEquals(3., function.evaluate(new double[]{4., 1.}, new double[]{2.}), 1.e-12);
+		Assertions.assertTrue(Double.isNaN(function.evaluate(new double[]{4., 1.}, new double[]{0.})));
+	}
+
+	@Test
+	void floorModuloByZero(){
+		ModelFunction function = ExpressionExtractor.parseExpression("floorMod(p0, x) + p1", DATA_INPUT, true);
+
+		Assertions.assertTrue(Double.isNaN(function.evaluate(new double[]{4., 1.}, new double[]{0.})));
+	}
+
+	@Test
+	void clampWithEmptyRange(){
+		ModelFunction function = ExpressionExtractor.parseExpression("clamp(x, p0, p1)", DATA_INPUT, true);
+
+		Assertions.assertEquals(2., function.evaluate(new double[]{1., 4.}, new double[]{2.}), 1.e-12);
+		Assertions.assertTrue(Double.isNaN(function.evaluate(new double[]{4., 1.}, new double[]{2.})));
+	}
+
+	@Test
+	void nullResult(){
+		ModelFunction function = ExpressionExtractor.parseExpression("x > 0? p0: null", DATA_INPUT, true);
+
+		Assertions.assertEquals(4., function.evaluate(new double[]{4.}, new double[]{1.}), 1.e-12);
+		Assertions.assertTrue(Double.isNaN(function.evaluate(new double[]{4.}, new double[]{-1.})));
+	}
+
+	@Test
+	void strictThrows(){
+		ModelFunction function = ExpressionExtractor.parseExpression("p0 / x + p1", DATA_INPUT);
+
+		Assertions.assertThrows(Exception.class, () -> function.evaluate(new double[]{4., 1.}, new double[]{0.}));
+	}
+
+	@Test
+	void invalidObjective(){
+		ModelFunction function = ExpressionExtractor.parseExpression("p0 / x + p1", DATA_INPUT, true);
+		DatasetContext dataset = DatasetContext.create(new double[][]{{1., 2.}, {0., 3.}, {2., 4.}});
+		ObjectivePenalty objective = new ObjectivePenalty(new ObjectiveRSS(function, dataset), new Constraint[0],
+			SearchMode.APPROXIMATE);
+
+		Assertions.assertEquals(ObjectivePenalty.INVALID_VALUE, objective.value(new double[]{4., 1.}));
+	}
+
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import org.apache.commons.math3.analysis.MultivariateFunction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+
+class ParameterSubstitutionTest{
+
+	@Test
+	void elimination(){
+		//p0 + p1 + p2 = 1, p0 - p2 = 0
+		ParameterSubstitution substitution = ParameterSubstitution.create(List.of(
+			new double[]{1., 1., 1., -1.},
+			new double[]{1., 0., -1., 0.}
+		), 3);
+
+		Assertions.assertEquals(2, substitution.eliminatedCount());
+		Assertions.assertEquals(1, substitution.reducedDimension());
+		for(double free = -2.; free <= 2.; free += 0.5){
+			double[] full = substitution.expand(new double[]{free});
+
+			Assertions.assertEquals(1., full[0] + full[1] + full[2], 1.e-12);
+			Assertions.assertEquals(0., full[0] - full[2], 1.e-12);
+		}
+	}
+
+	@Test
+	void reduceExpandRoundTrip(){
+		//2·p1 - p3 = 4
+		ParameterSubstitution substitution = ParameterSubstitution.create(List.<double[]>of(new double[]{0., 2., 0., -1., -4.}), 4);
+		Assertions.assertEquals(3, substitution.reducedDimension());
+
+		double[] full = {0.3, 5., -7., 6.};
+		double[] reduced = substitution.reduce(full);
+		Assertions.assertArrayEquals(full, substitution.expand(reduced), 1.e-12);
+
+		MultivariateFunction sum = params -> params[0] + params[1] + params[2] + params[3];
+		Assertions.assertEquals(sum.value(full), substitution.wrap(sum).value(reduced), 1.e-12);
+	}
+
+	@Test
+	void duplicateEqualities(){
+		//p0 - p1 = 1, given twice (once scaled)
+		ParameterSubstitution substitution = ParameterSubstitution.create(List.of(
+			new double[]{1., -1., -1.},
+			new double[]{-2., 2., 2.}
+		), 2);
+
+		Assertions.assertEquals(1, substitution.eliminatedCount());
+		double[] full = substitution.expand(new double[]{3.});
+		Assertions.assertEquals(1., full[0] - full[1], 1.e-12);
+	}
+
+	@Test
+	void infeasibleEqualities(){
+		//p0 + p1 = 1, p0 + p1 = 2
+		Assertions.assertThrows(IllegalArgumentException.class, () -> ParameterSubstitution.create(List.of(
+			new double[]{1., 1., -1.},
+			new double[]{1., 1., -2.}
+		), 2));
+	}
+
+	@Test
+	void noEqualities(){
+		ParameterSubstitution substitution = ParameterSubstitution.create(List.of(), 2);
+
+		Assertions.assertEquals(2, substitution.reducedDimension());
+		MultivariateFunction function = params -> params[0];
+		Assertions.assertSame(function, substitution.wrap(function));
+	}
+
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import io.github.mtrevisan.equationfinder.genetics.OperatorSet;
+import io.github.mtrevisan.equationfinder.objectives.DatasetContext;
+import io.github.mtrevisan.equationfinder.objectives.DuplicateAggregation;
+import io.github.mtrevisan.equationfinder.objectives.ObjectiveRSS;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.DoubleBuffer;
+
+
+class ProblemDataTest{
+
+	@Test
+	void rows(){
+		ProblemData problemData = create(null, null);
+
+		Assertions.assertEquals(4, problemData.rowCount());
+		Assertions.assertArrayEquals(new double[]{2., 5.}, problemData.row(1, new double[2]), 0.);
+	}
+
+	@Test
+	void dataIsReleasedOnceTheDatasetIsCreated(){
+		ProblemData problemData = create(DatasetContext.STORAGE_FLOAT32, DuplicateAggregation.AGGREGATION_DUPLICATES);
+
+		DatasetContext dataset = problemData.createDataset();
+
+		Assertions.assertTrue(dataset.isSinglePrecision());
+		Assertions.assertEquals(3, dataset.rowCount());
+		Assertions.assertEquals(4, problemData.rowCount());
+		Assertions.assertThrows(IllegalStateException.class, problemData::dataColumns);
+		Assertions.assertThrows(IllegalStateException.class, () -> problemData.row(0, new double[2]));
+	}
+
+
+	private static ProblemData create(String storage, String aggregation){
+		DoubleBuffer[] columns = {DoubleBuffer.wrap(new double[]{1., 2., 2., 3.}), DoubleBuffer.wrap(new double[]{4., 5., 5., 6.})};
+		return new ProblemData(SearchMode.APPROXIMATE, "p0 * x", new String[0], new String[]{"x"}, columns,
+			ObjectiveRSS.OBJECTIVE_RESIDUAL_SUM_OF_SQUARES_ERROR, OperatorSet.createDefault(), null, storage, aggregation, null, null,
+			false, null);
+	}
+
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import io.github.mtrevisan.equationfinder.objectives.DatasetContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class SlidingWindowTest{
+
+	@Test
+	void notFull(){
+		SlidingWindow window = new SlidingWindow(1, 4, 1.);
+		window.add(new double[]{1., 10.});
+		window.add(new double[]{2., 20.});
+
+		DatasetContext dataset = window.toDataset();
+
+		Assertions.assertEquals(2, window.size());
+		Assertions.assertArrayEquals(new double[]{1., 2.}, dataset.inputColumn(0), 0.);
+		Assertions.assertArrayEquals(new double[]{10., 20.}, dataset.target(), 0.);
+		Assertions.assertFalse(dataset.isWeighted());
+	}
+
+	@Test
+	void wrapAround(){
+		SlidingWindow window = new SlidingWindow(2, 3, 1.);
+		for(int i = 1; i <= 5; i ++)
+			window.add(new double[]{i, -i, 10. * i});
+
+		DatasetContext dataset = window.toDataset();
+
+		Assertions.assertEquals(3, window.size());
+		//the oldest rows are evicted, the rest is unrolled from the oldest to the newest
+		Assertions.assertArrayEquals(new double[]{3., 4., 5.}, dataset.inputColumn(0), 0.);
+		Assertions.assertArrayEquals(new double[]{-3., -4., -5.}, dataset.inputColumn(1), 0.);
+		Assertions.assertArrayEquals(new double[]{30., 40., 50.}, dataset.target(), 0.);
+	}
+
+	@Test
+	void wrapAroundAtTheEnd(){
+		SlidingWindow window = new SlidingWindow(1, 3, 1.);
+		for(int i = 1; i <= 6; i ++)
+			window.add(new double[]{i, 10. * i});
+
+		Assertions.assertArrayEquals(new double[]{4., 5., 6.}, window.toDataset().inputColumn(0), 0.);
+	}
+
+	@Test
+	void decayWeights(){
+		SlidingWindow window = new SlidingWindow(1, 3, 0.5);
+		for(int i = 1; i <= 4; i ++)
+			window.add(new double[]{i, 10. * i});
+
+		DatasetContext dataset = window.toDataset();
+
+		Assertions.assertTrue(dataset.isWeighted());
+		//the newest row has weight one
+		Assertions.assertArrayEquals(new double[]{0.25, 0.5, 1.}, dataset.weights(), 0.);
+		Assertions.assertArrayEquals(new double[]{2., 3., 4.}, dataset.inputColumn(0), 0.);
+	}
+
+	@Test
+	void invalidWindow(){
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new SlidingWindow(1, 0, 1.));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new SlidingWindow(1, 3, 0.));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new SlidingWindow(1, 3, 1.5));
+	}
+
+}
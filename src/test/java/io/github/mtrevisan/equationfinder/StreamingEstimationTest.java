@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class StreamingEstimationTest{
+
+	@Test
+	void defaultSettings(){
+		StreamingEstimation.Settings settings = StreamingEstimation.Settings.parse(null);
+
+		Assertions.assertEquals(10_000, settings.windowSize());
+		Assertions.assertEquals(1_000, settings.refitInterval());
+		Assertions.assertEquals(1., settings.decay());
+		Assertions.assertEquals(settings, StreamingEstimation.Settings.parse("  "));
+	}
+
+	@Test
+	void settings(){
+		StreamingEstimation.Settings settings = StreamingEstimation.Settings.parse("refit 50  window 500 decay 0.99");
+
+		Assertions.assertEquals(500, settings.windowSize());
+		Assertions.assertEquals(50, settings.refitInterval());
+		Assertions.assertEquals(0.99, settings.decay());
+	}
+
+	@Test
+	void invalidSettings(){
+		Assertions.assertThrows(IllegalArgumentException.class, () -> StreamingEstimation.Settings.parse("window 0"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> StreamingEstimation.Settings.parse("window -3 refit 10"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> StreamingEstimation.Settings.parse("refit 0"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> StreamingEstimation.Settings.parse("decay 0"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> StreamingEstimation.Settings.parse("decay 1.5"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> StreamingEstimation.Settings.parse("size 10"));
+	}
+
+	@Test
+	void oddNumberOfTokens(){
+		Assertions.assertThrows(IllegalArgumentException.class, () -> StreamingEstimation.Settings.parse("window"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> StreamingEstimation.Settings.parse("window 100 refit"));
+	}
+
+}
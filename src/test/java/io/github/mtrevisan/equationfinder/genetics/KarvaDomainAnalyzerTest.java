@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.genetics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class KarvaDomainAnalyzerTest{
+
+	private static final String[] INPUTS = {"x"};
+	private static final double[] UNBOUNDED = new double[0];
+
+
+	@Test
+	void logarithmOutOfDomain(){
+		//log(x)
+		String[] gene = {"log", "x", "x"};
+
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.UNDEFINED, analyze(gene, 1, -2., -1.));
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.DEFINED, analyze(gene, 1, 1., 2.));
+		//defined on part of the range
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.DEFINED, analyze(gene, 1, -1., 1.));
+	}
+
+	@Test
+	void squareRootOutOfDomain(){
+		//sqrt(x)
+		String[] gene = {"sqrt", "x", "x"};
+
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.UNDEFINED, analyze(gene, 1, -2., -1.));
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.DEFINED, analyze(gene, 1, 0., 2.));
+	}
+
+	@Test
+	void arcsineOutOfDomain(){
+		//asin(x)
+		String[] gene = {"asin", "x", "x"};
+
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.UNDEFINED, analyze(gene, 1, 2., 3.));
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.DEFINED, analyze(gene, 1, 0.5, 3.));
+	}
+
+	@Test
+	void divisionByZero(){
+		//x / p0
+		KarvaExpression karva = KarvaExpression.create(new String[]{"/", "x", "p0"}, 1, 1);
+
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.UNDEFINED,
+			KarvaDomainAnalyzer.analyze(karva, INPUTS, new double[]{1.}, new double[]{2.}, new double[]{0.}, new double[]{0.}));
+		//a divisor that only crosses zero is not enough
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.DEFINED,
+			KarvaDomainAnalyzer.analyze(karva, INPUTS, new double[]{1.}, new double[]{2.}, new double[]{-1.}, new double[]{1.}));
+	}
+
+	@Test
+	void sineExtrema(){
+		//sqrt(sin(x) - p0), with p0 = 1
+		KarvaExpression maximum = KarvaExpression.create(new String[]{"sqrt", "-", "sin", "p0", "x", "x", "x"}, 3, 1);
+		//sqrt(p0 - sin(x)), with p0 = -1
+		KarvaExpression minimum = KarvaExpression.create(new String[]{"sqrt", "-", "p0", "sin", "x", "x", "x"}, 3, 1);
+
+		//the range reaches the extremum only if π/2 (resp. 3π/2) is inside the interval, the square root is then the point 0
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.CONSTANT, analyze(maximum, 1., 2., 1.));
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.UNDEFINED, analyze(maximum, 2., 3., 1.));
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.CONSTANT, analyze(minimum, 4., 5., -1.));
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.UNDEFINED, analyze(minimum, 5., 6., -1.));
+		//shifted by a period
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.CONSTANT, analyze(maximum, 1. + 2. * Math.PI, 2. + 2. * Math.PI, 1.));
+	}
+
+	@Test
+	void tangentPoles(){
+		//log(tan(x))
+		String[] gene = {"log", "tan", "x", "x", "x"};
+
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.DEFINED, analyze(gene, 2, 0.1, 1.));
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.UNDEFINED, analyze(gene, 2, 2., 3.));
+		//across the pole at π/2 the tangent spans the whole real line
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.DEFINED, analyze(gene, 2, 1., 2.));
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.DEFINED, analyze(gene, 2, 2., 3. + Math.PI));
+	}
+
+	@Test
+	void constantWithoutInputs(){
+		//sin(p0) * p1
+		KarvaExpression karva = KarvaExpression.create(new String[]{"*", "sin", "p1", "p0", "x", "x", "x"}, 3, 2);
+
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.CONSTANT,
+			KarvaDomainAnalyzer.analyze(karva, INPUTS, new double[]{1.}, new double[]{2.}, UNBOUNDED, UNBOUNDED));
+	}
+
+	@Test
+	void validExpression(){
+		//p0 * x + p1
+		KarvaExpression karva = KarvaExpression.create(new String[]{"+", "*", "p1", "p0", "x"}, 2, 2);
+		NormalizedExpression normalized = NormalizedExpression.create(karva, INPUTS);
+
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.DEFINED,
+			KarvaDomainAnalyzer.analyze(karva, INPUTS, new double[]{-1.}, new double[]{1.}, UNBOUNDED, UNBOUNDED));
+		Assertions.assertEquals(KarvaDomainAnalyzer.Domain.DEFINED,
+			KarvaDomainAnalyzer.analyze(normalized, INPUTS, new double[]{-1.}, new double[]{1.}, UNBOUNDED, UNBOUNDED));
+	}
+
+
+	private static KarvaDomainAnalyzer.Domain analyze(String[] gene, int headLength, double inputLow, double inputHigh){
+		return KarvaDomainAnalyzer.analyze(KarvaExpression.create(gene, headLength, 0), INPUTS, new double[]{inputLow},
+			new double[]{inputHigh}, UNBOUNDED, UNBOUNDED);
+	}
+
+	private static KarvaDomainAnalyzer.Domain analyze(KarvaExpression karva, double inputLow, double inputHigh, double parameter){
+		return KarvaDomainAnalyzer.analyze(karva, INPUTS, new double[]{inputLow}, new double[]{inputHigh}, new double[]{parameter},
+			new double[]{parameter});
+	}
+
+}
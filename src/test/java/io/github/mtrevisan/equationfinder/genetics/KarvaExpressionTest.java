@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.genetics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+
+class KarvaExpressionTest{
+
+	private static final OperatorSet OPERATORS = OperatorSet.createDefault();
+	private static final String[] INPUTS = {"x", "y"};
+
+
+	@Test
+	void randomIsWellFormed(){
+		for(int i = 0; i < 1_000; i ++)
+			assertWellFormed(KarvaExpression.createRandom(6, OPERATORS, INPUTS));
+	}
+
+	@Test
+	void operatorsAreWellFormed(){
+		Random random = new Random(0);
+		for(int i = 0; i < 1_000; i ++){
+			KarvaExpression karva = KarvaExpression.createRandom(6, OPERATORS, INPUTS);
+			KarvaExpression other = KarvaExpression.createRandom(6, OPERATORS, INPUTS);
+			int length = karva.length();
+
+			int start = random.nextInt(length);
+			assertWellFormed(karva.generateMutation(start, 1 + random.nextInt(length - start), OPERATORS, INPUTS));
+			start = random.nextInt(length - 1);
+			assertWellFormed(karva.generateInversion(start, 1 + random.nextInt(length - start)));
+			start = random.nextInt(length);
+			int segmentLength = 1 + random.nextInt(length - start);
+			assertWellFormed(karva.generateTransposition(start, random.nextInt(length - segmentLength + 1), segmentLength));
+
+			int alignedLength = karva.alignedLength(other);
+			int crossoverPoint = random.nextInt(alignedLength);
+			for(KarvaExpression offspring : karva.generateRecombinationOnePoint(other, crossoverPoint))
+				assertWellFormed(offspring);
+			for(KarvaExpression offspring : karva.generateRecombinationTwoPoint(other, crossoverPoint,
+					crossoverPoint + 1 + random.nextInt(alignedLength - crossoverPoint)))
+				assertWellFormed(offspring);
+		}
+	}
+
+	@Test
+	void recombinationKeepsShape(){
+		KarvaExpression karva = KarvaExpression.create(new String[]{"+", "x", "p0", "y", "p1"}, 2, 2);
+		KarvaExpression other = KarvaExpression.create(new String[]{"*", "sin", "+", "x", "p0", "y", "x", "p1"}, 3, 1);
+
+		KarvaExpression[] offsprings = karva.generateRecombinationTwoPoint(other, 0, karva.alignedLength(other));
+
+		//head with head, tail with tail
+		Assertions.assertEquals("[*, sin, x, p0, y]", offsprings[0].toString());
+		Assertions.assertEquals("[+, x, +, p0, y, p1, x, p1]", offsprings[1].toString());
+	}
+
+
+	//the root is an operator, the tail is made of terminals only
+	private static void assertWellFormed(final KarvaExpression karva){
+		Assertions.assertTrue(OPERATORS.arity().containsKey(karva.geneAt(0)));
+		for(int i = karva.headLength(), length = karva.length(); i < length; i ++)
+			Assertions.assertFalse(OPERATORS.arity().containsKey(karva.geneAt(i)));
+	}
+
+}
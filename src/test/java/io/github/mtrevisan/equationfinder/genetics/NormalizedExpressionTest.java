@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.genetics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class NormalizedExpressionTest{
+
+	private static final String[] INPUTS = {"x", "y"};
+
+
+	@Test
+	void sharedParameterIsKept(){
+		//p0 * x + p0 * p1
+		KarvaExpression karva = KarvaExpression.create(new String[]{"+", "*", "*", "p0", "x", "p0", "p1"}, 3, 2);
+
+		NormalizedExpression normalized = NormalizedExpression.create(karva, INPUTS);
+
+		Assertions.assertEquals(2, normalized.parameterCount());
+		Assertions.assertEquals(KarvaToInfixConverter.convertToEquation(
+			KarvaToInfixConverter.buildTree(KarvaExpression.create(new String[]{"+", "*", "p1", "p0", "x"}, 2, 2))),
+			normalized.expression());
+	}
+
+	@Test
+	void constantSubtreesAreCollapsed(){
+		//sin(p1 * p0) + p2 * x
+		KarvaExpression karva = KarvaExpression.create(new String[]{"+", "sin", "*", "*", "p2", "x", "p1", "p0", "x"}, 4, 3);
+
+		NormalizedExpression normalized = NormalizedExpression.create(karva, INPUTS);
+
+		Assertions.assertEquals(2, normalized.parameterCount());
+		Assertions.assertEquals(KarvaToInfixConverter.convertToEquation(
+			KarvaToInfixConverter.buildTree(KarvaExpression.create(new String[]{"+", "p0", "*", "p1", "x"}, 2, 2))),
+			normalized.expression());
+	}
+
+	@Test
+	void parametersAreRenamedByAppearance(){
+		//p3 * x + p1
+		KarvaExpression karva = KarvaExpression.create(new String[]{"+", "*", "p1", "p3", "x"}, 2, 4);
+
+		NormalizedExpression normalized = NormalizedExpression.create(karva, INPUTS);
+
+		Assertions.assertEquals(2, normalized.parameterCount());
+		Assertions.assertEquals(KarvaToInfixConverter.convertToEquation(
+			KarvaToInfixConverter.buildTree(KarvaExpression.create(new String[]{"+", "*", "p1", "p0", "x"}, 2, 2))),
+			normalized.expression());
+	}
+
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.genetics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+
+class OperatorSetTest{
+
+	@Test
+	void weightsAndCosts(){
+		OperatorSet operators = OperatorSet.parse(List.of(new String[]{"+"}, new String[]{"*", "3"}, new String[]{"sin", "0", "5"}));
+
+		Assertions.assertEquals(1, operators.minArity());
+		Assertions.assertEquals(2, operators.maxArity());
+		Random random = new Random(0);
+		int multiplications = 0;
+		for(int i = 0; i < 10_000; i ++){
+			String operator = operators.sample(random);
+			Assertions.assertNotEquals("sin", operator);
+			if(operator.equals("*"))
+				multiplications ++;
+		}
+		Assertions.assertEquals(0.75, multiplications / 10_000., 0.02);
+
+		KarvaExpression karva = KarvaExpression.create(new String[]{"+", "sin", "*", "x", "p0", "x", "p1"}, 3, 2);
+		Assertions.assertEquals(1. + 5. + 1., operators.cost(karva));
+	}
+
+	@Test
+	void invalidDefinitions(){
+		Assertions.assertThrows(IllegalArgumentException.class, () -> OperatorSet.parse(List.<String[]>of(new String[]{"unknown"})));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> OperatorSet.parse(List.<String[]>of(new String[]{"+", "-1"})));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> OperatorSet.parse(List.of(new String[]{"+"}, new String[]{"+"})));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> OperatorSet.parse(List.<String[]>of(new String[]{"+", "0"})));
+	}
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import io.github.mtrevisan.equationfinder.Constraint;
+import io.github.mtrevisan.equationfinder.ModelFunction;
+import io.github.mtrevisan.equationfinder.SearchMode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class AbortableObjectiveTest{
+
+	private static final double[][] DATA_TABLE = {{1., 3.}, {2., 3.5}, {3., 7.}, {4., 8.}, {5., 9.5}, {6., 30.}};
+	private static final ModelFunction FUNCTION = (params, inputs) -> params[0] * inputs[0];
+	private static final double[] PARAMS = {2.};
+
+
+	@Test
+	void exactBelowThreshold(){
+		DatasetContext dataset = DatasetContext.create(DATA_TABLE);
+		AbortableObjective[] objectives = {new ObjectiveRSS(FUNCTION, dataset), new ObjectiveMA(FUNCTION, dataset),
+			new ObjectiveMax(FUNCTION, dataset)};
+		for(AbortableObjective objective : objectives){
+			double exact = objective.value(PARAMS, SearchMode.UPPER_BOUND);
+
+			Assertions.assertEquals(exact, objective.value(PARAMS, SearchMode.UPPER_BOUND, exact + 1.e-9));
+		}
+	}
+
+	@Test
+	void abortedAboveThreshold(){
+		DatasetContext dataset = DatasetContext.create(DATA_TABLE);
+		AbortableObjective[] objectives = {new ObjectiveRSS(FUNCTION, dataset), new ObjectiveMA(FUNCTION, dataset),
+			new ObjectiveMax(FUNCTION, dataset)};
+		for(AbortableObjective objective : objectives){
+			double exact = objective.value(PARAMS, SearchMode.APPROXIMATE);
+			double threshold = exact / 4.;
+
+			Assertions.assertTrue(objective.value(PARAMS, SearchMode.APPROXIMATE, threshold) > threshold);
+		}
+	}
+
+	@Test
+	void cutoffOfPenalty(){
+		DatasetContext dataset = DatasetContext.create(DATA_TABLE);
+		ObjectivePenalty objective = new ObjectivePenalty(new ObjectiveRSS(FUNCTION, dataset), new Constraint[0], SearchMode.APPROXIMATE);
+		double exact = objective.value(PARAMS);
+
+		objective.setCutoff(exact / 4.);
+		Assertions.assertTrue(objective.value(new double[]{2.1}) > exact / 4.);
+		objective.setCutoff(Double.POSITIVE_INFINITY);
+		Assertions.assertEquals(exact, objective.value(PARAMS));
+	}
+
+	@Test
+	void exactValueOfPenalty(){
+		DatasetContext dataset = DatasetContext.create(DATA_TABLE);
+		ObjectivePenalty objective = new ObjectivePenalty(new ObjectiveRSS(FUNCTION, dataset), new Constraint[0], SearchMode.APPROXIMATE);
+		double exact = objective.value(PARAMS);
+
+		objective.setCutoff(exact / 4.);
+		Assertions.assertEquals(exact, objective.exactValue(PARAMS));
+	}
+
+	@Test
+	void incumbentOfPenalty(){
+		DatasetContext dataset = DatasetContext.create(DATA_TABLE);
+		ObjectivePenalty objective = new ObjectivePenalty(new ObjectiveRSS(FUNCTION, dataset), new Constraint[0], SearchMode.APPROXIMATE);
+		double best = objective.value(PARAMS);
+		double worse = new ObjectiveRSS(FUNCTION, dataset).value(new double[]{10.});
+
+		//the best value computed so far aborts the scan of a worse candidate
+		Assertions.assertNotEquals(worse, objective.value(new double[]{10.}));
+		Assertions.assertTrue(worse > best);
+		objective.resetIncumbent();
+		Assertions.assertEquals(worse, objective.value(new double[]{10.}));
+	}
+
+}
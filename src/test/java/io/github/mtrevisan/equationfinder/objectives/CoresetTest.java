@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import io.github.mtrevisan.equationfinder.ModelFunction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+
+class CoresetTest{
+
+	@Test
+	void estimatesTheWholeData(){
+		Random random = new Random(0);
+		double[][] dataTable = new double[100_000][3];
+		for(double[] row : dataTable){
+			row[0] = Math.abs(random.nextGaussian()) * 3.;
+			row[1] = random.nextDouble() * 3.;
+			row[2] = 1. + 2. * row[0] + row[0] * row[1] + 0.3 * random.nextGaussian();
+		}
+		ModelFunction function = (params, inputs) -> params[0] + params[1] * inputs[0] + params[2] * inputs[0] * inputs[1];
+		double[] params = {2., 1.5, 1.2};
+		DatasetContext dataset = DatasetContext.create(dataTable);
+
+		DatasetContext coreset = Coreset.ofSize(dataset, 2_000, random);
+
+		Assertions.assertEquals(2_000, coreset.rowCount());
+		Assertions.assertEquals(dataset.totalWeight(), coreset.totalWeight(), dataset.totalWeight() * 0.05);
+		double expected = new ObjectiveRSS(function, dataset).value(params);
+		Assertions.assertEquals(expected, new ObjectiveRSS(function, coreset).value(params), expected * 0.05);
+		Assertions.assertTrue(Coreset.discrepancy(Coreset.ofTolerance(dataset, 0.01, random), dataset) <= 0.01);
+	}
+
+}
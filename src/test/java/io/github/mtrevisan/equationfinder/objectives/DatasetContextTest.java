@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import io.github.mtrevisan.equationfinder.ModelFunction;
+import io.github.mtrevisan.equationfinder.SearchMode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+
+class DatasetContextTest{
+
+	@Test
+	void singlePrecisionAsDoublePrecision(){
+		Random random = new Random(0);
+		double[][] dataTable = new double[10_000][3];
+		for(double[] row : dataTable){
+			row[0] = random.nextDouble() * 10.;
+			row[1] = random.nextDouble() * 3.;
+			row[2] = 20. + 2. * row[0] + row[0] * row[1] + 0.3 * random.nextGaussian();
+		}
+		ModelFunction function = (params, inputs) -> params[0] + params[1] * inputs[0] + params[2] * inputs[0] * inputs[1];
+		double[] params = {20.8, 2.1, 0.9};
+
+		DatasetContext doublePrecision = DatasetContext.create(dataTable, DatasetContext.STORAGE_FLOAT64);
+		DatasetContext singlePrecision = DatasetContext.create(dataTable, DatasetContext.STORAGE_FLOAT32);
+
+		Assertions.assertTrue(singlePrecision.isSinglePrecision());
+		Assertions.assertEquals(doublePrecision.targetMean(), singlePrecision.targetMean(), 1.e-6);
+		Assertions.assertEquals(doublePrecision.targetVariance(), singlePrecision.targetVariance(), 1.e-4);
+		double expected = new ObjectiveRSS(function, doublePrecision).value(params, SearchMode.APPROXIMATE);
+		double actual = new ObjectiveRSS(function, singlePrecision).value(params, SearchMode.APPROXIMATE);
+		Assertions.assertEquals(expected, actual, expected * 1.e-5);
+		expected = new ObjectiveMedA(function, doublePrecision).value(params, SearchMode.APPROXIMATE);
+		actual = new ObjectiveMedA(function, singlePrecision).value(params, SearchMode.APPROXIMATE);
+		Assertions.assertEquals(expected, actual, expected * 1.e-4);
+	}
+
+	@Test
+	void singlePrecisionFromBuffers(){
+		double[][] dataTable = {{0.1, 1.}, {0.2, 2.}, {0.3, 3.}};
+		DoubleBuffer[] columns = {DoubleBuffer.wrap(new double[]{0.1, 0.2, 0.3}), DoubleBuffer.wrap(new double[]{1., 2., 3.})};
+
+		DatasetContext fromTable = DatasetContext.create(dataTable, DatasetContext.STORAGE_FLOAT32);
+		DatasetContext fromBuffers = DatasetContext.create(columns, DatasetContext.STORAGE_FLOAT32);
+
+		Assertions.assertTrue(fromBuffers.isSinglePrecision());
+		Assertions.assertArrayEquals(fromTable.inputColumn(0), fromBuffers.inputColumn(0), 0.);
+		Assertions.assertEquals((double)0.1f, fromBuffers.inputColumn(0)[0]);
+		Assertions.assertFalse(DatasetContext.create(columns, null).isSinglePrecision());
+		Assertions.assertThrows(IllegalArgumentException.class, () -> DatasetContext.create(columns, "float16"));
+	}
+
+	@Test
+	void weightedAsRepeated(){
+		double[][] dataTable = {{1., 2.}, {2., 5.}, {2., 5.}, {3., 5.}, {3., 5.}, {3., 5.}};
+		DatasetContext repeated = DatasetContext.create(dataTable);
+		DatasetContext weighted = DatasetContext.create(new double[][]{{1., 2., 3.}}, new double[]{2., 5., 5.}, new double[]{1., 2., 3.});
+		ModelFunction function = (params, inputs) -> params[0] * inputs[0];
+		double[] params = {1.5};
+
+		Assertions.assertEquals(repeated.totalWeight(), weighted.totalWeight());
+		Assertions.assertEquals(repeated.targetMean(), weighted.targetMean(), 1.e-12);
+		Assertions.assertEquals(repeated.targetVariance(), weighted.targetVariance(), 1.e-12);
+		Assertions.assertEquals(new ObjectiveRSS(function, repeated).value(params, SearchMode.APPROXIMATE),
+			new ObjectiveRSS(function, weighted).value(params, SearchMode.APPROXIMATE), 1.e-12);
+		Assertions.assertEquals(new ObjectiveMedA(function, repeated).value(params, SearchMode.APPROXIMATE),
+			new ObjectiveMedA(function, weighted).value(params, SearchMode.APPROXIMATE), 1.e-12);
+	}
+
+	@Test
+	void buffersAsArrays(){
+		Random random = new Random(0);
+		int rowCount = 1_000;
+		double[][] dataTable = new double[rowCount][3];
+		DoubleBuffer[] columns = new DoubleBuffer[3];
+		for(int j = 0; j < 3; j ++)
+			columns[j] = ByteBuffer.allocateDirect(rowCount * Double.BYTES)
+				.order(ByteOrder.LITTLE_ENDIAN)
+				.asDoubleBuffer();
+		for(int i = 0; i < rowCount; i ++){
+			dataTable[i][0] = random.nextInt(10);
+			dataTable[i][1] = random.nextDouble() * 3.;
+			dataTable[i][2] = 1. + 2. * dataTable[i][0] + random.nextGaussian();
+			for(int j = 0; j < 3; j ++)
+				columns[j].put(i, dataTable[i][j]);
+		}
+		ModelFunction function = (params, inputs) -> params[0] + params[1] * inputs[0] + params[2] * inputs[1];
+		double[] params = {1.2, 1.9, 0.1};
+
+		DatasetContext arrays = DatasetContext.create(dataTable);
+		DatasetContext buffers = DatasetContext.create(columns, DatasetContext.STORAGE_FLOAT64);
+
+		Assertions.assertEquals(rowCount, buffers.rowCount());
+		Assertions.assertEquals(2, buffers.inputCount());
+		Assertions.assertArrayEquals(arrays.inputMinimum(), buffers.inputMinimum(), 0.);
+		Assertions.assertArrayEquals(arrays.inputMaximum(), buffers.inputMaximum(), 0.);
+		Assertions.assertArrayEquals(arrays.target(), buffers.target(), 0.);
+		Assertions.assertEquals(arrays.targetVariance(), buffers.targetVariance());
+		Assertions.assertEquals(new ObjectiveRSS(function, arrays).value(params, SearchMode.APPROXIMATE),
+			new ObjectiveRSS(function, buffers).value(params, SearchMode.APPROXIMATE));
+		Assertions.assertEquals(new ObjectiveRMSL(function, arrays).value(params, SearchMode.APPROXIMATE),
+			new ObjectiveRMSL(function, buffers).value(params, SearchMode.APPROXIMATE));
+		Assertions.assertEquals(new ObjectiveRSS(function, arrays.sample(100, new Random(1))).value(params, SearchMode.APPROXIMATE),
+			new ObjectiveRSS(function, buffers.sample(100, new Random(1))).value(params, SearchMode.APPROXIMATE));
+		Assertions.assertEquals(DuplicateAggregation.aggregate(arrays, true).rowCount(),
+			DuplicateAggregation.aggregate(buffers, true).rowCount());
+	}
+
+	@Test
+	void wrappedArraysAreNotCopied(){
+		double[] input = {1., 2., 3.};
+		double[] target = {2., 4., 6.};
+
+		DatasetContext dataset = DatasetContext.create(new DoubleBuffer[]{DoubleBuffer.wrap(input), DoubleBuffer.wrap(target)},
+			DatasetContext.STORAGE_FLOAT64);
+
+		Assertions.assertSame(input, dataset.inputColumn(0));
+		Assertions.assertSame(target, dataset.target());
+	}
+
+	@Test
+	void targetStatistics(){
+		double[][] inputColumns = {{3., -1., 7., 2.5}, {0., 5., 5., -2.}};
+		double[] target = {1., 4., 2.5, 10.};
+		DatasetContext dataset = DatasetContext.create(inputColumns, target, null);
+
+		assertStatistics(inputColumns, target, new double[]{1., 1., 1., 1.}, dataset);
+	}
+
+	@Test
+	void weightedTargetStatistics(){
+		double[][] inputColumns = {{3., -1., 7., 2.5}, {0., 5., 5., -2.}};
+		double[] target = {1., 4., 2.5, 10.};
+		double[] weights = {2., 0.5, 1., 3.};
+		DatasetContext dataset = DatasetContext.create(inputColumns, target, weights);
+
+		assertStatistics(inputColumns, target, weights, dataset);
+		Assertions.assertTrue(dataset.isWeighted());
+	}
+
+	@Test
+	void mergedTargetStatistics(){
+		double[][] dataTable = {{1., 2.}, {1., 4.}, {2., 3.}, {1., 9.}, {3., 0.5}};
+		DatasetContext dataset = DatasetContext.create(dataTable);
+
+		DatasetContext aggregated = DuplicateAggregation.aggregate(dataset, true);
+
+		Assertions.assertEquals(3, aggregated.rowCount());
+		//the deviations of the merged targets are added back, so the statistics are the ones of the rows before merging
+		Assertions.assertEquals(dataset.targetMean(), aggregated.targetMean(), 1.e-12);
+		Assertions.assertEquals(dataset.targetVariance(), aggregated.targetVariance(), 1.e-12);
+		Assertions.assertEquals(dataset.logTargetMean, aggregated.logTargetMean, 1.e-12);
+		Assertions.assertEquals(dataset.logTargetVariance, aggregated.logTargetVariance, 1.e-12);
+		Assertions.assertEquals(dataset.totalWeight(), aggregated.totalWeight());
+		Assertions.assertEquals(2., aggregated.targetMinimum(0));
+		Assertions.assertEquals(9., aggregated.targetMaximum(0));
+	}
+
+
+	private static void assertStatistics(double[][] inputColumns, double[] target, double[] weights, DatasetContext dataset){
+		double weightSum = 0.;
+		double sum = 0.;
+		double logSum = 0.;
+		for(int i = 0; i < target.length; i ++){
+			weightSum += weights[i];
+			sum += weights[i] * target[i];
+			logSum += weights[i] * Math.log1p(target[i]);
+		}
+		double mean = sum / weightSum;
+		double logMean = logSum / weightSum;
+		double squares = 0.;
+		double logSquares = 0.;
+		for(int i = 0; i < target.length; i ++){
+			squares += weights[i] * (target[i] - mean) * (target[i] - mean);
+			logSquares += weights[i] * (Math.log1p(target[i]) - logMean) * (Math.log1p(target[i]) - logMean);
+		}
+
+		Assertions.assertEquals(weightSum, dataset.totalWeight(), 1.e-12);
+		Assertions.assertEquals(mean, dataset.targetMean(), 1.e-12);
+		Assertions.assertEquals(squares / weightSum, dataset.targetVariance(), 1.e-12);
+		Assertions.assertEquals(logMean, dataset.logTargetMean, 1.e-12);
+		Assertions.assertEquals(logSquares / weightSum, dataset.logTargetVariance, 1.e-12);
+		for(int i = 0; i < target.length; i ++)
+			Assertions.assertEquals(Math.log1p(target[i]), dataset.logTarget(i), 1.e-15);
+		for(int j = 0; j < inputColumns.length; j ++){
+			Assertions.assertEquals(Arrays.stream(inputColumns[j]).min().getAsDouble(), dataset.inputMinimum()[j]);
+			Assertions.assertEquals(Arrays.stream(inputColumns[j]).max().getAsDouble(), dataset.inputMaximum()[j]);
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import io.github.mtrevisan.equationfinder.ModelFunction;
+import io.github.mtrevisan.equationfinder.SearchMode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class DuplicateAggregationTest{
+
+	private static final double[][] DATA_TABLE = {{1., 2., 3.}, {1., 2., 3.}, {1., 2., 4.}, {2., 1., 5.}, {2., 1., 5.}, {3., 0., 7.}};
+	private static final ModelFunction FUNCTION = (params, inputs) -> params[0] * inputs[0] + params[1] * inputs[1];
+	private static final double[] PARAMS = {1.5, 0.8};
+
+
+	@Test
+	void duplicates(){
+		DatasetContext dataset = DatasetContext.create(DATA_TABLE);
+		DatasetContext aggregated = DuplicateAggregation.aggregate(dataset, false);
+
+		Assertions.assertEquals(4, aggregated.rowCount());
+		Assertions.assertFalse(aggregated.hasMergedTargets());
+		for(SearchMode searchMode : SearchMode.values()){
+			Assertions.assertEquals(new ObjectiveMA(FUNCTION, dataset).value(PARAMS, searchMode),
+				new ObjectiveMA(FUNCTION, aggregated).value(PARAMS, searchMode), 1.e-12);
+			Assertions.assertEquals(new ObjectiveMedA(FUNCTION, dataset).value(PARAMS, searchMode),
+				new ObjectiveMedA(FUNCTION, aggregated).value(PARAMS, searchMode), 1.e-12);
+		}
+	}
+
+	@Test
+	void mergedTargets(){
+		DatasetContext dataset = DatasetContext.create(DATA_TABLE);
+		DatasetContext aggregated = DuplicateAggregation.aggregate(dataset, true);
+
+		Assertions.assertEquals(3, aggregated.rowCount());
+		Assertions.assertTrue(aggregated.hasMergedTargets());
+		Assertions.assertEquals(dataset.targetVariance(), aggregated.targetVariance(), 1.e-12);
+		Assertions.assertEquals(new ObjectiveRSS(FUNCTION, dataset).value(PARAMS), new ObjectiveRSS(FUNCTION, aggregated).value(PARAMS),
+			1.e-12);
+		Assertions.assertEquals(new ObjectiveNSE(FUNCTION, dataset).value(PARAMS), new ObjectiveNSE(FUNCTION, aggregated).value(PARAMS),
+			1.e-12);
+		Assertions.assertEquals(new ObjectiveMax(FUNCTION, dataset).value(PARAMS), new ObjectiveMax(FUNCTION, aggregated).value(PARAMS),
+			1.e-12);
+	}
+
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import io.github.mtrevisan.equationfinder.ModelFunction;
+import io.github.mtrevisan.equationfinder.SearchMode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class FusedObjectiveTest{
+
+	private static final double[][] DATA_TABLE = {{1., 3.}, {2., 3.5}, {3., 7.}, {4., 8.}, {5., 9.5}};
+	private static final ModelFunction FUNCTION = (params, inputs) -> params[0] * inputs[0];
+	private static final double[] PARAMS = {2.};
+
+
+	@Test
+	void searchModePenalty(){
+		DatasetContext dataset = DatasetContext.create(DATA_TABLE);
+		//data above the model: 1 + 1 + 0 + 0 + 0, data below the model: 0 + 0.5 + 0 + 0 + 0.5
+		double above = 2.;
+		double below = 1.;
+
+		FusedObjective[] objectives = {new ObjectiveRSS(FUNCTION, dataset), new ObjectiveMA(FUNCTION, dataset),
+			new ObjectiveMax(FUNCTION, dataset), new ObjectiveNSE(FUNCTION, dataset)};
+		for(FusedObjective objective : objectives){
+			double approximate = objective.value(PARAMS, SearchMode.APPROXIMATE);
+
+			Assertions.assertEquals(approximate + above, objective.value(PARAMS, SearchMode.UPPER_BOUND), 1.e-12);
+			Assertions.assertEquals(approximate + below, objective.value(PARAMS, SearchMode.LOWER_BOUND), 1.e-12);
+		}
+	}
+
+	@Test
+	void penaltyOfSingleRow(){
+		Assertions.assertEquals(1.5, FusedObjective.searchModePenalty(SearchMode.UPPER_BOUND, 3., 1.5));
+		Assertions.assertEquals(0., FusedObjective.searchModePenalty(SearchMode.UPPER_BOUND, 1.5, 3.));
+		Assertions.assertEquals(1.5, FusedObjective.searchModePenalty(SearchMode.LOWER_BOUND, 1.5, 3.));
+		Assertions.assertEquals(0., FusedObjective.searchModePenalty(SearchMode.APPROXIMATE, 1.5, 3.));
+	}
+
+}
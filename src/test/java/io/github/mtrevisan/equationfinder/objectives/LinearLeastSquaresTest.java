@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import io.github.mtrevisan.equationfinder.ModelFunction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class LinearLeastSquaresTest{
+
+	private static final DatasetContext DATASET = DatasetContext.create(new double[][]{
+		{1., 2., 3.}, {1., 3., 3.5}, {2., 1., 5.}, {2.5, 1., 5.5}, {3., 0., 7.}, {4., -1., 8.2}
+	});
+	private static final ModelFunction FUNCTION = (params, inputs) -> params[0] * inputs[0] + params[1] * Math.sin(inputs[1]) + 0.5;
+	private static final double[] PARAMS = {1.5, 0.8};
+
+
+	@Test
+	void asResidualSumOfSquares(){
+		Assertions.assertTrue(LinearLeastSquares.isLinear(FUNCTION, 2, DATASET));
+
+		LinearLeastSquares statistics = LinearLeastSquares.create(FUNCTION, 2, 2);
+		statistics.accumulate(DATASET, 0, DATASET.rowCount());
+
+		Assertions.assertEquals(new ObjectiveRSS(FUNCTION, DATASET).value(PARAMS), statistics.value(PARAMS), 1.e-12);
+	}
+
+	@Test
+	void appendedRows(){
+		LinearLeastSquares statistics = LinearLeastSquares.create(FUNCTION, 2, 2);
+		statistics.accumulate(DATASET, 0, DATASET.rowCount());
+
+		LinearLeastSquares previous = LinearLeastSquares.create(FUNCTION, 2, 2);
+		previous.accumulate(DATASET, 0, 4);
+		LinearLeastSquares restored = LinearLeastSquares.restore(FUNCTION, 2, 2, previous.moments(), previous.rowCount());
+		restored.accumulate(DATASET, restored.rowCount(), DATASET.rowCount());
+
+		Assertions.assertEquals(DATASET.rowCount(), restored.rowCount());
+		Assertions.assertEquals(statistics.value(PARAMS), restored.value(PARAMS), 1.e-12);
+	}
+
+	@Test
+	void consistentWithTheData(){
+		LinearLeastSquares statistics = LinearLeastSquares.create(FUNCTION, 2, 2);
+		statistics.accumulate(DATASET, 0, DATASET.rowCount());
+
+		Assertions.assertTrue(statistics.isConsistent(PARAMS, new ObjectiveRSS(FUNCTION, DATASET).value(PARAMS)));
+	}
+
+	@Test
+	void nonLinearOnRowsNotChecked(){
+		double[][] dataTable = new double[64][2];
+		for(int i = 0; i < dataTable.length; i ++)
+			dataTable[i] = new double[]{i, 3. * i + 1.};
+		DatasetContext dataset = DatasetContext.create(dataTable);
+		//not linear only on a row the linearity is not checked on
+		ModelFunction function = (params, inputs) -> params[0] * inputs[0] + (inputs[0] == 3.? params[1] * params[1]: params[1]);
+		double[] params = {3., 2.};
+
+		Assertions.assertTrue(LinearLeastSquares.isLinear(function, 2, dataset));
+		LinearLeastSquares statistics = LinearLeastSquares.create(function, 2, 1);
+		statistics.accumulate(dataset, 0, dataset.rowCount());
+		Assertions.assertFalse(statistics.isConsistent(params, new ObjectiveRSS(function, dataset).value(params)));
+	}
+
+	@Test
+	void nonLinear(){
+		ModelFunction function = (params, inputs) -> params[0] * Math.exp(params[1] * inputs[0]);
+
+		Assertions.assertFalse(LinearLeastSquares.isLinear(function, 2, DATASET));
+	}
+
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import io.github.mtrevisan.equationfinder.ModelFunction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class ObjectiveLinearScalingTest{
+
+	private static final double[][] DATA_TABLE = {{1., 4.9}, {2., 7.2}, {3., 8.8}, {4., 11.1}, {5., 13.}};
+
+
+	@Test
+	void offsetAndScaleInvariant(){
+		DatasetContext dataset = DatasetContext.create(DATA_TABLE);
+		ModelFunction function = (params, inputs) -> params[0] * inputs[0];
+		ModelFunction shifted = (params, inputs) -> 10. - 3. * params[0] * inputs[0];
+
+		double error = new ObjectiveLinearScaling(function, dataset).value(new double[]{1.});
+		Assertions.assertEquals(error, new ObjectiveLinearScaling(function, dataset).value(new double[]{7.}), 1.e-12);
+		Assertions.assertEquals(error, new ObjectiveLinearScaling(shifted, dataset).value(new double[]{1.}), 1.e-12);
+	}
+
+	@Test
+	void asBestLinearFit(){
+		DatasetContext dataset = DatasetContext.create(DATA_TABLE);
+		ModelFunction function = (params, inputs) -> params[0] * inputs[0];
+
+		//least squares line of the data: y = 2.97 + 2.01·x
+		double expected = 0.;
+		for(double[] row : DATA_TABLE)
+			expected += Math.pow(row[1] - 2.97 - 2.01 * row[0], 2.);
+		expected /= DATA_TABLE.length;
+
+		Assertions.assertEquals(expected, new ObjectiveLinearScaling(function, dataset).value(new double[]{1.}), 1.e-12);
+	}
+
+	@Test
+	void undefinedModel(){
+		DatasetContext dataset = DatasetContext.create(DATA_TABLE);
+		ModelFunction function = (params, inputs) -> params[0] / (inputs[0] - 3.);
+
+		Assertions.assertEquals(Double.POSITIVE_INFINITY, new ObjectiveLinearScaling(function, dataset).value(new double[]{1.}));
+	}
+
+}
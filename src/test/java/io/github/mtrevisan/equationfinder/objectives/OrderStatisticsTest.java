@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+class OrderStatisticsTest{
+
+	@Test
+	void medianOdd(){
+		double[] values = {5., 1., 4., 2., 3.};
+		double median = OrderStatistics.quantile(values, values.length, 0.5);
+
+		Assertions.assertEquals(3., median);
+	}
+
+	@Test
+	void medianEven(){
+		double[] values = {5., 1., 4., 2.};
+		double median = OrderStatistics.quantile(values, values.length, 0.5);
+
+		Assertions.assertEquals(3., median);
+	}
+
+	@Test
+	void quantileAsSorted(){
+		Random random = new Random(0);
+		for(int test = 0; test < 1_000; test ++){
+			int length = 1 + random.nextInt(2_000);
+			double[] values = new double[length];
+			for(int i = 0; i < length; i ++)
+				values[i] = (random.nextBoolean()? random.nextInt(5): random.nextGaussian());
+			double quantile = random.nextDouble();
+
+			double[] sorted = values.clone();
+			Arrays.sort(sorted);
+			double position = quantile * (length - 1);
+			int index = (int)position;
+			double expected = (index + 1 < length
+				? sorted[index] + (position - index) * (sorted[index + 1] - sorted[index])
+				: sorted[index]);
+
+			Assertions.assertEquals(expected, OrderStatistics.quantile(values, length, quantile), 1.e-12);
+		}
+	}
+
+	@Test
+	void weightedQuantileAsRepeated(){
+		Random random = new Random(0);
+		for(int test = 0; test < 1_000; test ++){
+			int length = 1 + random.nextInt(200);
+			double[] values = new double[length];
+			double[] weights = new double[length];
+			double[] repeated = new double[length * 4];
+			int repeatedLength = 0;
+			for(int i = 0; i < length; i ++){
+				values[i] = (random.nextBoolean()? random.nextInt(5): random.nextGaussian());
+				weights[i] = 1 + random.nextInt(4);
+				for(int j = 0; j < weights[i]; j ++)
+					repeated[repeatedLength ++] = values[i];
+			}
+			double quantile = random.nextDouble();
+
+			double expected = OrderStatistics.quantile(repeated, repeatedLength, quantile);
+
+			Assertions.assertEquals(expected, OrderStatistics.weightedQuantile(values, weights, length, quantile), 1.e-12);
+		}
+	}
+
+}
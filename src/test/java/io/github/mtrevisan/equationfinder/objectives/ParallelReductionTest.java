@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import io.github.mtrevisan.equationfinder.ModelFunction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+
+class ParallelReductionTest{
+
+	@Test
+	void everyRowOnce(){
+		//a number of rows that is not a multiple of the block size
+		int rowCount = 100_003;
+		double[] sums = ParallelReduction.sum(rowCount, 2, (from, to, blockSums) -> {
+			for(int i = from; i < to; i ++){
+				blockSums[0] += 1.;
+				blockSums[1] += i;
+			}
+		});
+
+		Assertions.assertEquals(rowCount, sums[0]);
+		Assertions.assertEquals((double)rowCount * (rowCount - 1) / 2., sums[1]);
+	}
+
+	@Test
+	void parallelAsSequential(){
+		Random random = new Random(0);
+		double[][] dataTable = new double[200_000][2];
+		for(double[] row : dataTable){
+			row[0] = random.nextDouble() * 10.;
+			row[1] = 3. * row[0] + random.nextGaussian();
+		}
+		ModelFunction function = (params, inputs) -> params[0] * inputs[0] + params[1];
+		double[] params = {2.9, 0.2};
+		DatasetContext dataset = DatasetContext.create(dataTable);
+		DatasetContext parallelDataset = dataset.withParallelThreshold(1);
+
+		double sequential = new ObjectiveRSS(function, dataset).value(params);
+		double parallel = new ObjectiveRSS(function, parallelDataset).value(params);
+		Assertions.assertTrue(parallelDataset.isParallel());
+		Assertions.assertEquals(sequential, parallel, sequential * 1.e-12);
+		//bit-identical, whatever the scheduling of the blocks
+		for(int i = 0; i < 20; i ++)
+			Assertions.assertEquals(Double.doubleToLongBits(parallel),
+				Double.doubleToLongBits(new ObjectiveRSS(function, parallelDataset).value(params)));
+	}
+
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2021 Mauro Trevisan
+ * <p>
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mtrevisan.equationfinder.objectives;
+
+import io.github.mtrevisan.equationfinder.ModelFunction;
+import io.github.mtrevisan.equationfinder.SearchMode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+class QuantileDigestTest{
+
+	private static final double[] QUANTILES = {0.001, 0.01, 0.1, 0.5, 0.9, 0.95, 0.99, 0.999};
+
+
+	@Test
+	void skewedAsOrderStatistics(){
+		Random random = new Random(0);
+		double[] values = new double[200_000];
+		for(int i = 0; i < values.length; i ++)
+			values[i] = Math.exp(2. * random.nextGaussian());
+		QuantileDigest digest = new QuantileDigest(200.);
+		for(double value : values)
+			digest.add(value);
+
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		for(double quantile : QUANTILES){
+			double approximate = digest.quantile(quantile);
+			double exact = OrderStatistics.quantile(values.clone(), values.length, quantile);
+
+			//the error is measured in rank, and it shrinks towards the tails
+			double rank = (double)lowerBound(sorted, approximate) / sorted.length;
+			Assertions.assertEquals(quantile, rank, 0.1 * Math.min(quantile, 1. - quantile) + 1.e-4, "quantile " + quantile);
+			//in the far tails of a skewed distribution a small rank error is a large value error
+			if(quantile >= 0.01 && quantile <= 0.99)
+				Assertions.assertEquals(exact, approximate, 0.05 * exact, "quantile " + quantile);
+		}
+	}
+
+	@Test
+	void orderDoesNotMatter(){
+		Random random = new Random(1);
+		double[] values = new double[50_000];
+		for(int i = 0; i < values.length; i ++)
+			values[i] = random.nextDouble();
+		QuantileDigest shuffled = new QuantileDigest(200.);
+		for(double value : values)
+			shuffled.add(value);
+		Arrays.sort(values);
+		QuantileDigest sorted = new QuantileDigest(200.);
+		for(double value : values)
+			sorted.add(value);
+
+		//both are merged many times over (the buffer holds about a thousand values)
+		for(double quantile : QUANTILES)
+			Assertions.assertEquals(sorted.quantile(quantile), shuffled.quantile(quantile), 0.005);
+	}
+
+	@Test
+	void extremes(){
+		QuantileDigest digest = new QuantileDigest(100.);
+		for(int i = 0; i < 10_000; i ++)
+			digest.add(i);
+
+		Assertions.assertEquals(0., digest.quantile(0.));
+		Assertions.assertEquals(9_999., digest.quantile(1.));
+	}
+
+	@Test
+	void edgeCases(){
+		QuantileDigest digest = new QuantileDigest(100.);
+		Assertions.assertTrue(Double.isNaN(digest.quantile(0.5)));
+
+		digest.add(3.5);
+		Assertions.assertEquals(3.5, digest.quantile(0.));
+		Assertions.assertEquals(3.5, digest.quantile(0.9));
+
+		for(int i = 0; i < 5_000; i ++)
+			digest.add(3.5);
+		Assertions.assertEquals(3.5, digest.quantile(0.5));
+
+		digest.reset();
+		Assertions.assertTrue(Double.isNaN(digest.quantile(0.5)));
+		digest.add(1.);
+		digest.add(2.);
+		Assertions.assertEquals(1., digest.quantile(0.), 1.e-12);
+		Assertions.assertEquals(2., digest.quantile(1.), 1.e-12);
+	}
+
+	@Test
+	void exactUnlessRequested(){
+		Random random = new Random(2);
+		double[][] dataTable = new double[10_000][];
+		for(int i = 0; i < dataTable.length; i ++)
+			dataTable[i] = new double[]{i, i + Math.exp(random.nextGaussian())};
+		DatasetContext dataset = DatasetContext.create(dataTable);
+		ModelFunction function = (params, inputs) -> params[0] * inputs[0];
+		double[] params = {1.};
+		double[] errors = new double[dataTable.length];
+		for(int i = 0; i < errors.length; i ++)
+			errors[i] = Math.abs(dataTable[i][1] - dataTable[i][0]);
+
+		double exact = OrderStatistics.quantile(errors, errors.length, 0.9);
+		Assertions.assertEquals(exact, new ObjectiveQuantileA(function, dataset, 0.9).value(params, SearchMode.APPROXIMATE));
+		double approximate = new ObjectiveQuantileA(function, dataset, 0.9, true).value(params, SearchMode.APPROXIMATE);
+		Assertions.assertEquals(exact, approximate, 0.05 * exact);
+	}
+
+
+	private static int lowerBound(double[] sorted, double value){
+		int index = Arrays.binarySearch(sorted, value);
+		return (index >= 0? index: -index - 1);
+	}
+
+}